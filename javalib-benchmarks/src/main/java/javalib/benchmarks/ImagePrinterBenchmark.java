@@ -0,0 +1,69 @@
+package javalib.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javalib.worldimages.WorldImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Structural equality, hashing and printing (through
+ * <code>ImagePrinter</code>) of deep image trees. The two trees compared are
+ * built separately, so <code>equals</code> cannot stop at an identity check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xss4m", "-Djava.awt.headless=true" })
+@State(Scope.Thread)
+public class ImagePrinterBenchmark {
+
+    @Param({ "beside", "overlay" })
+    public String shape;
+
+    @Param({ "100", "1000", "10000" })
+    public int depth;
+
+    private WorldImage tree;
+    private WorldImage twin;
+    private WorldImage different;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.tree = Trees.build(this.shape, this.depth);
+        this.twin = Trees.build(this.shape, this.depth);
+        this.different = Trees.build(this.shape, this.depth + 1);
+    }
+
+    @Benchmark
+    public boolean equalsTwin() {
+        return this.tree.equals(this.twin);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        return this.tree.equals(this.different);
+    }
+
+    @Benchmark
+    public int hashCodeTree() {
+        return this.tree.hashCode();
+    }
+
+    @Benchmark
+    public String toStringTree() {
+        return this.tree.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package javalib.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javalib.worldimages.BoundingBox;
+import javalib.worldimages.RasterCache;
+import javalib.worldimages.RotateImage;
+import javalib.worldimages.WorldImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building, measuring and drawing deep trees of
+ * <code>BesideImage</code>, <code>AboveImage</code> and
+ * <code>OverlayImage</code>. Every depth is walked by the same stack-safe
+ * traversal: 10 is a typical hand-built image, 1000 a scene built up over a
+ * game, and 100000 a tree far deeper than the call stack could recurse
+ * through, so the per-node cost of the traversal dominates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xss4m", "-Djava.awt.headless=true" })
+@State(Scope.Thread)
+public class ImageTreeBenchmark {
+
+    @Param({ "beside", "above", "overlay" })
+    public String shape;
+
+    @Param({ "10", "1000", "100000" })
+    public int depth;
+
+    private WorldImage tree;
+    private BufferedImage target;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.tree = Trees.build(this.shape, this.depth);
+        this.tree.getBB();
+        this.target = new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_ARGB);
+        this.g = this.target.createGraphics();
+        // measure drawing the tree, not copying a picture from the raster cache
+        this.g.setRenderingHint(RasterCache.KEY_CACHING, Boolean.FALSE);
+        this.g.translate(512, 512);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.g.dispose();
+    }
+
+    /** Building the tree, including the sizes each combinator asks of its children */
+    @Benchmark
+    public WorldImage construct() {
+        return Trees.build(this.shape, this.depth);
+    }
+
+    /**
+     * The bounding box of a rotated tree: rotations defeat the memoized boxes,
+     * so every leaf is visited
+     */
+    @Benchmark
+    public BoundingBox rotatedBB() {
+        return new RotateImage(this.tree, 30).getBB();
+    }
+
+    /** The memoized bounding box of a tree that has already been measured */
+    @Benchmark
+    public BoundingBox cachedBB() {
+        return this.tree.getBB();
+    }
+
+    @Benchmark
+    public Graphics2D draw() {
+        this.tree.draw(this.g);
+        return this.g;
+    }
+
+    /** The bounding box of a tree that has never been measured */
+    @State(Scope.Thread)
+    public static class Fresh {
+        WorldImage tree;
+
+        @Setup(Level.Invocation)
+        public void setUp(ImageTreeBenchmark outer) {
+            this.tree = Trees.build(outer.shape, outer.depth);
+        }
+    }
+
+    @Benchmark
+    public BoundingBox coldBB(Fresh fresh) {
+        return fresh.tree.getBB();
+    }
+}
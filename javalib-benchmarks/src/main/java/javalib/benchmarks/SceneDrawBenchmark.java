@@ -0,0 +1,91 @@
+package javalib.benchmarks;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javalib.impworld.WorldScene;
+import javalib.worldimages.RasterCache;
+import javalib.worldimages.WorldImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <code>WorldSceneBase.draw</code> on scenes with many placed images, some of
+ * them off screen, drawn into a buffer the size of a typical canvas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Djava.awt.headless=true" })
+@State(Scope.Thread)
+public class SceneDrawBenchmark {
+
+    static final int WIDTH = 800;
+    static final int HEIGHT = 600;
+
+    /** Exposes the scene's drawing, which is only visible to canvases */
+    static final class Scene extends WorldScene {
+        Scene() {
+            super(WIDTH, HEIGHT);
+        }
+
+        void drawInto(Graphics2D g) {
+            this.draw(g);
+        }
+    }
+
+    @Param({ "1000", "10000", "100000" })
+    public int placements;
+
+    private Scene scene;
+    private BufferedImage target;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        WorldImage[] sprites = new WorldImage[16];
+        for (int i = 0; i < sprites.length; i++) {
+            sprites[i] = Trees.build(i % 2 == 0 ? "beside" : "overlay", 1 + i % 4);
+        }
+        this.scene = new Scene();
+        for (int i = 0; i < this.placements; i++) {
+            // a tenth of the placements fall outside the visible area
+            int x = random.nextInt(WIDTH + WIDTH / 10) - WIDTH / 20;
+            int y = random.nextInt(HEIGHT + HEIGHT / 10) - HEIGHT / 20;
+            this.scene.placeImageXY(sprites[random.nextInt(sprites.length)], x, y);
+        }
+        this.target = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        this.g = this.target.createGraphics();
+        // measure drawing the images, not copying pictures from the raster cache
+        this.g.setRenderingHint(RasterCache.KEY_CACHING, Boolean.FALSE);
+        // the first draw also builds the scene's draw order
+        this.scene.drawInto(this.g);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage draw() {
+        this.scene.drawInto(this.g);
+        return this.target;
+    }
+}
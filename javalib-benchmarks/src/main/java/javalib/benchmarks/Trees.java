@@ -0,0 +1,56 @@
+package javalib.benchmarks;
+
+import java.awt.Color;
+
+import javalib.worldimages.AboveImage;
+import javalib.worldimages.BesideImage;
+import javalib.worldimages.CircleImage;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.OverlayImage;
+import javalib.worldimages.RectangleImage;
+import javalib.worldimages.WorldImage;
+
+/**
+ * Builds the image trees shared by the benchmarks.
+ */
+final class Trees {
+
+    private Trees() {
+    }
+
+    /**
+     * A left-leaning tree of the given combinator, <code>depth</code> levels
+     * deep, whose leaves alternate between circles and rectangles
+     *
+     * @param shape
+     *            one of <code>beside</code>, <code>above</code> or
+     *            <code>overlay</code>
+     * @param depth
+     *            how many combinators to nest
+     */
+    static WorldImage build(String shape, int depth) {
+        WorldImage img = leaf(0);
+        for (int i = 1; i <= depth; i++) {
+            WorldImage next = leaf(i);
+            if ("beside".equals(shape)) {
+                img = new BesideImage(img, next);
+            } else if ("above".equals(shape)) {
+                img = new AboveImage(img, next);
+            } else if ("overlay".equals(shape)) {
+                img = new OverlayImage(next, img);
+            } else {
+                throw new IllegalArgumentException("Unknown tree shape " + shape);
+            }
+        }
+        return img;
+    }
+
+    static WorldImage leaf(int i) {
+        Color color = new Color((i * 37) % 256, (i * 91) % 256, (i * 53) % 256);
+        if (i % 2 == 0) {
+            return new CircleImage(2 + i % 5, OutlineMode.SOLID, color);
+        } else {
+            return new RectangleImage(3 + i % 4, 2 + i % 3, OutlineMode.OUTLINE, color);
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package javalib.funworld;
 
+import javalib.utils.EventLog;
+import javalib.utils.EventRecorder;
+import javalib.worldcanvas.FrameCapture;
+import javalib.worldcanvas.FrameScheduler;
+import javalib.worldcanvas.TickLoop;
 import javalib.worldcanvas.WorldCanvas;
+import javalib.worldcanvas.WorldMetrics;
 import javalib.worldimages.Posn;
 
 import java.awt.Insets;
@@ -40,7 +46,7 @@ abstract public class World {
   /**
    * true if 'bigBang' started the world and it did not end, did not stop
    */
-  private transient boolean worldExists = false;
+  transient boolean worldExists = false;
 
   /**
    * the timer for this world
@@ -52,6 +58,28 @@ abstract public class World {
    */
   transient boolean stopTimer = false;
 
+  /**
+   * coalesces the redraws requested by ticks and events into frames, and is
+   * shared by all the worlds that take over the canvas
+   */
+  private transient FrameScheduler frames;
+
+  /**
+   * times the phases of this world and its canvas, and is shared by all the
+   * worlds that take over the canvas
+   */
+  private transient WorldMetrics metrics;
+
+  /**
+   * records the frames shown by this world's canvas, if anyone asked
+   */
+  private transient FrameCapture capture;
+
+  /**
+   * records the ticks and events this world handles, if anyone asked
+   */
+  transient EventRecorder recorder;
+
   /**
    * the key adapter for this world
    */
@@ -113,6 +141,12 @@ abstract public class World {
     }
     // throw runtime exceptions if width, height <= 0
     this.theCanvas = new WorldCanvas(width, height, this.getTitle());
+    this.theCanvas.setIncrementalRepaint(this.useIncrementalRepaint());
+    this.theCanvas.setBackgroundRendering(this.useBackgroundRendering());
+    this.theCanvas.setCapture(this.capture);
+    this.metrics = new WorldMetrics();
+    this.metrics.setEnabled(this.useMetrics());
+    this.theCanvas.setMetrics(this.metrics);
     this.blankScene = new WorldScene(width, height);
     this.worldEnded = false;
 
@@ -152,6 +186,17 @@ abstract public class World {
     // draw the initial world
     this.worldEnded = this.shouldWorldEnd();
     this.mytime = new MyTimer(this, speed);
+    // always draw whichever world currently owns the timer
+    final MyTimer timer = this.mytime;
+    this.frames = new FrameScheduler(this.getMaxFramesPerSecond(), new Runnable() {
+      public void run() {
+        timer.currentWorld.drawWorld();
+      }
+    });
+    if (this.useFixedTimestep() && speed > 0.0) {
+      this.mytime.useFixedTimestep(speed, this.getMaxCatchUpTicks(),
+              this.getMaxFramesPerSecond(), this.frames);
+    }
     if (!this.worldEnded) {
       this.worldExists = true;
     }
@@ -169,7 +214,7 @@ abstract public class World {
 
     // and add the timer -- start it if speed is greater than 0
     if (speed > 0.0)
-      this.mytime.timer.start();
+      this.mytime.start();
 
     // print a header that specifies the current version of the World
     getOutputStream().println(Versions.CURRENT_VERSION);
@@ -183,6 +228,143 @@ abstract public class World {
 
   public String getTitle() { return this.getClass().getSimpleName(); }
 
+  /**
+   * Should the canvas repaint only the regions of each scene that changed since
+   * the previous one? Override this method to return <code>true</code> for worlds
+   * that move a few images around a large scene. Images must not be mutated
+   * after they have been placed in a scene, or their changes may not be shown.
+   */
+  protected boolean useIncrementalRepaint() { return false; }
+
+  /**
+   * Should scenes be drawn on a background thread? When this method returns
+   * <code>true</code>, <code>makeScene</code> still runs on the event thread,
+   * but the scene it returns is drawn into an off-screen buffer by a separate
+   * render thread, and shown once it is complete. Scenes must not be mutated
+   * after they have been returned from <code>makeScene</code>.
+   */
+  protected boolean useBackgroundRendering() { return false; }
+
+  /**
+   * How many frames per second should the world be drawn at most? Ticks and
+   * events that arrive faster than this only mark the world as changed, and
+   * are shown together in the next frame. Returning 0 restores immediate
+   * drawing, as in earlier versions of this library: the world is then drawn
+   * right after every single event.
+   */
+  protected int getMaxFramesPerSecond() { return 60; }
+
+  /**
+   * The scheduler that draws this world, which counts how many frames were
+   * requested, drawn, and skipped because they were coalesced into another
+   * frame. Only available once the world has been started by
+   * <code>bigBang</code>.
+   */
+  public FrameScheduler getFrameScheduler() { return this.frames; }
+
+  /**
+   * Should the clock run on a fixed timestep? When this method returns
+   * <code>true</code>, <code>onTick</code> is scheduled on
+   * <code>System.nanoTime</code> instead of a Swing timer, so the tick rate
+   * stays accurate when the world is busy, and the world is drawn up to
+   * <code>getMaxFramesPerSecond()</code> times per second independently of
+   * the tick rate. Each frame passes <code>makeScene(double)</code> how far
+   * the clock has advanced towards the next tick.
+   */
+  protected boolean useFixedTimestep() { return false; }
+
+  /**
+   * How many overdue ticks may a fixed-timestep world run back to back when it
+   * falls behind? Any further overdue ticks are dropped.
+   */
+  protected int getMaxCatchUpTicks() { return 5; }
+
+  /**
+   * Record every tick and event this world handles from now on, or stop
+   * recording if <code>recorder</code> is <code>null</code>. The recording
+   * can be replayed with <code>{@link HeadlessRunner#replay HeadlessRunner.replay}</code>.
+   * Closing the recorder is up to the caller.
+   *
+   * @param recorder where to record the ticks and events
+   */
+  public void recordEvents(EventRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Record every frame the canvas shows from now on, e.g. as PNG files or an
+   * animated GIF, or stop recording if <code>capture</code> is
+   * <code>null</code>. Closing the capture is up to the caller.
+   *
+   * @param capture where to send the shown frames
+   */
+  public void captureFrames(FrameCapture capture) {
+    this.capture = capture;
+    if (this.theCanvas != null) {
+      this.theCanvas.setCapture(capture);
+    }
+  }
+
+  /**
+   * Should the world start out timing its phases? Override this method to
+   * return <code>true</code> to record timings from the very first tick;
+   * otherwise they can be turned on later through <code>getMetrics()</code>.
+   */
+  protected boolean useMetrics() { return false; }
+
+  /**
+   * The timings and counts of this world's ticks, events, scenes and frames.
+   * Only available once the world has been started.
+   */
+  public WorldMetrics getMetrics() { return this.metrics; }
+
+  /**
+   * EFFECT:
+   * <p>
+   * Start the world without a canvas, listeners or timer, so that a
+   * <code>{@link HeadlessRunner HeadlessRunner}</code> can drive it directly.
+   * </p>
+   */
+  void startHeadless(int width, int height) {
+    this.blankScene = new WorldScene(width, height);
+    this.worldEnded = this.shouldWorldEnd();
+    this.mytime = new MyTimer(this, 0.0);
+    this.metrics = new WorldMetrics();
+    this.metrics.setEnabled(this.useMetrics());
+    this.frames = new FrameScheduler(0, new Runnable() {
+      public void run() {
+        // headless worlds are only drawn when their runner asks for a scene
+      }
+    });
+    this.worldExists = !this.worldEnded;
+  }
+
+  /**
+   * Is this world driven by a <code>{@link HeadlessRunner HeadlessRunner}</code>?
+   * Exceptions thrown by its handlers are then passed on to the runner's
+   * caller, rather than halting the program.
+   */
+  boolean isHeadless() {
+    return this.theCanvas == null;
+  }
+
+  /** Has this world been started, and not stopped or ended since? */
+  boolean isRunning() {
+    return this.worldExists && !this.worldEnded;
+  }
+
+  /** The scene a canvas would show for this world right now */
+  WorldScene currentScene() {
+    if (this.isRunning()) {
+      long start = this.metrics.start();
+      WorldScene scene = this.makeScene(0.0);
+      this.metrics.end(WorldMetrics.Phase.MAKE_SCENE, start);
+      return scene;
+    } else {
+      return this.getLastScene("");
+    }
+  }
+
   /**
    * Start the world by creating a canvas of the given size, creating and
    * adding the key and mouse adapters, without running the the timer.
@@ -202,9 +384,15 @@ abstract public class World {
   private void stopWorld(WorldScene toDraw) {
     if (worldExists) {
       // remove listeners and set worldExists to false
-      this.mytime.timer.stop();
+      this.mytime.stop();
       this.worldExists = false;
       this.mytime.stopTimer();
+      this.frames.cancel();
+      if (this.theCanvas == null) {
+        // a headless world has no canvas or listeners
+        this.lastScene = toDraw;
+        return;
+      }
       this.theCanvas.frame.removeKeyListener(this.keyAdapter);
       this.theCanvas.frame.removeMouseListener(this.mouseAdapter);
       getOutputStream().println("The world stopped.");
@@ -281,15 +469,22 @@ abstract public class World {
   synchronized World processTick() {
     try {
       if (this.worldExists && !this.stopTimer) {
+        if (this.recorder != null)
+          this.recorder.recordTick();
         if (this.worldEnded) {
           this.stopWorld(this.getLastScene("tick"));
         } else {
+          long start = this.metrics.start();
           World bw = this.onTick();
+          this.metrics.end(WorldMetrics.Phase.TICK, start);
           return stopOrReset(bw, "tick");
         }
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -324,12 +519,19 @@ abstract public class World {
   synchronized World processKeyEvent(String key) {
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordKey(EventLog.KEY_EVENT, key);
+        long start = this.metrics.start();
         World bw = this.onKeyEvent(key);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "keyEvent");
       } else
         return this;
 
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -364,12 +566,19 @@ abstract public class World {
   synchronized World processKeyReleased(String key) {
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordKey(EventLog.KEY_RELEASED, key);
+        long start = this.metrics.start();
         World bw = this.onKeyReleased(key);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "keyReleased");
       } else
         return this;
 
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -405,11 +614,18 @@ abstract public class World {
   World processMouseClicked(Posn mouse, String button) {
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordMouse(EventLog.MOUSE_CLICKED, mouse.x, mouse.y, button);
+        long start = this.metrics.start();
         World bw = this.onMouseClicked(mouse, button);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "mouseClicked");
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -462,11 +678,18 @@ abstract public class World {
 
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordMouse(EventLog.MOUSE_ENTERED, mouse.x, mouse.y, null);
+        long start = this.metrics.start();
         World bw = this.onMouseEntered(mouse);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "mouseEntered");
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -503,11 +726,18 @@ abstract public class World {
 
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordMouse(EventLog.MOUSE_EXITED, mouse.x, mouse.y, null);
+        long start = this.metrics.start();
         World bw = this.onMouseExited(mouse);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "mouseExited");
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -544,11 +774,18 @@ abstract public class World {
 
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordMouse(EventLog.MOUSE_PRESSED, mouse.x, mouse.y, button);
+        long start = this.metrics.start();
         World bw = this.onMousePressed(mouse, button);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "mousePressed");
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -602,11 +839,18 @@ abstract public class World {
 
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordMouse(EventLog.MOUSE_RELEASED, mouse.x, mouse.y, button);
+        long start = this.metrics.start();
         World bw = this.onMouseReleased(mouse, button);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "mouseReleased");
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -660,11 +904,18 @@ abstract public class World {
 
     try {
       if (this.worldExists) {
+        if (this.recorder != null)
+          this.recorder.recordMouse(EventLog.MOUSE_MOVED, mouse.x, mouse.y, button);
+        long start = this.metrics.start();
         World bw = this.onMouseMoved(mouse, button);
+        this.metrics.end(WorldMetrics.Phase.EVENT, start);
         return stopOrReset(bw, "mouseMoved");
       } else
         return this;
     } catch (RuntimeException re) {
+      if (this.isHeadless()) {
+        throw re;
+      }
       re.printStackTrace();
       this.drawWorld();
       // throw re;
@@ -726,16 +977,22 @@ abstract public class World {
       bw.keyAdapter = this.keyAdapter;
       bw.mouseAdapter = this.mouseAdapter;
       bw.windowClosing = this.windowClosing;
-      bw.keyAdapter.resetWorld(bw);
-      bw.mouseAdapter.currentWorld = bw;
+      if (bw.keyAdapter != null) {
+        // headless worlds have no listeners
+        bw.keyAdapter.resetWorld(bw);
+        bw.mouseAdapter.currentWorld = bw;
+      }
 
       // and the timer
       bw.mytime = this.mytime;
       bw.mytime.setSpeed();
       bw.mytime.currentWorld = bw;
+      bw.frames = this.frames;
+      bw.recorder = this.recorder;
+      bw.metrics = this.metrics;
 
-      // draw the new world
-      bw.drawWorld();
+      // draw the new world in the next frame
+      bw.frames.requestFrame();
       return bw;
     } else {
       this.drawWorld();
@@ -752,9 +1009,15 @@ abstract public class World {
    * @return <code>true</code>
    */
   synchronized boolean drawWorld() {
-    if (this.worldExists) {
-      this.theCanvas.clear();
-      this.theCanvas.drawScene(this.makeScene());
+    if (this.theCanvas == null) {
+      return true;
+    } else if (this.worldExists) {
+      long allocated = this.metrics.startAllocations();
+      long start = this.metrics.start();
+      WorldScene scene = this.makeScene(this.mytime.getAlpha());
+      this.metrics.end(WorldMetrics.Phase.MAKE_SCENE, start);
+      this.theCanvas.redrawScene(scene);
+      this.metrics.endAllocations(allocated);
       return true;
     } else {
       if (this.getLastScene("") != null) {
@@ -777,6 +1040,28 @@ abstract public class World {
    */
   abstract public WorldScene makeScene();
 
+  /**
+   * <p>
+   * User defined method to draw the <code>{@link World World}</code> part of
+   * the way between two ticks. Worlds that run on a fixed timestep can
+   * override this method to interpolate the positions of moving objects, so
+   * that they move smoothly even when the world is drawn more often than it
+   * ticks.
+   * </p>
+   * <p>
+   * By default, this ignores <code>alpha</code> and calls
+   * <code>makeScene()</code>.
+   * </p>
+   *
+   * @param alpha how far the clock has advanced from the last tick towards
+   *              the next one, between 0 and 1; always 0 unless the world
+   *              uses a fixed timestep
+   * @return the image that represents this world at this moment
+   */
+  public WorldScene makeScene(double alpha) {
+    return this.makeScene();
+  }
+
   /**
    * <p>
    * User defined method to draw the <code>{@link World World}</code>.
@@ -885,6 +1170,51 @@ final class MyTimer {
 
   void stopTimer() {
     this.running = false;
+    if (this.loop != null)
+      this.loop.stop();
+  }
+
+  /**
+   * the fixed-timestep loop that replaces the <code>Timer</code>, if the
+   * world asked for one
+   */
+  TickLoop loop;
+
+  /**
+   * Replace the <code>Timer</code> with a fixed-timestep loop that ticks at
+   * the given speed and requests frames from the given scheduler
+   */
+  void useFixedTimestep(double speed, int maxCatchUp, int framesPerSecond,
+                        final FrameScheduler frames) {
+    this.loop = new TickLoop(speed, maxCatchUp, framesPerSecond,
+            new Runnable() {
+              public void run() {
+                timerTasks.actionPerformed(null);
+              }
+            },
+            new Runnable() {
+              public void run() {
+                frames.requestFrame();
+              }
+            });
+  }
+
+  void start() {
+    if (this.loop != null)
+      this.loop.start();
+    else
+      this.timer.start();
+  }
+
+  void stop() {
+    this.timer.stop();
+    if (this.loop != null)
+      this.loop.stop();
+  }
+
+  /** how far the clock has advanced towards the next tick */
+  double getAlpha() {
+    return this.loop == null ? 0.0 : this.loop.getAlpha();
   }
 }
 
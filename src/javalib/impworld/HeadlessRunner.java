@@ -0,0 +1,270 @@
+package javalib.impworld;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import javalib.utils.EventLog;
+import javalib.utils.EventLogReader;
+import javalib.worldimages.Posn;
+
+/**
+ * <p>
+ * Runs a <code>{@link World World}</code> without a display, for tests and
+ * batch simulations.
+ * </p>
+ *
+ * <p>
+ * Unlike <code>bigBang</code>, the runner opens no window, does not pause, and
+ * has no timer: time only advances when <code>tick</code> or <code>run</code>
+ * is called, on a virtual clock that counts ticks of a fixed length. Key and
+ * mouse events can be injected with the same names and positions that the
+ * canvas would report, and the world is only drawn, off screen, when
+ * <code>render</code> is called. Everything runs on the calling thread, and
+ * an exception thrown by the world's <code>onTick</code> or event handlers
+ * is passed on to the caller, rather than halting the program.
+ * </p>
+ *
+ * <p>
+ * Example: <code>new HeadlessRunner(new WormWorld(), 200, 200, 0.5).run(1000000)</code>
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public class HeadlessRunner {
+
+  /** the world being run */
+  private final World world;
+
+  /** the size of the scenes the world draws */
+  private final int width, height;
+
+  /** the length of one tick on the virtual clock, in seconds */
+  private final double secondsPerTick;
+
+  /** how many ticks have been run */
+  private long ticks = 0;
+
+  /**
+   * Start the given world headlessly, as if by
+   * <code>bigBang(width, height, secondsPerTick)</code>.
+   *
+   * @param world the world to run; it must not have been started before
+   * @param width the width of the world's scenes
+   * @param height the height of the world's scenes
+   * @param secondsPerTick the length of one tick on the virtual clock
+   */
+  public HeadlessRunner(World world, int width, int height, double secondsPerTick) {
+    if (world.worldExists) {
+      throw new IllegalStateException("The world is already running");
+    }
+    this.world = world;
+    this.width = width;
+    this.height = height;
+    this.secondsPerTick = secondsPerTick;
+    this.world.startHeadless(width, height);
+  }
+
+  /** @return the world being run */
+  public World getWorld() {
+    return this.world;
+  }
+
+  /** @return how many ticks have been run */
+  public long getTickCount() {
+    return this.ticks;
+  }
+
+  /** @return the time on the virtual clock, in seconds */
+  public double getTime() {
+    return this.ticks * this.secondsPerTick;
+  }
+
+  /** @return has the world ended or been stopped? */
+  public boolean hasEnded() {
+    return !this.world.isRunning();
+  }
+
+  /**
+   * Advance the virtual clock by one tick, unless the world has ended.
+   *
+   * @return <code>true</code> if the world is still running afterward
+   */
+  public boolean tick() {
+    if (this.hasEnded()) {
+      return false;
+    }
+    this.world.processTick();
+    this.ticks++;
+    return !this.hasEnded();
+  }
+
+  /**
+   * Run ticks until the world ends, or until the given number of ticks have
+   * been run.
+   *
+   * @param maxTicks the most ticks to run
+   * @return how many ticks were run
+   */
+  public long run(long maxTicks) {
+    long start = this.ticks;
+    while (this.ticks - start < maxTicks && this.tick()) {
+      // keep ticking
+    }
+    return this.ticks - start;
+  }
+
+  /**
+   * Run ticks until the world ends, or until the virtual clock has advanced
+   * by the given number of seconds.
+   *
+   * @param seconds how long to run the world for, on the virtual clock
+   * @return how many ticks were run
+   */
+  public long runFor(double seconds) {
+    return this.run((long) Math.floor(seconds / this.secondsPerTick + 1e-9));
+  }
+
+  // ///////////////////////////////////////////////////////////////////////
+  // Synthetic events //
+  // ///////////////////////////////////////////////////////////////////////
+
+  /** Deliver a key press, named as the canvas would name it */
+  public void keyEvent(String key) {
+    this.world.processKeyEvent(key);
+  }
+
+  /** Deliver a key release, named as the canvas would name it */
+  public void keyReleased(String key) {
+    this.world.processKeyReleased(key);
+  }
+
+  /** Deliver a click of the given button ("LeftButton", ...) at the given position */
+  public void mouseClicked(Posn mouse, String button) {
+    this.world.processMouseClicked(mouse, button);
+  }
+
+  /** Deliver a press of the given button at the given position */
+  public void mousePressed(Posn mouse, String button) {
+    this.world.processMousePressed(mouse, button);
+  }
+
+  /** Deliver a release of the given button at the given position */
+  public void mouseReleased(Posn mouse, String button) {
+    this.world.processMouseReleased(mouse, button);
+  }
+
+  /** Deliver a move of the mouse to the given position */
+  public void mouseMoved(Posn mouse, String button) {
+    this.world.processMouseMoved(mouse, button);
+  }
+
+  /** Deliver the mouse entering the canvas at the given position */
+  public void mouseEntered(Posn mouse) {
+    this.world.processMouseEntered(mouse);
+  }
+
+  /** Deliver the mouse leaving the canvas at the given position */
+  public void mouseExited(Posn mouse) {
+    this.world.processMouseExited(mouse);
+  }
+
+  // ///////////////////////////////////////////////////////////////////////
+  // Replay //
+  // ///////////////////////////////////////////////////////////////////////
+
+  /**
+   * Feed a session recorded by <code>World.recordEvents</code> to the world:
+   * every tick in the log advances the virtual clock by one tick, and every
+   * event is delivered just as it was recorded. Stops early if the world ends.
+   *
+   * @param log the recorded session
+   * @param realTime whether to wait between records as long as they were
+   *                 apart when they were recorded, rather than replaying them
+   *                 as fast as possible
+   * @return how many records were replayed
+   * @throws IOException if the log cannot be read
+   */
+  public long replay(EventLogReader log, boolean realTime) throws IOException {
+    long replayed = 0;
+    long due = System.nanoTime();
+    while (!this.hasEnded() && log.next()) {
+      if (realTime) {
+        due += log.getNanos();
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+          try {
+            Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return replayed;
+          }
+        }
+      }
+      this.deliver(log);
+      replayed++;
+    }
+    return replayed;
+  }
+
+  /** Deliver the current record of the log to the world */
+  private void deliver(EventLogReader log) {
+    switch (log.getKind()) {
+      case EventLog.TICK:
+        this.tick();
+        break;
+      case EventLog.KEY_EVENT:
+        this.keyEvent(log.getKey());
+        break;
+      case EventLog.KEY_RELEASED:
+        this.keyReleased(log.getKey());
+        break;
+      case EventLog.MOUSE_CLICKED:
+        this.mouseClicked(new Posn(log.getX(), log.getY()), log.getButton());
+        break;
+      case EventLog.MOUSE_PRESSED:
+        this.mousePressed(new Posn(log.getX(), log.getY()), log.getButton());
+        break;
+      case EventLog.MOUSE_RELEASED:
+        this.mouseReleased(new Posn(log.getX(), log.getY()), log.getButton());
+        break;
+      case EventLog.MOUSE_MOVED:
+        this.mouseMoved(new Posn(log.getX(), log.getY()), log.getButton());
+        break;
+      case EventLog.MOUSE_ENTERED:
+        this.mouseEntered(new Posn(log.getX(), log.getY()));
+        break;
+      case EventLog.MOUSE_EXITED:
+        this.mouseExited(new Posn(log.getX(), log.getY()));
+        break;
+      default:
+        break;
+    }
+  }
+
+  // ///////////////////////////////////////////////////////////////////////
+  // Offscreen rendering //
+  // ///////////////////////////////////////////////////////////////////////
+
+  /**
+   * @return the scene a canvas would show for the world right now: its
+   *         <code>makeScene()</code> while it runs, and its last scene (which
+   *         may be <code>null</code>) once it has ended
+   */
+  public WorldScene getScene() {
+    return this.world.currentScene();
+  }
+
+  /**
+   * Draw the world's current scene off screen, on a white background.
+   *
+   * @return a new image of the world's current scene, or a blank image of
+   *         the world's size if there is no scene to show
+   */
+  public BufferedImage render() {
+    WorldScene scene = this.getScene();
+    if (scene != null) {
+      return scene.renderImage();
+    }
+    return new WorldScene(this.width, this.height).renderImage();
+  }
+}
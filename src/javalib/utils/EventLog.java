@@ -0,0 +1,70 @@
+package javalib.utils;
+
+/**
+ * <p>
+ * The binary format shared by <code>{@link EventRecorder EventRecorder}</code>
+ * and <code>{@link EventLogReader EventLogReader}</code>.
+ * </p>
+ *
+ * <p>
+ * A log starts with the four bytes <code>JWLG</code> and a version byte,
+ * followed by one record per tick or event, in the order the world handled
+ * them. Each record starts with a kind byte and the number of nanoseconds
+ * since the previous record (or since recording started), as an unsigned
+ * varint. Ticks carry nothing else, so a tick usually takes two or three
+ * bytes; the position of an event relative to the ticks around it is given by
+ * its place in the log. Key events are followed by the key name, as a varint
+ * length and UTF-8 bytes; mouse events by the x and y coordinates, as zigzag
+ * varints, and the button code.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class EventLog {
+  private EventLog() {
+  }
+
+  /** the bytes every log starts with */
+  static final byte[] MAGIC = { 'J', 'W', 'L', 'G' };
+
+  /** the version of the format written by this library */
+  static final int VERSION = 1;
+
+  public static final int TICK = 0;
+  public static final int KEY_EVENT = 1;
+  public static final int KEY_RELEASED = 2;
+  public static final int MOUSE_CLICKED = 3;
+  public static final int MOUSE_PRESSED = 4;
+  public static final int MOUSE_RELEASED = 5;
+  public static final int MOUSE_MOVED = 6;
+  public static final int MOUSE_ENTERED = 7;
+  public static final int MOUSE_EXITED = 8;
+
+  /** the button names reported by the worlds' mouse adapters, by code */
+  private static final String[] BUTTONS = { "UnknownButton", "LeftButton",
+      "MiddleButton", "RightButton" };
+
+  /** Does a record of the given kind carry a button name? */
+  static boolean hasButton(int kind) {
+    return kind == MOUSE_CLICKED || kind == MOUSE_PRESSED
+        || kind == MOUSE_RELEASED || kind == MOUSE_MOVED;
+  }
+
+  /** Does a record of the given kind carry a mouse position? */
+  static boolean hasPosition(int kind) {
+    return kind >= MOUSE_CLICKED && kind <= MOUSE_EXITED;
+  }
+
+  static int buttonCode(String button) {
+    for (int i = 1; i < BUTTONS.length; i++) {
+      if (BUTTONS[i].equals(button)) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  static String buttonName(int code) {
+    return code >= 0 && code < BUTTONS.length ? BUTTONS[code] : BUTTONS[0];
+  }
+}
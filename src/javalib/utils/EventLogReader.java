@@ -0,0 +1,175 @@
+package javalib.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * Reads back a log written by <code>{@link EventRecorder EventRecorder}</code>,
+ * one record at a time.
+ * </p>
+ *
+ * <p>
+ * Call <code>next</code> to advance to the next record, then inspect it with
+ * the getters. A world's <code>HeadlessRunner</code> can replay a whole log
+ * with its <code>replay</code> method.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class EventLogReader implements Closeable {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+  private boolean eof = false;
+
+  private int kind = -1;
+  private long nanos;
+  private String key;
+  private int x, y;
+  private String button;
+
+  /**
+   * Open the given log for reading.
+   *
+   * @param file the log to read
+   * @throws IOException if the file cannot be read, or is not an event log
+   */
+  public EventLogReader(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.buffer.flip();
+    for (int i = 0; i < EventLog.MAGIC.length; i++) {
+      if (!this.ensure(1) || this.buffer.get() != EventLog.MAGIC[i]) {
+        this.channel.close();
+        throw new IOException(file + " is not an event log");
+      }
+    }
+    if (!this.ensure(1) || this.buffer.get() != EventLog.VERSION) {
+      this.channel.close();
+      throw new IOException(file + " was written by an unsupported version");
+    }
+  }
+
+  /**
+   * Advance to the next record.
+   *
+   * @return false if there are no more records
+   * @throws IOException if the log cannot be read, or ends in the middle of a
+   *         record
+   */
+  public boolean next() throws IOException {
+    if (!this.ensure(1)) {
+      this.kind = -1;
+      return false;
+    }
+    this.kind = this.buffer.get();
+    this.nanos = this.getVarint();
+    this.key = null;
+    this.button = null;
+    if (this.kind == EventLog.KEY_EVENT || this.kind == EventLog.KEY_RELEASED) {
+      int length = (int) this.getVarint();
+      byte[] bytes = new byte[length];
+      int read = 0;
+      while (read < length) {
+        this.need(1);
+        int n = Math.min(length - read, this.buffer.remaining());
+        this.buffer.get(bytes, read, n);
+        read += n;
+      }
+      this.key = new String(bytes, UTF8);
+    } else if (EventLog.hasPosition(this.kind)) {
+      this.x = unzigzag(this.getVarint());
+      this.y = unzigzag(this.getVarint());
+      if (EventLog.hasButton(this.kind)) {
+        this.need(1);
+        this.button = EventLog.buttonName(this.buffer.get());
+      }
+    } else if (this.kind != EventLog.TICK) {
+      throw new IOException("Unknown record kind " + this.kind);
+    }
+    return true;
+  }
+
+  /** @return the kind of the current record: one of the constants in <code>EventLog</code> */
+  public int getKind() {
+    return this.kind;
+  }
+
+  /** @return how many nanoseconds passed between the previous record and this one */
+  public long getNanos() {
+    return this.nanos;
+  }
+
+  /** @return the key name of the current key event */
+  public String getKey() {
+    return this.key;
+  }
+
+  /** @return the x coordinate of the current mouse event */
+  public int getX() {
+    return this.x;
+  }
+
+  /** @return the y coordinate of the current mouse event */
+  public int getY() {
+    return this.y;
+  }
+
+  /** @return the button name of the current mouse event, if it has one */
+  public String getButton() {
+    return this.button;
+  }
+
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Make sure at least <code>n</code> bytes are buffered, reading more if
+   * needed
+   *
+   * @return false if the log ends first
+   */
+  private boolean ensure(int n) throws IOException {
+    while (this.buffer.remaining() < n && !this.eof) {
+      this.buffer.compact();
+      if (this.channel.read(this.buffer) < 0) {
+        this.eof = true;
+      }
+      this.buffer.flip();
+    }
+    return this.buffer.remaining() >= n;
+  }
+
+  private void need(int n) throws IOException {
+    if (!this.ensure(n)) {
+      throw new EOFException("The event log ends in the middle of a record");
+    }
+  }
+
+  private long getVarint() throws IOException {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      this.need(1);
+      byte b = this.buffer.get();
+      v |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return v;
+      }
+    }
+    throw new IOException("Malformed varint in event log");
+  }
+
+  private static int unzigzag(long v) {
+    int n = (int) v;
+    return (n >>> 1) ^ -(n & 1);
+  }
+}
@@ -0,0 +1,193 @@
+package javalib.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * Records the ticks and events handled by a world into a compact binary log,
+ * in the format described by <code>{@link EventLog EventLog}</code>, so that
+ * the session can later be replayed by a world's <code>HeadlessRunner</code>.
+ * </p>
+ *
+ * <p>
+ * Records are collected in a buffer and written to the file through a
+ * <code>FileChannel</code> whenever the buffer fills up, and when the
+ * recorder is flushed or closed. Recording never throws from inside an event
+ * handler: if writing fails, the recorder stops recording, and
+ * <code>getError</code> reports the failure.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class EventRecorder implements Closeable {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /** the most bytes a record takes, not counting its key name */
+  private static final int MAX_RECORD = 1 + 10 + 5 + 5 + 1 + 5;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+  /** when the previous record was made */
+  private long lastNanos = System.nanoTime();
+
+  private long records = 0;
+  private IOException error = null;
+  private boolean closed = false;
+
+  /**
+   * Create a recorder that writes to the given file, replacing its contents.
+   *
+   * @param file the file to write the log to
+   * @throws IOException if the file cannot be opened
+   */
+  public EventRecorder(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    this.buffer.put(EventLog.MAGIC);
+    this.buffer.put((byte) EventLog.VERSION);
+  }
+
+  /** Record a tick */
+  public synchronized void recordTick() {
+    if (this.begin(EventLog.TICK, 0)) {
+      this.end();
+    }
+  }
+
+  /**
+   * Record a key event
+   *
+   * @param kind <code>EventLog.KEY_EVENT</code> or <code>EventLog.KEY_RELEASED</code>
+   * @param key the name of the key
+   */
+  public synchronized void recordKey(int kind, String key) {
+    byte[] bytes = key.getBytes(UTF8);
+    if (this.begin(kind, 5 + bytes.length)) {
+      this.putVarint(bytes.length);
+      this.buffer.put(bytes);
+      this.end();
+    }
+  }
+
+  /**
+   * Record a mouse event
+   *
+   * @param kind one of the <code>EventLog.MOUSE_...</code> kinds
+   * @param x the x coordinate of the mouse
+   * @param y the y coordinate of the mouse
+   * @param button the name of the button, for the kinds that have one
+   */
+  public synchronized void recordMouse(int kind, int x, int y, String button) {
+    if (this.begin(kind, 0)) {
+      this.putVarint(zigzag(x));
+      this.putVarint(zigzag(y));
+      if (EventLog.hasButton(kind)) {
+        this.buffer.put((byte) EventLog.buttonCode(button));
+      }
+      this.end();
+    }
+  }
+
+  /** @return how many records have been made */
+  public synchronized long getRecordCount() {
+    return this.records;
+  }
+
+  /** @return the error that stopped this recorder, or <code>null</code> */
+  public synchronized IOException getError() {
+    return this.error;
+  }
+
+  /**
+   * Write all buffered records to the file.
+   *
+   * @throws IOException if this recorder has failed
+   */
+  public synchronized void flush() throws IOException {
+    if (this.error == null && !this.closed) {
+      this.drain();
+    }
+    if (this.error != null) {
+      throw this.error;
+    }
+  }
+
+  /**
+   * Write all buffered records and close the file. Further records are
+   * ignored.
+   */
+  public synchronized void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    try {
+      this.flush();
+    } finally {
+      this.closed = true;
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Start a record of the given kind, making room for it in the buffer
+   *
+   * @return false if nothing can be recorded any more
+   */
+  private boolean begin(int kind, int extra) {
+    if (this.closed || this.error != null) {
+      return false;
+    }
+    if (this.buffer.remaining() < MAX_RECORD + extra) {
+      this.drain();
+      if (this.error != null) {
+        return false;
+      }
+    }
+    if (this.buffer.remaining() < MAX_RECORD + extra) {
+      this.error = new IOException("Event too large to record");
+      return false;
+    }
+    long now = System.nanoTime();
+    this.buffer.put((byte) kind);
+    this.putVarint(Math.max(0, now - this.lastNanos));
+    this.lastNanos = now;
+    return true;
+  }
+
+  private void end() {
+    this.records++;
+  }
+
+  private void drain() {
+    this.buffer.flip();
+    try {
+      while (this.buffer.hasRemaining()) {
+        this.channel.write(this.buffer);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      this.error = e;
+    }
+    this.buffer.clear();
+  }
+
+  private void putVarint(long v) {
+    while ((v & ~0x7FL) != 0) {
+      this.buffer.put((byte) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    this.buffer.put((byte) v);
+  }
+
+  private static long zigzag(int v) {
+    return ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL;
+  }
+}
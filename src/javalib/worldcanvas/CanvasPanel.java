@@ -10,6 +10,7 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Insets;
+import java.awt.Rectangle;
 import java.awt.Window;
 import java.awt.image.BufferedImage;
 import java.util.Hashtable;
@@ -40,6 +41,16 @@ public class CanvasPanel extends JPanel {
     /** The internal painter panel. */
     protected transient CanvasPanel.Painter painter = null;
 
+    /** Should <code>redrawScene</code> repaint only the regions that changed? */
+    private boolean incrementalRepaint = false;
+
+    /**
+     * The placements of the scene currently shown in the buffer, if it was drawn
+     * by <code>redrawScene</code> in incremental mode and nothing has been drawn
+     * over it since; <code>null</code> otherwise.
+     */
+    private transient SceneSnapshot shownScene = null;
+
     /**
      * <p>
      * Constructs a BufferedPanel containing a buffered image with the given
@@ -211,6 +222,8 @@ public class CanvasPanel extends JPanel {
      * </p>
      */
     public final void clearPanel() {
+        this.awaitRenderer();
+        this.shownScene = null;
         Graphics2D g2 = getBufferGraphics();
         g2.setPaint(Color.white);
         g2.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
@@ -230,6 +243,8 @@ public class CanvasPanel extends JPanel {
         // read the given image file
         FromFileImage fileImage = new FromFileImage(fileName);
 
+        this.awaitRenderer();
+        this.shownScene = null;
         Graphics2D g = getBufferGraphics();
         fileImage.draw(g);
 
@@ -239,10 +254,372 @@ public class CanvasPanel extends JPanel {
 
 
     public void drawScene(WorldSceneBase scene) {
+        this.awaitRenderer();
+        this.shownScene = null;
+        WorldMetrics m = this.metrics;
+        long start = m == null ? 0 : m.start();
         scene.draw(getBufferGraphics());
+        if (m != null) {
+            m.end(WorldMetrics.Phase.DRAW, start);
+        }
+        synchronized (this) {
+            this.captureFrame();
+        }
         repaint();
     }
 
+    /**
+     * <p>
+     * Enables or disables incremental repainting in <code>redrawScene</code>.
+     * </p>
+     * 
+     * <p>
+     * In incremental mode, each scene is compared to the previous one, and only
+     * the region covered by placements that were added, removed, moved or
+     * changed is cleared, redrawn and repainted. This assumes that images are
+     * not mutated after they have been placed in a scene.
+     * </p>
+     * 
+     * @param incremental
+     *            whether to repaint only the changed regions of each scene
+     */
+    public synchronized void setIncrementalRepaint(boolean incremental) {
+        this.incrementalRepaint = incremental;
+        this.shownScene = null;
+        this.backScene = null;
+    }
+
+    /** Is this panel repainting only the changed regions of each scene? */
+    public synchronized boolean isIncrementalRepaint() {
+        return this.incrementalRepaint;
+    }
+
+    /**
+     * <p>
+     * Replaces the contents of the buffer with the given scene, and repaints.
+     * </p>
+     * 
+     * <p>
+     * Unless incremental repainting is enabled, this is the same as
+     * <code>clearPanel()</code> followed by <code>drawScene(scene)</code>.
+     * Otherwise, only the region that differs from the previously redrawn
+     * scene is cleared, redrawn and repainted.
+     * </p>
+     * 
+     * <p>
+     * If background rendering is enabled, this method only hands the scene to
+     * the render thread and returns immediately; see
+     * <code>setBackgroundRendering</code>.
+     * </p>
+     * 
+     * @param scene
+     *            the scene to show
+     */
+    public void redrawScene(WorldSceneBase scene) {
+        synchronized (this.renderLock) {
+            if (this.renderThread != null) {
+                this.pendingScene = scene;
+                this.renderLock.notifyAll();
+                return;
+            }
+        }
+        Rectangle damage;
+        synchronized (this) {
+            SceneSnapshot frame = this.incrementalRepaint ? new SceneSnapshot(scene) : null;
+            damage = this.paintScene(this.buffer, this.shownScene, frame, scene);
+            this.shownScene = frame;
+            this.captureFrame();
+        }
+        this.repaintRegion(damage);
+    }
+
+    /**
+     * Draws the given scene into the target buffer.
+     * 
+     * @param target
+     *            the buffer to draw into
+     * @param shown
+     *            the snapshot of the scene the target currently shows, or
+     *            <code>null</code> if its contents are unknown
+     * @param frame
+     *            the snapshot of the new scene, or <code>null</code> if
+     *            incremental repainting is off
+     * @param scene
+     *            the scene to draw
+     * @return the region of the target that changed
+     */
+    private Rectangle paintScene(BufferedImage target, SceneSnapshot shown,
+            SceneSnapshot frame, WorldSceneBase scene) {
+        WorldMetrics m = this.metrics;
+        long start = m == null ? 0 : m.start();
+        Rectangle damage = this.paintSceneUntimed(target, shown, frame, scene);
+        if (m != null) {
+            m.end(WorldMetrics.Phase.DRAW, start);
+        }
+        return damage;
+    }
+
+    private Rectangle paintSceneUntimed(BufferedImage target, SceneSnapshot shown,
+            SceneSnapshot frame, WorldSceneBase scene) {
+        Rectangle canvas = new Rectangle(0, 0, target.getWidth(), target.getHeight());
+        Graphics2D g = target.createGraphics();
+        if (frame == null) {
+            g.setPaint(Color.white);
+            g.fill(canvas);
+            scene.draw(g);
+            g.dispose();
+            return canvas;
+        }
+        Rectangle damage;
+        if (shown == null) {
+            damage = canvas;
+        } else {
+            damage = frame.damageSince(shown).intersection(canvas);
+        }
+        if (!damage.isEmpty()) {
+            g.clip(damage);
+            g.setPaint(Color.white);
+            g.fill(damage);
+            frame.draw(g, damage);
+        }
+        g.dispose();
+        return damage;
+    }
+
+    /** Asks Swing to repaint the given region of the buffer */
+    private void repaintRegion(Rectangle damage) {
+        if (damage.isEmpty()) {
+            return;
+        }
+        if (damage.x == 0 && damage.y == 0 && damage.width == this.getBufferWidth()
+                && damage.height == this.getBufferHeight()) {
+            repaint();
+        } else {
+            Insets in = painter.getInsets();
+            painter.repaint(in.left + damage.x, in.top + damage.y,
+                    damage.width, damage.height);
+        }
+    }
+
+    /**
+     * <p>
+     * Enables or disables background rendering.
+     * </p>
+     * 
+     * <p>
+     * When enabled, <code>redrawScene</code> hands each scene to a dedicated
+     * render thread, which rasterizes it into a back buffer and then swaps the
+     * back and front buffers. Painting the panel only ever copies a finished
+     * frame from the front buffer, so it never waits for a scene to be drawn.
+     * If scenes arrive faster than they can be drawn, only the most recent one
+     * is drawn.
+     * </p>
+     * 
+     * <p>
+     * Scenes, and the images placed in them, must not be modified after they
+     * have been handed to <code>redrawScene</code>. All other drawing methods
+     * of this panel wait for the render thread to finish its current frame, and
+     * discard any frame it has not started yet, before drawing into the front
+     * buffer.
+     * </p>
+     * 
+     * @param background
+     *            whether to rasterize scenes on a background thread
+     */
+    public void setBackgroundRendering(boolean background) {
+        synchronized (this.renderLock) {
+            if (background && this.renderThread == null) {
+                this.renderThread = new Thread(this.renderLoop, "javalib-render");
+                this.renderThread.setDaemon(true);
+                this.renderThread.start();
+            } else if (!background && this.renderThread != null) {
+                this.awaitRenderer();
+                this.renderThread = null;
+                this.renderLock.notifyAll();
+            }
+        }
+    }
+
+    /** Is this panel rasterizing scenes on a background thread? */
+    public boolean isBackgroundRendering() {
+        synchronized (this.renderLock) {
+            return this.renderThread != null;
+        }
+    }
+
+    /**
+     * Discards any scene the render thread has not started drawing yet, and
+     * waits for it to finish the scene it is drawing, if any.
+     */
+    private void awaitRenderer() {
+        synchronized (this.renderLock) {
+            this.pendingScene = null;
+            // The render thread needs this panel's lock to swap buffers, so
+            // waiting for it here would deadlock; its frame is discarded instead
+            // because the back buffer is replaced under this lock
+            if (Thread.holdsLock(this)) {
+                this.backBuffer = null;
+                this.backScene = null;
+                return;
+            }
+            while (this.rendering) {
+                try {
+                    this.renderLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Times drawing and blitting, if set */
+    private transient volatile WorldMetrics metrics = null;
+
+    /**
+     * Record how long this panel takes to draw scenes and to copy its buffer
+     * to the screen into the given metrics, or stop if it is <code>null</code>.
+     * 
+     * @param metrics
+     *            where to record the timings
+     */
+    public void setMetrics(WorldMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Copies every presented frame for encoding, if set */
+    private transient FrameCapture capture = null;
+
+    /**
+     * Start copying every frame this panel presents to the given capture, or
+     * stop if it is <code>null</code>. Closing the capture is up to the
+     * caller.
+     * 
+     * @param capture
+     *            where to send the presented frames
+     */
+    public synchronized void setCapture(FrameCapture capture) {
+        this.capture = capture;
+    }
+
+    /** Hands the front buffer to the capture, if any; call with this panel locked */
+    private void captureFrame() {
+        if (this.capture != null) {
+            this.capture.offer(this.buffer);
+        }
+    }
+
+    /** Guards the hand-off of scenes between callers and the render thread */
+    private final transient Object renderLock = new Object();
+
+    /** The render thread, if background rendering is enabled */
+    private transient Thread renderThread = null;
+
+    /** The most recent scene handed to the render thread and not yet started */
+    private transient WorldSceneBase pendingScene = null;
+
+    /** Is the render thread currently drawing a scene? */
+    private transient boolean rendering = false;
+
+    /** The buffer the render thread draws into, before swapping it to the front */
+    private transient BufferedImage backBuffer = null;
+
+    /** The snapshot of the scene shown in the back buffer, if known */
+    private transient SceneSnapshot backScene = null;
+
+    private final transient Runnable renderLoop = new Runnable() {
+        public void run() {
+            Thread self = Thread.currentThread();
+            while (true) {
+                WorldSceneBase scene;
+                synchronized (renderLock) {
+                    while (pendingScene == null && renderThread == self) {
+                        try {
+                            renderLock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (renderThread != self) {
+                        return;
+                    }
+                    scene = pendingScene;
+                    pendingScene = null;
+                    rendering = true;
+                }
+                try {
+                    renderInBackground(scene);
+                } catch (RuntimeException re) {
+                    re.printStackTrace();
+                } finally {
+                    synchronized (renderLock) {
+                        rendering = false;
+                        renderLock.notifyAll();
+                    }
+                }
+            }
+        }
+    };
+
+    /**
+     * Draws the given scene into the back buffer, then swaps it to the front.
+     * Only called from the render thread.
+     */
+    private void renderInBackground(WorldSceneBase scene) {
+        BufferedImage back;
+        SceneSnapshot shown;
+        boolean incremental;
+        synchronized (this) {
+            if (this.backBuffer == null || this.backBuffer.getWidth() != this.buffer.getWidth()
+                    || this.backBuffer.getHeight() != this.buffer.getHeight()) {
+                this.backBuffer = new BufferedImage(this.buffer.getWidth(), this.buffer.getHeight(),
+                        BufferedImage.TYPE_INT_RGB);
+                this.backScene = null;
+            }
+            back = this.backBuffer;
+            shown = this.backScene;
+            incremental = this.incrementalRepaint;
+        }
+        SceneSnapshot frame = incremental ? new SceneSnapshot(scene) : null;
+        // The back buffer still shows the frame before last, so it must also
+        // catch up with whatever changed in the frame currently at the front
+        Rectangle damage = this.paintScene(back, shown, frame, scene);
+        Rectangle onScreen;
+        synchronized (this) {
+            if (back != this.backBuffer) {
+                return; // the buffers were resized while we were drawing
+            }
+            // The screen shows the front buffer's frame, not the back buffer's:
+            // it must be repainted wherever the new frame differs from that one
+            onScreen = this.screenDamage(damage, frame, back);
+            this.backBuffer = this.buffer;
+            this.backScene = this.shownScene;
+            this.buffer = back;
+            this.shownScene = frame;
+            this.captureFrame();
+        }
+        this.repaintRegion(onScreen);
+    }
+
+    /**
+     * The region of the screen to repaint once the given frame, drawn into the
+     * given back buffer where it differed by <code>damage</code>, replaces the
+     * front buffer; call with this panel locked
+     */
+    private Rectangle screenDamage(Rectangle damage, SceneSnapshot frame, BufferedImage back) {
+        Rectangle canvas = new Rectangle(0, 0, back.getWidth(), back.getHeight());
+        if (frame == null || this.shownScene == null) {
+            return canvas;
+        }
+        Rectangle front = frame.damageSince(this.shownScene).intersection(canvas);
+        if (front.isEmpty()) {
+            return damage;
+        } else if (damage.isEmpty()) {
+            return front;
+        }
+        return damage.union(front);
+    }
+
     /**
      * Draw the given image into this panel at the specified coordinates
      * 
@@ -250,6 +627,8 @@ public class CanvasPanel extends JPanel {
      *            the image to draw
      */
     public void drawImage(WorldImage image) {
+        this.awaitRenderer();
+        this.shownScene = null;
         Graphics2D g = getBufferGraphics();
         image.draw(g);
         repaint();
@@ -444,7 +823,12 @@ public class CanvasPanel extends JPanel {
                 int x = in.left;
                 int y = in.top;
 
+                WorldMetrics m = panel.metrics;
+                long start = m == null ? 0 : m.start();
                 g.drawImage(panel.getBuffer(), x, y, this);
+                if (m != null) {
+                    m.end(WorldMetrics.Phase.BLIT, start);
+                }
 
                 g.translate(x, y);
                 // panel.paintablesequence.paint(g);
@@ -0,0 +1,381 @@
+package javalib.worldcanvas;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * <p>
+ * Records the frames shown by a <code>{@link WorldCanvas WorldCanvas}</code>
+ * to disk, as a sequence of PNG files or as an animated GIF, or hands them to
+ * any other <code>Sink</code>.
+ * </p>
+ *
+ * <p>
+ * Once attached with <code>WorldCanvas.setCapture</code>, every frame the
+ * canvas presents is copied into one of a fixed pool of pixel buffers, and
+ * encoded by background worker threads. The thread that presented the frame
+ * only pays for the copy: if every buffer is still waiting to be encoded, the
+ * frame is dropped (and counted) rather than making the world wait for the
+ * encoders to catch up.
+ * </p>
+ *
+ * <p>
+ * PNG frames are independent of each other, so they are encoded by several
+ * workers at once. GIF frames are appended to a single stream by a single
+ * worker, in order.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class FrameCapture implements Closeable {
+
+    /** Where captured frames go, to be encoded */
+    public interface Sink {
+        /**
+         * Encode one frame; a sink with one worker sees the frames in order.
+         * The frame's pixels are reused for a later frame once this method
+         * returns.
+         *
+         * @param frame
+         *            the captured frame
+         * @param index
+         *            how many frames were captured before this one
+         * @throws IOException
+         *             if the frame cannot be encoded; this stops the capture
+         */
+        void write(BufferedImage frame, long index) throws IOException;
+
+        /**
+         * Finish the output, once every captured frame has been written.
+         *
+         * @throws IOException
+         *             if the output cannot be finished
+         */
+        void finish() throws IOException;
+    }
+
+    /** One captured frame, waiting to be encoded */
+    private final class Frame implements Runnable {
+        final int[] pixels;
+        final int width, height;
+        final long index;
+
+        Frame(int[] pixels, int width, int height, long index) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.index = index;
+        }
+
+        public void run() {
+            try {
+                sink.write(wrap(this.pixels, this.width, this.height), this.index);
+                synchronized (FrameCapture.this) {
+                    encoded++;
+                }
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                free.offer(this.pixels);
+            }
+        }
+    }
+
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+
+    private final Sink sink;
+    private final ExecutorService workers;
+
+    /** Pixel buffers that are not holding a frame; empty means back-pressure */
+    private final BlockingQueue<int[]> free;
+
+    private long captured = 0;
+    private long dropped = 0;
+    private long encoded = 0;
+    private IOException error = null;
+    private boolean closed = false;
+
+    private FrameCapture(Sink sink, int workers, int buffers, final String name) {
+        this.sink = sink;
+        this.free = new ArrayBlockingQueue<int[]>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            this.free.offer(new int[0]);
+        }
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, name);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Capture frames as PNG files named <code>prefix00000.png</code>,
+     * <code>prefix00001.png</code>, ... in the given directory.
+     *
+     * @param dir
+     *            the directory to write the files to; it is created if needed
+     * @param prefix
+     *            the start of every file name
+     * @param workers
+     *            how many frames to encode at once
+     * @param buffers
+     *            how many frames may wait to be encoded before frames are
+     *            dropped
+     * @return the new capture
+     * @throws IOException
+     *             if the directory cannot be created
+     */
+    public static FrameCapture pngSequence(final Path dir, final String prefix, int workers,
+            int buffers) throws IOException {
+        Files.createDirectories(dir);
+        return new FrameCapture(new Sink() {
+            public void write(BufferedImage frame, long index) throws IOException {
+                File file = dir.resolve(String.format("%s%05d.png", prefix, index)).toFile();
+                if (!ImageIO.write(frame, "png", file)) {
+                    throw new IOException("No PNG encoder available");
+                }
+            }
+
+            public void finish() {
+            }
+        }, Math.max(1, workers), Math.max(1, buffers), "javalib-capture-png");
+    }
+
+    /**
+     * Capture frames as a looping animated GIF, written to the file as frames
+     * arrive.
+     *
+     * @param file
+     *            the file to write the animation to
+     * @param delayMillis
+     *            how long each frame is shown when the animation is played
+     * @param buffers
+     *            how many frames may wait to be encoded before frames are
+     *            dropped
+     * @return the new capture
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    public static FrameCapture animatedGif(Path file, int delayMillis, int buffers)
+            throws IOException {
+        return new FrameCapture(new GifSink(file, delayMillis), 1, Math.max(1, buffers),
+                "javalib-capture-gif");
+    }
+
+    /**
+     * Capture frames to the given sink, e.g. a video encoder.
+     *
+     * @param sink
+     *            encodes the captured frames
+     * @param workers
+     *            how many frames to encode at once; with more than one worker,
+     *            the sink must accept frames out of order, from several
+     *            threads
+     * @param buffers
+     *            how many frames may wait to be encoded before frames are
+     *            dropped
+     * @return the new capture
+     */
+    public static FrameCapture toSink(Sink sink, int workers, int buffers) {
+        return new FrameCapture(sink, Math.max(1, workers), Math.max(1, buffers),
+                "javalib-capture");
+    }
+
+    /**
+     * Copy the given image into a free buffer and queue it to be encoded, or
+     * drop it if no buffer is free. The caller must keep the image from
+     * changing for the duration of the call.
+     *
+     * @param image
+     *            the frame that was just presented
+     */
+    void offer(BufferedImage image) {
+        int[] pixels;
+        long index;
+        synchronized (this) {
+            if (this.closed || this.error != null) {
+                return;
+            }
+            pixels = this.free.poll();
+            if (pixels == null) {
+                this.dropped++;
+                return;
+            }
+            index = this.captured++;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if (pixels.length != w * h) {
+            pixels = new int[w * h];
+        }
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            image.getRaster().getDataElements(0, 0, w, h, pixels);
+        } else {
+            image.getRGB(0, 0, w, h, pixels, 0, w);
+        }
+        try {
+            this.workers.execute(new Frame(pixels, w, h, index));
+        } catch (RejectedExecutionException e) {
+            // closed while we were copying
+            this.free.offer(pixels);
+        }
+    }
+
+    /** @return how many frames have been copied for encoding */
+    public synchronized long getCapturedFrameCount() {
+        return this.captured;
+    }
+
+    /** @return how many frames were dropped because every buffer was busy */
+    public synchronized long getDroppedFrameCount() {
+        return this.dropped;
+    }
+
+    /** @return how many frames have been encoded */
+    public synchronized long getEncodedFrameCount() {
+        return this.encoded;
+    }
+
+    /** @return the error that stopped this capture, or <code>null</code> */
+    public synchronized IOException getError() {
+        return this.error;
+    }
+
+    /**
+     * Stop capturing, wait for the frames already captured to be encoded, and
+     * finish the output.
+     *
+     * @throws IOException
+     *             if any frame could not be encoded or the output could not be
+     *             finished
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        this.workers.shutdown();
+        try {
+            while (!this.workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting for the encoders
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            this.sink.finish();
+        } catch (IOException e) {
+            this.fail(e);
+        }
+        IOException e = this.getError();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        if (this.error == null) {
+            this.error = e;
+        }
+    }
+
+    /** View the given pixels as an image, without copying them */
+    private static BufferedImage wrap(int[] pixels, int width, int height) {
+        WritableRaster raster = Raster.createPackedRaster(
+                new DataBufferInt(pixels, width * height), width, height, width,
+                RGB.getMasks(), null);
+        return new BufferedImage(RGB, raster, false, null);
+    }
+
+    /** Appends frames to a looping animated GIF */
+    private static final class GifSink implements Sink {
+        private final ImageOutputStream out;
+        private final ImageWriter writer;
+        private final String delay;
+        private boolean started = false;
+
+        GifSink(Path file, int delayMillis) throws IOException {
+            this.writer = ImageIO.getImageWritersByFormatName("gif").next();
+            Files.deleteIfExists(file);
+            this.out = ImageIO.createImageOutputStream(file.toFile());
+            if (this.out == null) {
+                throw new IOException("Cannot write to " + file);
+            }
+            this.writer.setOutput(this.out);
+            this.delay = Integer.toString(Math.max(0, delayMillis / 10));
+        }
+
+        public void write(BufferedImage frame, long index) throws IOException {
+            if (!this.started) {
+                this.writer.prepareWriteSequence(null);
+                this.started = true;
+            }
+            ImageWriteParam param = this.writer.getDefaultWriteParam();
+            IIOMetadata meta = this.writer.getDefaultImageMetadata(
+                    ImageTypeSpecifier.createFromRenderedImage(frame), param);
+            String format = meta.getNativeMetadataFormatName();
+            IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(format);
+
+            IIOMetadataNode gce = new IIOMetadataNode("GraphicControlExtension");
+            gce.setAttribute("disposalMethod", "none");
+            gce.setAttribute("userInputFlag", "FALSE");
+            gce.setAttribute("transparentColorFlag", "FALSE");
+            gce.setAttribute("delayTime", this.delay);
+            gce.setAttribute("transparentColorIndex", "0");
+            root.appendChild(gce);
+
+            if (index == 0) {
+                IIOMetadataNode apps = new IIOMetadataNode("ApplicationExtensions");
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                loop.setUserObject(new byte[] { 1, 0, 0 });
+                apps.appendChild(loop);
+                root.appendChild(apps);
+            }
+            meta.setFromTree(format, root);
+            this.writer.writeToSequence(new IIOImage(frame, null, meta), param);
+        }
+
+        public void finish() throws IOException {
+            try {
+                if (this.started) {
+                    this.writer.endWriteSequence();
+                }
+            } finally {
+                this.writer.dispose();
+                this.out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package javalib.worldcanvas;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+/**
+ * <p>
+ * Coalesces requests to redraw a world into at most one redraw per frame.
+ * </p>
+ *
+ * <p>
+ * Every event handled by a world changes its state, but there is no point in
+ * drawing more scenes than the screen can show: a fast sweep of the mouse
+ * delivers hundreds of mouse-moved events per second. Instead of drawing after
+ * each event, worlds call <code>requestFrame</code>, which only marks the
+ * world as needing a redraw. If no frame has been drawn for a full frame
+ * interval, the world is drawn right away; otherwise a single redraw is
+ * scheduled on the event dispatch thread for the end of the current interval,
+ * and every further request until then is absorbed by that redraw.
+ * </p>
+ *
+ * <p>
+ * A cap of zero (or less) frames per second disables coalescing: every request
+ * draws the world immediately.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class FrameScheduler {
+
+    /** Draws the current state of the world */
+    private final Runnable render;
+
+    /** Fires once, on the event dispatch thread, to draw a scheduled frame */
+    private final transient Timer flush;
+
+    /** The shortest time between the start of two frames, or 0 for no limit */
+    private long frameNanos;
+
+    /** When the most recent frame started to draw */
+    private long lastFrameStart;
+
+    /** Has a frame been drawn yet? */
+    private boolean drawnAny = false;
+
+    /** Is a redraw scheduled on the flush timer? */
+    private boolean pending = false;
+
+    private long requested = 0;
+    private long rendered = 0;
+    private long skipped = 0;
+
+    /**
+     * Create a scheduler that draws frames by running the given action, at most
+     * <code>maxFramesPerSecond</code> times per second.
+     *
+     * @param maxFramesPerSecond
+     *            the frame rate cap, or 0 to draw on every request
+     * @param render
+     *            draws the current state of the world
+     */
+    public FrameScheduler(int maxFramesPerSecond, Runnable render) {
+        this.render = render;
+        this.flush = new Timer(0, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                flushPending();
+            }
+        });
+        this.flush.setRepeats(false);
+        this.setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
+    /**
+     * Change the frame rate cap. A cap of zero (or less) disables coalescing.
+     *
+     * @param maxFramesPerSecond
+     *            the new frame rate cap
+     */
+    public synchronized void setMaxFramesPerSecond(int maxFramesPerSecond) {
+        this.frameNanos = maxFramesPerSecond > 0 ? 1000000000L / maxFramesPerSecond : 0;
+    }
+
+    /** @return the current frame rate cap, or 0 if coalescing is disabled */
+    public synchronized int getMaxFramesPerSecond() {
+        return this.frameNanos > 0 ? (int) Math.round(1e9 / this.frameNanos) : 0;
+    }
+
+    /**
+     * Note that the world has changed and needs to be redrawn. Draws the world
+     * immediately if a full frame interval has passed since the last frame, and
+     * otherwise makes sure that exactly one redraw happens at the end of the
+     * current interval.
+     */
+    public void requestFrame() {
+        synchronized (this) {
+            this.requested++;
+            if (this.pending) {
+                this.skipped++;
+                return;
+            }
+            long now = System.nanoTime();
+            long wait = this.drawnAny ? this.lastFrameStart + this.frameNanos - now : 0;
+            if (wait > 0) {
+                this.pending = true;
+                this.flush.setInitialDelay((int) ((wait + 999999) / 1000000));
+                this.flush.restart();
+                return;
+            }
+            this.startFrame(now);
+        }
+        this.render.run();
+    }
+
+    /**
+     * Draw the world now, absorbing any redraw that is currently scheduled.
+     */
+    public void renderNow() {
+        synchronized (this) {
+            this.requested++;
+            this.cancelPending();
+            this.startFrame(System.nanoTime());
+        }
+        this.render.run();
+    }
+
+    /**
+     * Forget any scheduled redraw, e.g. because the world has stopped and its
+     * last scene has already been drawn.
+     */
+    public synchronized void cancel() {
+        this.cancelPending();
+    }
+
+    /** @return how many redraws have been requested */
+    public synchronized long getRequestedFrameCount() {
+        return this.requested;
+    }
+
+    /** @return how many frames have actually been drawn */
+    public synchronized long getRenderedFrameCount() {
+        return this.rendered;
+    }
+
+    /**
+     * @return how many redraw requests were absorbed by a frame that was
+     *         already scheduled, or by a scheduled frame that was cancelled,
+     *         and so did not cause a redraw of their own. Unless a frame is
+     *         scheduled right now, this is the difference between the
+     *         requested and the rendered frame counts.
+     */
+    public synchronized long getSkippedFrameCount() {
+        return this.skipped;
+    }
+
+    private void startFrame(long now) {
+        this.lastFrameStart = now;
+        this.drawnAny = true;
+        this.rendered++;
+    }
+
+    private void cancelPending() {
+        if (this.pending) {
+            this.pending = false;
+            this.skipped++;
+            this.flush.stop();
+        }
+    }
+
+    /** Draws the scheduled frame, if it has not been cancelled meanwhile */
+    private void flushPending() {
+        synchronized (this) {
+            if (!this.pending) {
+                return;
+            }
+            this.pending = false;
+            this.startFrame(System.nanoTime());
+        }
+        this.render.run();
+    }
+}
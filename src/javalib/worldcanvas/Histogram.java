@@ -0,0 +1,125 @@
+package javalib.worldcanvas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * <p>
+ * A histogram of non-negative <code>long</code> values (such as durations in
+ * nanoseconds, or byte counts) with a fixed relative precision, in the style
+ * of an HDR histogram.
+ * </p>
+ *
+ * <p>
+ * Values below 32 are counted exactly. Larger values are counted in one of 32
+ * equally wide buckets per power of two, so every recorded value is known to
+ * within about 3%, whatever its magnitude. Recording a value takes a few
+ * arithmetic operations and an atomic increment, and never allocates, so it
+ * is cheap enough to do on every tick and frame; values may be recorded from
+ * several threads at once.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class Histogram {
+
+    /** log2 of the number of buckets per power of two */
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    /** kept as a double, so that huge values cannot overflow the mean */
+    private final DoubleAdder sum = new DoubleAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Count one occurrence of the given value; negative values are counted as
+     * 0.
+     *
+     * @param value
+     *            the value to record
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts.incrementAndGet(indexOf(value));
+        this.count.incrementAndGet();
+        this.sum.add(value);
+        long m = this.max.get();
+        while (value > m && !this.max.compareAndSet(m, value)) {
+            m = this.max.get();
+        }
+    }
+
+    /** @return how many values have been recorded */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /** @return the largest value recorded, or 0 if there is none */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /** @return the mean of the recorded values, or 0 if there are none */
+    public double getMean() {
+        long n = this.count.get();
+        return n == 0 ? 0.0 : this.sum.sum() / n;
+    }
+
+    /**
+     * @param percentile
+     *            a percentage, between 0 and 100
+     * @return a value such that (about) the given percentage of recorded
+     *         values are no larger than it, or 0 if there are none
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = this.count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /** Forget all recorded values */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.set(0);
+        this.sum.reset();
+        this.max.set(0);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exp = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        long lowest = (SUB_COUNT + sub) << (exp - SUB_BITS);
+        long width = 1L << (exp - SUB_BITS);
+        return lowest + (width - 1);
+    }
+}
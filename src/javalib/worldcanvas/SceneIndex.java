@@ -0,0 +1,211 @@
+package javalib.worldcanvas;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.BitSet;
+import java.util.Deque;
+
+import javalib.worldimages.BoundingBox;
+import javalib.worldimages.WorldImage;
+
+/**
+ * A uniform grid over the placements of one <code>WorldSceneBase</code>, in
+ * drawing order, that finds the placements overlapping a region without
+ * looking at every placement.
+ *
+ * The grid spans the bounding boxes of all the placements, with about one
+ * placement per cell. Each placement is listed in every cell its (padded)
+ * bounding box overlaps; placements that would span a large part of the grid
+ * are kept in a separate list that every query checks instead.
+ *
+ * Like <code>SceneSnapshot</code>, an index assumes that placed images are
+ * not mutated after they have been placed.
+ */
+final class SceneIndex {
+    /** the most cells a single placement may be listed in */
+    private static final int MAX_CELLS_PER_PLACEMENT = 16;
+
+    /** the most cells along either side of the grid */
+    private static final int MAX_CELLS_PER_SIDE = 256;
+
+    /** the placements this index was built from */
+    final Deque<WorldSceneBase.PlaceImage> source;
+
+    private final WorldImage[] imgs;
+    private final int[] dxs, dys;
+    private final int[] tlxs, tlys, brxs, brys;
+
+    /** the region covered by the grid: the union of all the bounds */
+    private final int minX, minY, maxX, maxY;
+    private final int cols, rows, cellWidth, cellHeight;
+
+    /** the placements in cell c are cellItems[cellStart[c] .. cellStart[c + 1]) */
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    /** placements too large to list cell by cell */
+    private final int[] large;
+
+    SceneIndex(Deque<WorldSceneBase.PlaceImage> placements) {
+        this.source = placements;
+        int n = placements.size();
+        this.imgs = new WorldImage[n];
+        this.dxs = new int[n];
+        this.dys = new int[n];
+        this.tlxs = new int[n];
+        this.tlys = new int[n];
+        this.brxs = new int[n];
+        this.brys = new int[n];
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        int i = 0;
+        for (WorldSceneBase.PlaceImage p : placements) {
+            WorldImage img = p.img;
+            int dx = p.x - img.pinhole.x;
+            int dy = p.y - img.pinhole.y;
+            BoundingBox bb = img.getBB();
+            this.imgs[i] = img;
+            this.dxs[i] = dx;
+            this.dys[i] = dy;
+            this.tlxs[i] = (int) Math.floor(bb.getTlx()) + dx - SceneSnapshot.PAD;
+            this.tlys[i] = (int) Math.floor(bb.getTly()) + dy - SceneSnapshot.PAD;
+            this.brxs[i] = (int) Math.ceil(bb.getBrx()) + dx + SceneSnapshot.PAD;
+            this.brys[i] = (int) Math.ceil(bb.getBry()) + dy + SceneSnapshot.PAD;
+            minX = Math.min(minX, this.tlxs[i]);
+            minY = Math.min(minY, this.tlys[i]);
+            maxX = Math.max(maxX, this.brxs[i]);
+            maxY = Math.max(maxY, this.brys[i]);
+            i++;
+        }
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+
+        // about one placement per cell, in cells shaped like the covered region
+        long width = Math.max(1L, (long) maxX - minX);
+        long height = Math.max(1L, (long) maxY - minY);
+        double side = Math.sqrt((double) width * height / Math.max(1, n));
+        this.cols = clamp((int) Math.ceil(width / Math.max(1.0, side)));
+        this.rows = clamp((int) Math.ceil(height / Math.max(1.0, side)));
+        this.cellWidth = (int) Math.max(1L, (width + this.cols - 1) / this.cols);
+        this.cellHeight = (int) Math.max(1L, (height + this.rows - 1) / this.rows);
+
+        // count the entries of each cell, then fill them in drawing order
+        int cells = this.cols * this.rows;
+        this.cellStart = new int[cells + 1];
+        int largeCount = 0;
+        for (i = 0; i < n; i++) {
+            if (this.isLarge(i)) {
+                largeCount++;
+                continue;
+            }
+            for (int r = this.rowOf(this.tlys[i]); r <= this.rowOf(this.brys[i]); r++) {
+                for (int c = this.colOf(this.tlxs[i]); c <= this.colOf(this.brxs[i]); c++) {
+                    this.cellStart[r * this.cols + c + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            this.cellStart[c + 1] += this.cellStart[c];
+        }
+        this.cellItems = new int[this.cellStart[cells]];
+        this.large = new int[largeCount];
+        int[] fill = new int[cells];
+        largeCount = 0;
+        for (i = 0; i < n; i++) {
+            if (this.isLarge(i)) {
+                this.large[largeCount++] = i;
+                continue;
+            }
+            for (int r = this.rowOf(this.tlys[i]); r <= this.rowOf(this.brys[i]); r++) {
+                for (int c = this.colOf(this.tlxs[i]); c <= this.colOf(this.brxs[i]); c++) {
+                    int cell = r * this.cols + c;
+                    this.cellItems[this.cellStart[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    private static int clamp(int cells) {
+        return Math.max(1, Math.min(MAX_CELLS_PER_SIDE, cells));
+    }
+
+    private int colOf(int x) {
+        return Math.max(0, Math.min(this.cols - 1, (int) (((long) x - this.minX) / this.cellWidth)));
+    }
+
+    private int rowOf(int y) {
+        return Math.max(0, Math.min(this.rows - 1, (int) (((long) y - this.minY) / this.cellHeight)));
+    }
+
+    private boolean isLarge(int i) {
+        long spanned = (long) (this.colOf(this.brxs[i]) - this.colOf(this.tlxs[i]) + 1)
+                * (this.rowOf(this.brys[i]) - this.rowOf(this.tlys[i]) + 1);
+        return spanned > MAX_CELLS_PER_PLACEMENT;
+    }
+
+    private boolean overlaps(int i, Rectangle region) {
+        return this.tlxs[i] < region.x + region.width && region.x < this.brxs[i]
+                && this.tlys[i] < region.y + region.height && region.y < this.brys[i];
+    }
+
+    /** @return how many placements this index holds */
+    int size() {
+        return this.imgs.length;
+    }
+
+    /**
+     * Draws every placement that overlaps the given region, in order, and
+     * skips the rest.
+     *
+     * @return how many placements were drawn
+     */
+    int draw(Graphics2D g, Rectangle region) {
+        int n = this.imgs.length;
+        if (region.x <= this.minX && region.y <= this.minY
+                && region.x + region.width >= this.maxX && region.y + region.height >= this.maxY) {
+            // everything is visible: skip the grid
+            for (int i = 0; i < n; i++) {
+                this.drawOne(g, i);
+            }
+            return n;
+        }
+        if (region.isEmpty() || region.x >= this.maxX || region.y >= this.maxY
+                || region.x + region.width <= this.minX || region.y + region.height <= this.minY) {
+            return 0;
+        }
+        BitSet marks = new BitSet(n);
+        int c0 = this.colOf(region.x), c1 = this.colOf(region.x + region.width);
+        int r0 = this.rowOf(region.y), r1 = this.rowOf(region.y + region.height);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * this.cols + c;
+                for (int k = this.cellStart[cell]; k < this.cellStart[cell + 1]; k++) {
+                    marks.set(this.cellItems[k]);
+                }
+            }
+        }
+        for (int i : this.large) {
+            marks.set(i);
+        }
+        int drawn = 0;
+        for (int i = marks.nextSetBit(0); i >= 0; i = marks.nextSetBit(i + 1)) {
+            if (this.overlaps(i, region)) {
+                this.drawOne(g, i);
+                drawn++;
+            }
+        }
+        return drawn;
+    }
+
+    private void drawOne(Graphics2D g, int i) {
+        g.translate(this.dxs[i], this.dys[i]);
+        this.imgs[i].draw(g);
+        g.translate(-this.dxs[i], -this.dys[i]);
+    }
+}
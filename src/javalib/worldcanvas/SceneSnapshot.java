@@ -0,0 +1,123 @@
+package javalib.worldcanvas;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+import javalib.worldimages.BoundingBox;
+import javalib.worldimages.WorldImage;
+
+/**
+ * A record of the placements of one drawn <code>WorldSceneBase</code>, in
+ * drawing order, along with the pixel bounds each placement covers. Comparing
+ * the snapshots of two consecutive frames tells a <code>CanvasPanel</code>
+ * which part of its buffer needs to be redrawn.
+ *
+ * Snapshots assume that placed images are not mutated after they have been
+ * drawn: an image is considered unchanged if it is the same object as, or is
+ * equal to, the image placed at the same position in the previous frame.
+ */
+final class SceneSnapshot {
+    /**
+     * How many pixels to add around each bounding box, to account for outline
+     * strokes and antialiasing that reach slightly past the geometric bounds
+     */
+    static final int PAD = 2;
+
+    final int width, height;
+    final WorldImage[] imgs;
+    final int[] dxs, dys;
+    final Rectangle[] bounds;
+
+    SceneSnapshot(WorldSceneBase scene) {
+        this.width = scene.width;
+        this.height = scene.height;
+        scene.revImagesIfNeeded();
+        int n = scene.revImgs.size();
+        this.imgs = new WorldImage[n];
+        this.dxs = new int[n];
+        this.dys = new int[n];
+        this.bounds = new Rectangle[n];
+        int i = 0;
+        for (WorldSceneBase.PlaceImage p : scene.revImgs) {
+            WorldImage img = p.img;
+            int dx = p.x - img.pinhole.x;
+            int dy = p.y - img.pinhole.y;
+            BoundingBox bb = img.getBB();
+            int tlx = (int) Math.floor(bb.getTlx()) + dx - PAD;
+            int tly = (int) Math.floor(bb.getTly()) + dy - PAD;
+            int brx = (int) Math.ceil(bb.getBrx()) + dx + PAD;
+            int bry = (int) Math.ceil(bb.getBry()) + dy + PAD;
+            this.imgs[i] = img;
+            this.dxs[i] = dx;
+            this.dys[i] = dy;
+            this.bounds[i] = new Rectangle(tlx, tly, brx - tlx, bry - tly);
+            i++;
+        }
+    }
+
+    /**
+     * Is the i-th placement of this snapshot the same as the j-th placement of
+     * the other one?
+     */
+    private boolean samePlacement(int i, SceneSnapshot other, int j) {
+        if (this.dxs[i] != other.dxs[j] || this.dys[i] != other.dys[j]) {
+            return false;
+        }
+        WorldImage a = this.imgs[i];
+        WorldImage b = other.imgs[j];
+        return a == b || (a.hashCode() == b.hashCode() && a.equals(b));
+    }
+
+    /**
+     * Computes the region of the canvas that must be redrawn to turn a buffer
+     * showing the <code>previous</code> snapshot into one showing this one.
+     *
+     * @param previous
+     *            the snapshot of the frame currently in the buffer
+     * @return the smallest rectangle covering every placement that was added,
+     *         removed or changed, clipped to the canvas; an empty rectangle if
+     *         nothing visible changed
+     */
+    Rectangle damageSince(SceneSnapshot previous) {
+        Rectangle canvas = new Rectangle(0, 0, this.width, this.height);
+        if (previous.width != this.width || previous.height != this.height) {
+            return canvas;
+        }
+        Rectangle damage = null;
+        int common = Math.min(this.imgs.length, previous.imgs.length);
+        for (int i = 0; i < common; i++) {
+            if (!this.samePlacement(i, previous, i)) {
+                damage = union(damage, this.bounds[i]);
+                damage = union(damage, previous.bounds[i]);
+            }
+        }
+        for (int i = common; i < this.imgs.length; i++) {
+            damage = union(damage, this.bounds[i]);
+        }
+        for (int i = common; i < previous.imgs.length; i++) {
+            damage = union(damage, previous.bounds[i]);
+        }
+        if (damage == null) {
+            return new Rectangle();
+        }
+        return damage.intersection(canvas);
+    }
+
+    private static Rectangle union(Rectangle acc, Rectangle r) {
+        return acc == null ? new Rectangle(r) : acc.union(r);
+    }
+
+    /**
+     * Draws every placement that overlaps the given region, in order. The
+     * caller is responsible for clipping the graphics context to the region.
+     */
+    void draw(Graphics2D g, Rectangle region) {
+        for (int i = 0; i < this.imgs.length; i++) {
+            if (this.bounds[i].intersects(region)) {
+                g.translate(this.dxs[i], this.dys[i]);
+                this.imgs[i].draw(g);
+                g.translate(-this.dxs[i], -this.dys[i]);
+            }
+        }
+    }
+}
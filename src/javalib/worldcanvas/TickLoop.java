@@ -0,0 +1,276 @@
+package javalib.worldcanvas;
+
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * <p>
+ * A fixed-timestep clock for worlds, scheduled on <code>System.nanoTime</code>.
+ * </p>
+ *
+ * <p>
+ * A <code>javax.swing.Timer</code> rounds its delay to whole milliseconds,
+ * drifts, and silently merges ticks when the event dispatch thread falls
+ * behind, so a world's simulation runs slower exactly when it is busiest.
+ * This loop instead keeps an absolute schedule: tick <i>n</i> is due at
+ * <code>start + n * step</code>. When the loop falls behind, it runs the
+ * overdue ticks back to back, up to a catch-up limit per iteration; any ticks
+ * beyond that limit are dropped (and counted) so that a long stall does not
+ * turn into a burst of simulation afterward.
+ * </p>
+ *
+ * <p>
+ * Frames are requested at their own, independent rate. A frame drawn between
+ * two ticks can ask <code>getAlpha</code> how far the clock has advanced
+ * towards the next tick, and interpolate accordingly.
+ * </p>
+ *
+ * <p>
+ * The loop runs on its own daemon thread, but both the tick and the frame
+ * actions are run on the event dispatch thread, so that they never overlap
+ * with the world's key and mouse handlers.
+ * </p>
+ *
+ * <p>
+ * All of the loop's arithmetic is done on the time reported by its
+ * <code>Clock</code>. A loop made with a clock that only moves when told to
+ * can be driven without starting its thread, by calling <code>poll</code>
+ * directly, and then behaves the same way regardless of how fast the machine
+ * is.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class TickLoop {
+
+    /**
+     * The time source of a loop: a monotonic count of nanoseconds, like
+     * <code>System.nanoTime</code>, whose origin does not matter.
+     */
+    public interface Clock {
+        /** @return the current time, in nanoseconds */
+        long nanoTime();
+    }
+
+    /** The clock of the running system */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final long stepNanos;
+    private final long frameNanos;
+    private final int maxCatchUp;
+    private final Runnable tick;
+    private final Runnable frame;
+    private final Clock clock;
+
+    /** The thread running this loop, or null if it is stopped */
+    private volatile Thread thread = null;
+
+    /** When the most recent tick was scheduled */
+    private volatile long lastTickNanos;
+
+    /** When the next tick and the next frame are due */
+    private long nextTick;
+    private long nextFrame;
+
+    private volatile long ticks = 0;
+    private volatile long dropped = 0;
+
+    /**
+     * Create a loop that runs <code>tick</code> every
+     * <code>secondsPerTick</code> seconds and <code>frame</code>
+     * <code>framesPerSecond</code> times per second.
+     *
+     * @param secondsPerTick
+     *            the simulation step, in seconds; must be positive
+     * @param maxCatchUp
+     *            how many overdue ticks may run back to back before the rest
+     *            are dropped; at least 1
+     * @param framesPerSecond
+     *            how often to run <code>frame</code>, or 0 to never run it
+     * @param tick
+     *            advances the simulation by one step
+     * @param frame
+     *            requests that the world be drawn
+     */
+    public TickLoop(double secondsPerTick, int maxCatchUp, int framesPerSecond,
+            Runnable tick, Runnable frame) {
+        this(secondsPerTick, maxCatchUp, framesPerSecond, tick, frame, SYSTEM_CLOCK);
+    }
+
+    /**
+     * Create a loop like the one above, that schedules its ticks and frames
+     * on the given clock.
+     *
+     * @param clock
+     *            the time source of the loop
+     */
+    public TickLoop(double secondsPerTick, int maxCatchUp, int framesPerSecond,
+            Runnable tick, Runnable frame, Clock clock) {
+        if (secondsPerTick <= 0) {
+            throw new IllegalArgumentException("The tick rate must be positive");
+        }
+        this.stepNanos = Math.max(1L, (long) (secondsPerTick * 1e9));
+        this.frameNanos = framesPerSecond > 0 ? 1000000000L / framesPerSecond : 0;
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+        this.tick = tick;
+        this.frame = frame;
+        this.clock = clock;
+        this.reset();
+    }
+
+    /**
+     * Start running the loop, if it is not running already. The first tick is
+     * due one step from now: time that passed while the loop was stopped is
+     * neither caught up on nor counted as dropped.
+     */
+    public synchronized void start() {
+        if (this.thread != null) {
+            return;
+        }
+        Thread t = new Thread("javalib-ticks") {
+            public void run() {
+                runLoop(this);
+            }
+        };
+        t.setDaemon(true);
+        this.thread = t;
+        this.reset();
+        t.start();
+    }
+
+    /** Stop the loop; a tick or frame that is already running completes */
+    public synchronized void stop() {
+        Thread t = this.thread;
+        this.thread = null;
+        if (t != null && t != Thread.currentThread()) {
+            t.interrupt();
+        }
+    }
+
+    /** @return is the loop running? */
+    public boolean isRunning() {
+        return this.thread != null;
+    }
+
+    /**
+     * @return how far the clock has advanced from the most recent tick towards
+     *         the next one, between 0 (inclusive) and 1 (exclusive)
+     */
+    public double getAlpha() {
+        double alpha = (double) (this.clock.nanoTime() - this.lastTickNanos) / this.stepNanos;
+        // a tick that is due but has not run yet has not advanced the world
+        return Math.max(0.0, Math.min(Math.nextDown(1.0), alpha));
+    }
+
+    /** @return how many ticks have run */
+    public long getTickCount() {
+        return this.ticks;
+    }
+
+    /** @return how many ticks were dropped because the loop fell too far behind */
+    public long getDroppedTickCount() {
+        return this.dropped;
+    }
+
+    /**
+     * Run the ticks that are due by now, up to the catch-up limit, dropping
+     * the rest, and then the frame, if it is due. The loop's own thread calls
+     * this repeatedly; a loop that is not running may be polled directly.
+     *
+     * @return the time at which the next tick or frame is due, on the loop's
+     *         clock, or the current time if this thread was interrupted while
+     *         running a tick or frame
+     */
+    public long poll() {
+        long now = this.clock.nanoTime();
+        int caughtUp = 0;
+        while (now - this.nextTick >= 0 && caughtUp < this.maxCatchUp) {
+            if (!this.onEventThread(this.tick)) {
+                return now;
+            }
+            this.lastTickNanos = this.nextTick;
+            this.nextTick += this.stepNanos;
+            this.ticks++;
+            caughtUp++;
+            now = this.clock.nanoTime();
+        }
+        if (now - this.nextTick >= 0) {
+            long behind = (now - this.nextTick) / this.stepNanos + 1;
+            this.dropped += behind;
+            this.nextTick += behind * this.stepNanos;
+            this.lastTickNanos = this.nextTick - this.stepNanos;
+        }
+        if (this.frameNanos > 0 && now - this.nextFrame >= 0) {
+            if (!this.onEventThread(this.frame)) {
+                return now;
+            }
+            this.nextFrame += this.frameNanos;
+            if (now - this.nextFrame >= 0) {
+                // frames are not worth catching up on
+                this.nextFrame = now + this.frameNanos;
+            }
+        }
+        return this.frameNanos > 0 && this.nextFrame - this.nextTick < 0
+                ? this.nextFrame : this.nextTick;
+    }
+
+    /** Schedule the first tick one step from now, and the first frame now */
+    private void reset() {
+        long now = this.clock.nanoTime();
+        this.nextTick = now + this.stepNanos;
+        this.nextFrame = now;
+        this.lastTickNanos = now;
+    }
+
+    private void runLoop(Thread self) {
+        while (this.thread == self) {
+            long wake = this.poll();
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            long sleep = wake - this.clock.nanoTime();
+            if (sleep > 0) {
+                try {
+                    // a clock that runs slower than real time is simply
+                    // polled again after a while
+                    sleep = Math.min(sleep, this.stepNanos);
+                    Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the given action on the event dispatch thread and waits for it.
+     *
+     * @return false if this thread was interrupted before or while waiting
+     */
+    private boolean onEventThread(Runnable action) {
+        if (Thread.currentThread().isInterrupted()) {
+            // stopped: do not post an action that would run regardless
+            return false;
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            action.run();
+            return true;
+        }
+        try {
+            SwingUtilities.invokeAndWait(action);
+            return true;
+        } catch (InterruptedException e) {
+            // keep the interrupt, so the loop sees that it was stopped
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+            return true;
+        }
+    }
+}
@@ -172,6 +172,71 @@ public class WorldCanvas {
         return true;
     }
 
+    /**
+     * Replace the contents of the canvas with the given scene. Unless
+     * incremental repainting is enabled, this is the same as <code>clear()</code>
+     * followed by <code>drawScene(scene)</code>.
+     * 
+     * @param scene
+     *            the scene to show
+     * @return <code>true</code>
+     */
+    public boolean redrawScene(WorldSceneBase scene) {
+        if (frame.getWidth() != scene.width || frame.getHeight() != scene.height) {
+            frame.getContentPane().setMinimumSize(
+                    new Dimension(scene.width, scene.height));
+        }
+        panel.redrawScene(scene);
+        return true;
+    }
+
+    /**
+     * Enable or disable incremental repainting: when enabled,
+     * <code>redrawScene</code> only clears, redraws and repaints the regions of
+     * each scene that changed since the previous one.
+     * 
+     * @param incremental
+     *            whether to repaint only the changed regions of each scene
+     */
+    public void setIncrementalRepaint(boolean incremental) {
+        panel.setIncrementalRepaint(incremental);
+    }
+
+    /**
+     * Enable or disable background rendering: when enabled,
+     * <code>redrawScene</code> hands each scene to a render thread that draws
+     * it off-screen and swaps it in when it is complete, dropping scenes that
+     * arrive before the previous one has been drawn.
+     * 
+     * @param background
+     *            whether to draw scenes on a background thread
+     */
+    public void setBackgroundRendering(boolean background) {
+        panel.setBackgroundRendering(background);
+    }
+
+    /**
+     * Start recording every frame this canvas shows to the given capture, or
+     * stop if it is <code>null</code>.
+     * 
+     * @param capture
+     *            where to send the shown frames
+     */
+    public void setCapture(FrameCapture capture) {
+        panel.setCapture(capture);
+    }
+
+    /**
+     * Record how long this canvas takes to draw scenes and to show them in the
+     * given metrics, or stop if it is <code>null</code>.
+     * 
+     * @param metrics
+     *            where to record the timings
+     */
+    public void setMetrics(WorldMetrics metrics) {
+        panel.setMetrics(metrics);
+    }
+
     public void printCurrentFont() {
         ((CanvasPanel) panel).getFont();
     }
@@ -0,0 +1,343 @@
+package javalib.worldcanvas;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Timings and counts for the phases of a running world: how long
+ * <code>onTick</code>, the event handlers and <code>makeScene</code> take,
+ * how long the canvas takes to draw each scene into its buffer and to copy
+ * the buffer to the screen, and how many bytes the world allocates per frame.
+ * </p>
+ *
+ * <p>
+ * Every world started by <code>bigBang</code> has one, shared with its canvas,
+ * but it is disabled by default: while disabled, each instrumented phase only
+ * costs a single field read. Once enabled, each phase is recorded in a
+ * <code>{@link Histogram Histogram}</code>. The results can be read through
+ * this class, through JMX after <code>registerMBean</code>, or from a CSV file
+ * written periodically after <code>startCsvDump</code>.
+ * </p>
+ *
+ * <p>
+ * Allocated bytes are measured with
+ * <code>com.sun.management.ThreadMXBean</code> on the thread that makes and
+ * draws the scene; when background rendering is on, what the render thread
+ * allocates is not included. If the JVM cannot measure allocations, no
+ * allocations are recorded.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class WorldMetrics implements WorldMetricsMXBean {
+
+    /** The instrumented phases of a world */
+    public enum Phase {
+        /** the world's <code>onTick</code> */
+        TICK,
+        /** the world's key and mouse handlers */
+        EVENT,
+        /** the world's <code>makeScene</code> */
+        MAKE_SCENE,
+        /** drawing a scene into the canvas buffer */
+        DRAW,
+        /** copying the canvas buffer to the screen */
+        BLIT
+    }
+
+    /** returned by <code>start</code> when nothing should be recorded */
+    private static final long OFF = Long.MIN_VALUE;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private volatile boolean enabled = false;
+    private final Histogram[] phases = new Histogram[PHASES.length];
+    private final Histogram allocations = new Histogram();
+
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    private ScheduledExecutorService csvTimer = null;
+    private BufferedWriter csv = null;
+
+    public WorldMetrics() {
+        for (int i = 0; i < this.phases.length; i++) {
+            this.phases[i] = new Histogram();
+        }
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocs = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            allocs = (com.sun.management.ThreadMXBean) bean;
+            try {
+                if (!allocs.isThreadAllocatedMemorySupported()) {
+                    allocs = null;
+                }
+            } catch (UnsupportedOperationException e) {
+                allocs = null;
+            }
+        }
+        this.allocationBean = allocs;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Start or stop recording. Values recorded so far are kept.
+     *
+     * @param enabled
+     *            whether to record timings and allocations
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && this.allocationBean != null) {
+            // allocation counting is JVM-wide, so it is only switched on once asked for
+            try {
+                if (!this.allocationBean.isThreadAllocatedMemoryEnabled()) {
+                    this.allocationBean.setThreadAllocatedMemoryEnabled(true);
+                }
+            } catch (UnsupportedOperationException e) {
+                // counts stay unavailable; timings are still recorded
+            }
+        }
+        this.enabled = enabled;
+    }
+
+    // ///////////////////////////////////////////////////////////////////////
+    // Instrumentation //
+    // ///////////////////////////////////////////////////////////////////////
+
+    /**
+     * Start timing a phase.
+     *
+     * @return the token to pass to <code>end</code>
+     */
+    public long start() {
+        return this.enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Finish timing a phase that was started by <code>start</code>.
+     *
+     * @param phase
+     *            the phase that just finished
+     * @param start
+     *            the token returned by <code>start</code>
+     */
+    public void end(Phase phase, long start) {
+        if (start != OFF) {
+            this.phases[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Start counting the bytes the current thread allocates for a frame.
+     *
+     * @return the token to pass to <code>endAllocations</code>
+     */
+    public long startAllocations() {
+        if (!this.enabled || this.allocationBean == null) {
+            return OFF;
+        }
+        return this.allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Finish counting the bytes the current thread allocated for a frame.
+     *
+     * @param start
+     *            the token returned by <code>startAllocations</code>
+     */
+    public void endAllocations(long start) {
+        if (start != OFF && start >= 0) {
+            long now = this.allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            this.allocations.record(now - start);
+        }
+    }
+
+    // ///////////////////////////////////////////////////////////////////////
+    // Results //
+    // ///////////////////////////////////////////////////////////////////////
+
+    /** @return the timings of the given phase, in nanoseconds */
+    public Histogram getHistogram(Phase phase) {
+        return this.phases[phase.ordinal()];
+    }
+
+    /** @return the bytes allocated per frame */
+    public Histogram getAllocationHistogram() {
+        return this.allocations;
+    }
+
+    public long getTickCount() {
+        return this.getHistogram(Phase.TICK).getCount();
+    }
+
+    public long getEventCount() {
+        return this.getHistogram(Phase.EVENT).getCount();
+    }
+
+    public long getFrameCount() {
+        return this.getHistogram(Phase.MAKE_SCENE).getCount();
+    }
+
+    public Map<String, Double> getMeanNanos() {
+        Map<String, Double> result = new LinkedHashMap<String, Double>();
+        for (Phase p : PHASES) {
+            result.put(p.name(), this.getHistogram(p).getMean());
+        }
+        return result;
+    }
+
+    public Map<String, Long> getMedianNanos() {
+        return this.percentiles(50.0);
+    }
+
+    public Map<String, Long> getP99Nanos() {
+        return this.percentiles(99.0);
+    }
+
+    public Map<String, Long> getMaxNanos() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Phase p : PHASES) {
+            result.put(p.name(), this.getHistogram(p).getMax());
+        }
+        return result;
+    }
+
+    public double getMeanAllocatedBytesPerFrame() {
+        return this.allocations.getMean();
+    }
+
+    public long getP99AllocatedBytesPerFrame() {
+        return this.allocations.getValueAtPercentile(99.0);
+    }
+
+    /** Forget everything recorded so far */
+    public void reset() {
+        for (Histogram h : this.phases) {
+            h.reset();
+        }
+        this.allocations.reset();
+    }
+
+    private Map<String, Long> percentiles(double percentile) {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Phase p : PHASES) {
+            result.put(p.name(), this.getHistogram(p).getValueAtPercentile(percentile));
+        }
+        return result;
+    }
+
+    // ///////////////////////////////////////////////////////////////////////
+    // Exporting //
+    // ///////////////////////////////////////////////////////////////////////
+
+    /**
+     * Make these metrics visible to JMX clients, as
+     * <code>javalib:type=WorldMetrics,name=</code><i>name</i>.
+     *
+     * @param name
+     *            the name to register the metrics under, e.g. the world's
+     *            title
+     * @return the name the metrics were registered as
+     * @throws JMException
+     *             if the metrics cannot be registered, e.g. because the name
+     *             is already taken
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = ObjectName.getInstance("javalib:type=WorldMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Append a snapshot of these metrics to the given CSV file every
+     * <code>periodMillis</code> milliseconds, on a background thread: one row
+     * per phase, and one for the allocations, with the columns
+     * <code>time_ms,phase,count,mean,p50,p90,p99,max</code>. Stops any dump
+     * already in progress.
+     *
+     * @param file
+     *            the file to write; it is replaced
+     * @param periodMillis
+     *            how often to write a snapshot
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    public synchronized void startCsvDump(Path file, long periodMillis) throws IOException {
+        this.stopCsvDump();
+        this.csv = Files.newBufferedWriter(file, Charset.forName("UTF-8"));
+        this.csv.write("time_ms,phase,count,mean,p50,p90,p99,max");
+        this.csv.newLine();
+        this.csv.flush();
+        this.csvTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "javalib-metrics-csv");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.csvTimer.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                writeCsvSnapshot();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Write a last snapshot and stop the CSV dump, if one is in progress */
+    public synchronized void stopCsvDump() {
+        if (this.csvTimer == null) {
+            return;
+        }
+        this.csvTimer.shutdownNow();
+        this.csvTimer = null;
+        this.writeCsvSnapshot();
+        try {
+            this.csv.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.csv = null;
+    }
+
+    private synchronized void writeCsvSnapshot() {
+        if (this.csv == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            for (Phase p : PHASES) {
+                this.writeCsvRow(now, p.name(), this.getHistogram(p));
+            }
+            this.writeCsvRow(now, "ALLOCATED_BYTES", this.allocations);
+            this.csv.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeCsvRow(long now, String name, Histogram h) throws IOException {
+        this.csv.write(now + "," + name + "," + h.getCount() + ","
+                + String.format(Locale.ROOT, "%.1f", h.getMean()) + ","
+                + h.getValueAtPercentile(50.0) + "," + h.getValueAtPercentile(90.0) + ","
+                + h.getValueAtPercentile(99.0) + "," + h.getMax());
+        this.csv.newLine();
+    }
+}
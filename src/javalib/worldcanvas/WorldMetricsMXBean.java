@@ -0,0 +1,37 @@
+package javalib.worldcanvas;
+
+import java.util.Map;
+
+/**
+ * The management interface of <code>{@link WorldMetrics WorldMetrics}</code>,
+ * as seen by JMX clients such as JConsole and VisualVM. Timings are keyed by
+ * the name of their <code>WorldMetrics.Phase</code>.
+ *
+ * @since October 18 2026
+ */
+public interface WorldMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getTickCount();
+
+    long getEventCount();
+
+    long getFrameCount();
+
+    Map<String, Double> getMeanNanos();
+
+    Map<String, Long> getMedianNanos();
+
+    Map<String, Long> getP99Nanos();
+
+    Map<String, Long> getMaxNanos();
+
+    double getMeanAllocatedBytesPerFrame();
+
+    long getP99AllocatedBytesPerFrame();
+
+    void reset();
+}
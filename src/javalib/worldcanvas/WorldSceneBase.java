@@ -2,8 +2,11 @@ package javalib.worldcanvas;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.PixelGrabber;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.util.ArrayDeque;
 import java.util.Arrays;
@@ -11,6 +14,7 @@ import java.util.Deque;
 import java.util.Iterator;
 
 import javalib.worldimages.OutlineMode;
+import javalib.worldimages.RasterCache;
 import javalib.worldimages.RectangleImage;
 import javalib.worldimages.WorldImage;
 
@@ -105,13 +109,94 @@ public abstract class WorldSceneBase {
         this.revImgs = null;
     }
 
+    /**
+     * Scenes with at least this many placements only draw the placements that
+     * can be seen
+     */
+    static final int CULLING_THRESHOLD = 64;
+
+    /** finds the visible placements of large scenes; rebuilt when they change */
+    private transient SceneIndex index = null;
+
+    private transient volatile int lastDrawnCount = 0;
+    private transient volatile int lastCulledCount = 0;
+
+    /**
+     * Draws this scene. In scenes with many placements, placements whose
+     * bounding boxes lie entirely outside the scene (or the clip of the
+     * graphics context) are skipped.
+     * 
+     * @param g
+     *            -- the graphics context to draw into
+     */
     protected void draw(Graphics2D g) {
         this.revImagesIfNeeded();
-        for (PlaceImage i : revImgs) {
-            g.translate(i.x - i.img.pinhole.x, i.y - i.img.pinhole.y);
-            i.img.draw(g);
-            g.translate(-i.x + i.img.pinhole.x, -i.y + i.img.pinhole.y);
+        Deque<PlaceImage> placements = this.revImgs;
+        Rectangle visible = placements.size() < CULLING_THRESHOLD ? null : this.visibleRegion(g);
+        if (visible == null) {
+            for (PlaceImage i : placements) {
+                g.translate(i.x - i.img.pinhole.x, i.y - i.img.pinhole.y);
+                i.img.draw(g);
+                g.translate(-i.x + i.img.pinhole.x, -i.y + i.img.pinhole.y);
+            }
+            this.lastDrawnCount = placements.size();
+            this.lastCulledCount = 0;
+            return;
+        }
+        SceneIndex idx = this.index;
+        if (idx == null || idx.source != placements) {
+            idx = new SceneIndex(placements);
+            this.index = idx;
         }
+        int drawn = idx.draw(g, visible);
+        this.lastDrawnCount = drawn;
+        this.lastCulledCount = idx.size() - drawn;
+    }
+
+    /**
+     * The part of this scene that drawing into the given graphics can show:
+     * the scene's own <code>width</code> by <code>height</code> area, limited
+     * to the graphics' clip
+     */
+    private Rectangle visibleRegion(Graphics2D g) {
+        Rectangle region = new Rectangle(0, 0, this.width, this.height);
+        Shape clip = g.getClip();
+        if (clip != null) {
+            Rectangle2D.intersect(region, clip.getBounds2D(), region);
+        }
+        return region;
+    }
+
+    /**
+     * @return how many placements the last <code>draw</code> of this scene
+     *         actually drew
+     */
+    public int getLastDrawnCount() {
+        return this.lastDrawnCount;
+    }
+
+    /**
+     * @return how many placements the last <code>draw</code> of this scene
+     *         skipped because they could not be seen
+     */
+    public int getLastCulledCount() {
+        return this.lastCulledCount;
+    }
+
+    /**
+     * Draws the current scene into a new image of the scene's size, on a white
+     * background, just as a canvas would show it
+     * @return the new image
+     */
+    public final BufferedImage renderImage() {
+        BufferedImage img = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RasterCache.KEY_CACHING, Boolean.FALSE);
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, this.width, this.height);
+        this.draw(g);
+        g.dispose();
+        return img;
     }
 
     /**
@@ -122,7 +207,10 @@ public abstract class WorldSceneBase {
     public final String saveImage(String filename) {
         try {
             BufferedImage img = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
-            this.draw(img.createGraphics());
+            Graphics2D g = img.createGraphics();
+            g.setRenderingHint(RasterCache.KEY_CACHING, Boolean.FALSE);
+            this.draw(g);
+            g.dispose();
             if (ImageIO.write(img, "png", new File(filename))){
                 return filename;
             }
@@ -134,8 +222,40 @@ public abstract class WorldSceneBase {
 
 
 
+    /**
+     * Should scenes whose placements differ still be compared pixel by pixel?
+     */
+    private static volatile boolean pixelComparison = true;
+
+    /**
+     * Choose how <code>equals</code> compares scenes whose placements differ.
+     * By default (<code>true</code>), it draws both scenes and compares their
+     * pixels, so that scenes built differently but looking the same are equal.
+     * With <code>false</code>, such scenes are simply unequal, which is much
+     * faster when comparing many scenes that are expected to be built the
+     * same way.
+     * 
+     * @param enabled
+     *            whether to fall back to comparing pixels
+     */
+    public static void setPixelComparison(boolean enabled) {
+        pixelComparison = enabled;
+    }
+
+    /** @return whether <code>equals</code> falls back to comparing pixels */
+    public static boolean isPixelComparison() {
+        return pixelComparison;
+    }
+
+    /**
+     * Two scenes are equal if they have the same size and the same placements,
+     * in the same order, of equal images at the same positions. Otherwise,
+     * unless <code>setPixelComparison(false)</code> was called, they are equal
+     * if drawing them produces the same pixels.
+     */
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) return true;
         if (!(obj instanceof WorldSceneBase)) return false;
         WorldSceneBase other = (WorldSceneBase)obj;
 
@@ -143,33 +263,62 @@ public abstract class WorldSceneBase {
 
         if (this.width == 0 || this.height == 0) return true;
 
-        BufferedImage image1 = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D graphics2D1 = image1.createGraphics();
-        this.draw(graphics2D1);
-        BufferedImage image2 = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D graphics2D2 = image2.createGraphics();
-        other.draw(graphics2D2);
+        if (this.samePlacements(other)) return true;
 
+        return pixelComparison && this.samePixels(other);
+    }
 
-        int[] pix1 = new int[width * height];
-        int[] pix2 = new int[width * height];
-        PixelGrabber pg1 = new PixelGrabber(image1, 0, 0, width, height, pix1, 0, width);
-        PixelGrabber pg2 = new PixelGrabber(image2, 0, 0, width, height, pix2, 0, width);
+    /**
+     * Consistent with <code>equals</code>: since scenes built differently can
+     * draw the same pixels, only the size of a scene contributes to its hash.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * this.width + this.height;
+    }
 
-        while (true) {
-            try {
-                pg1.grabPixels();
-                pg2.grabPixels();
-                return Arrays.equals(pix1, pix2);
+    /** Do both scenes place equal images at the same positions, in the same order? */
+    private boolean samePlacements(WorldSceneBase other) {
+        this.revImagesIfNeeded();
+        other.revImagesIfNeeded();
+        Deque<PlaceImage> mine = this.revImgs;
+        Deque<PlaceImage> theirs = other.revImgs;
+        if (mine.size() != theirs.size()) return false;
+        Iterator<PlaceImage> it = theirs.iterator();
+        for (PlaceImage a : mine) {
+            PlaceImage b = it.next();
+            if (a.x - a.img.pinhole.x != b.x - b.img.pinhole.x
+                    || a.y - a.img.pinhole.y != b.y - b.img.pinhole.y) {
+                return false;
             }
-            catch (InterruptedException e) {
-                break;
+            if (a.img != b.img
+                    && (a.img.hashCode() != b.img.hashCode() || !a.img.equals(b.img))) {
+                return false;
             }
         }
-        return false;
+        return true;
+    }
+
+    /** Do both scenes draw the same pixels? Both have this scene's size. */
+    private boolean samePixels(WorldSceneBase other) {
+        return Arrays.equals(this.drawPixels(), other.drawPixels());
+    }
+
+    /**
+     * Draws this scene on a transparent background, bypassing the raster
+     * cache so that equal-looking scenes always draw equal pixels, and returns
+     * its pixels
+     */
+    private int[] drawPixels() {
+        BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RasterCache.KEY_CACHING, Boolean.FALSE);
+        this.draw(g);
+        g.dispose();
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
     }
 
-    private void revImagesIfNeeded() {
+    void revImagesIfNeeded() {
         if (this.revImgs == null) {
             revImgs = new ArrayDeque<PlaceImage>();
             for (PlaceImage i : this.imgs) {
@@ -186,20 +186,20 @@ public final class BoundingBox {
     /**
      * @return the width of the bounding box
      */
-    double getWidth() {
+    public double getWidth() {
         return this.brx - this.tlx;
     }
 
     /**
      * @return the height of the bounding box
      */
-    double getHeight() {
+    public double getHeight() {
         return this.bry - this.tly;
     }
-    double getTlx() { return this.tlx; }
-    double getTly() { return this.tly; }
-    double getBrx() { return this.brx; }
-    double getBry() { return this.bry; }
+    public double getTlx() { return this.tlx; }
+    public double getTly() { return this.tly; }
+    public double getBrx() { return this.brx; }
+    public double getBry() { return this.bry; }
     double getCenterX() { return (this.tlx + this.brx) / 2.0; }
     double getCenterY() { return (this.tly + this.bry) / 2.0; }
 
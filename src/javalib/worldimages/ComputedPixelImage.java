@@ -7,8 +7,12 @@ import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
+import java.awt.image.DataBufferInt;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 /*
 
 /**
@@ -30,7 +34,8 @@ public final class ComputedPixelImage extends WorldImage {
 
   private final BufferedImage image;
 
-  private final WritableRaster raster;
+  /** the packed ARGB pixels backing the image, row by row */
+  private final int[] pixels;
 
   /**
    * Constructs an empty (transparent) rectangular image of the given size
@@ -43,7 +48,7 @@ public final class ComputedPixelImage extends WorldImage {
     this.width = width;
     this.height = height;
     this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    this.raster = this.image.getRaster();
+    this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
   }
 
   /**
@@ -56,7 +61,7 @@ public final class ComputedPixelImage extends WorldImage {
    */
   public void setPixel(int x, int y, Color c) throws IndexOutOfBoundsException {
     boundsCheck(x, y, this.width, this.height);
-    this.raster.setPixel(x, y, new int[]{c.getRed(), c.getGreen(), c.getBlue(), c.getAlpha()});
+    this.pixels[y * this.width + x] = c.getRGB();
   }
 
   /**
@@ -69,9 +74,7 @@ public final class ComputedPixelImage extends WorldImage {
    */
   public Color getPixel(int x, int y) throws IndexOutOfBoundsException {
     boundsCheck(x, y, this.width, this.height);
-    int[] ans = new int[4];
-    this.raster.getPixel(x, y, ans);
-    return new Color(ans[0], ans[1], ans[2], ans[3]);
+    return new Color(this.pixels[y * this.width + x], true);
   }
 
   /**
@@ -116,6 +119,211 @@ public final class ComputedPixelImage extends WorldImage {
    * @throws IndexOutOfBoundsException if (x, y) is out of bounds
    */
   public void setPixels(int x, int y, int width, int height, Color c) throws IndexOutOfBoundsException {
+    this.rectangleCheck(x, y, width, height);
+    int argb = c.getRGB();
+    for (int row = y; row < y + height; row++)
+      Arrays.fill(this.pixels, row * this.width + x, row * this.width + x + width, argb);
+  }
+
+  /**
+   * Modifies the requested pixel of this image to be the given packed color,
+   * without allocating anything
+   *
+   * @param x - the column of the desired pixel
+   * @param y - the row of the desired pixel
+   * @param argb - the color to set the desired pixel, packed as in {@link Color#getRGB}:
+   *             alpha in bits 24-31, red in 16-23, green in 8-15 and blue in 0-7
+   * @throws IndexOutOfBoundsException if (x, y) is out of bounds
+   */
+  public void setRGB(int x, int y, int argb) throws IndexOutOfBoundsException {
+    boundsCheck(x, y, this.width, this.height);
+    this.pixels[y * this.width + x] = argb;
+  }
+
+  /**
+   * Retrieves the packed color of the requested pixel of this image, without
+   * allocating anything
+   *
+   * @param x - the column of the desired pixel
+   * @param y - the row of the desired pixel
+   * @return the color of the desired pixel, packed as in {@link Color#getRGB}
+   * @throws IndexOutOfBoundsException if (x, y) is out of bounds
+   */
+  public int getRGB(int x, int y) throws IndexOutOfBoundsException {
+    boundsCheck(x, y, this.width, this.height);
+    return this.pixels[y * this.width + x];
+  }
+
+  /**
+   * Copies a rectangle of packed colors into this image, covering the pixels
+   * [x, x + width) by [y, y + height). The color of pixel (x + i, y + j) is
+   * <code>argb[offset + j * scansize + i]</code>.
+   *
+   * @param x - the leftmost column of the desired rectangle
+   * @param y - the topmost row of the desired rectangle
+   * @param width - the width of the rectangular region to set
+   * @param height - the height of the rectangular region to set
+   * @param argb - the packed colors to copy
+   * @param offset - the index in <code>argb</code> of the top-left color
+   * @param scansize - the distance in <code>argb</code> from one row to the next
+   * @throws IndexOutOfBoundsException if the rectangle is out of bounds, or
+   *         <code>argb</code> is too short
+   */
+  public void setRGB(int x, int y, int width, int height, int[] argb, int offset, int scansize)
+          throws IndexOutOfBoundsException {
+    this.rectangleCheck(x, y, width, height);
+    for (int j = 0; j < height; j++)
+      System.arraycopy(argb, offset + j * scansize, this.pixels, (y + j) * this.width + x, width);
+  }
+
+  /**
+   * Copies a rectangle of this image's packed colors out into an array,
+   * covering the pixels [x, x + width) by [y, y + height). The color of pixel
+   * (x + i, y + j) goes to <code>argb[offset + j * scansize + i]</code>.
+   *
+   * @param x - the leftmost column of the desired rectangle
+   * @param y - the topmost row of the desired rectangle
+   * @param width - the width of the rectangular region to get
+   * @param height - the height of the rectangular region to get
+   * @param argb - where to copy the packed colors
+   * @param offset - the index in <code>argb</code> of the top-left color
+   * @param scansize - the distance in <code>argb</code> from one row to the next
+   * @throws IndexOutOfBoundsException if the rectangle is out of bounds, or
+   *         <code>argb</code> is too short
+   */
+  public void getRGB(int x, int y, int width, int height, int[] argb, int offset, int scansize)
+          throws IndexOutOfBoundsException {
+    this.rectangleCheck(x, y, width, height);
+    for (int j = 0; j < height; j++)
+      System.arraycopy(this.pixels, (y + j) * this.width + x, argb, offset + j * scansize, width);
+  }
+
+  /**
+   * Copies a whole row of packed colors into this image
+   *
+   * @param y - the row to set
+   * @param argb - the packed colors to copy, at least <code>width</code> of them
+   * @param offset - the index in <code>argb</code> of the leftmost color
+   * @throws IndexOutOfBoundsException if y is out of bounds, or <code>argb</code> is too short
+   */
+  public void setRow(int y, int[] argb, int offset) throws IndexOutOfBoundsException {
+    this.setRGB(0, y, this.width, 1, argb, offset, this.width);
+  }
+
+  /**
+   * Copies a whole row of this image's packed colors out into an array
+   *
+   * @param y - the row to get
+   * @param argb - where to copy the packed colors, with room for at least <code>width</code>
+   * @param offset - the index in <code>argb</code> for the leftmost color
+   * @throws IndexOutOfBoundsException if y is out of bounds, or <code>argb</code> is too short
+   */
+  public void getRow(int y, int[] argb, int offset) throws IndexOutOfBoundsException {
+    this.getRGB(0, y, this.width, 1, argb, offset, this.width);
+  }
+
+  /**
+   * A writable view of this image's pixels, packed as in {@link Color#getRGB},
+   * row by row: pixel (x, y) is at index <code>y * width + x</code>. Writes
+   * through the buffer change the image directly, which is the fastest way
+   * to recompute every pixel of a large image.
+   *
+   * @return a new buffer over the pixels of this image
+   */
+  public IntBuffer getPixelBuffer() {
+    return IntBuffer.wrap(this.pixels);
+  }
+
+  /**
+   * Recomputes every pixel of this image with the given shader, in parallel:
+   * the image is split into bands of rows that are shaded on a shared
+   * fork-join pool, and the results are written straight into the image.
+   * Returns once every pixel has been shaded.
+   *
+   * @param shader - computes the packed color of each pixel
+   * @throws RuntimeException if the shader throws one for any pixel; some
+   *         pixels may have been shaded already
+   */
+  public void shade(PixelShader shader) {
+    this.shade(shader, this.width, 1);
+  }
+
+  /**
+   * Recomputes every pixel of this image with the given shader, in parallel,
+   * one tile at a time. Within each tile, pixels are shaded row by row, so
+   * shaders that look up data by position get better cache locality from
+   * tiles that are square-ish, e.g. 64 by 64.
+   *
+   * @param shader - computes the packed color of each pixel
+   * @param tileWidth - the width of each tile
+   * @param tileHeight - the height of each tile
+   * @throws IllegalArgumentException if the tile size is not positive
+   * @throws RuntimeException if the shader throws one for any pixel; some
+   *         pixels may have been shaded already
+   */
+  public void shade(PixelShader shader, int tileWidth, int tileHeight) {
+    if (tileWidth <= 0 || tileHeight <= 0)
+      throw new IllegalArgumentException("Tiles must be at least 1 by 1");
+    tileWidth = Math.min(tileWidth, this.width);
+    int cols = (this.width + tileWidth - 1) / tileWidth;
+    int rows = (this.height + tileHeight - 1) / tileHeight;
+    ShadePool.POOL.invoke(new ShadeTiles(shader, tileWidth, tileHeight, cols, 0, cols * rows));
+  }
+
+  /** The pool shared by every shaded image, created on first use */
+  private static final class ShadePool {
+    static final ForkJoinPool POOL = new ForkJoinPool();
+  }
+
+  /** About how many pixels to shade in one task, before splitting the work */
+  private static final int PIXELS_PER_TASK = 16 * 1024;
+
+  /** Shades the tiles numbered [from, to), row-major, splitting them while there are many */
+  private final class ShadeTiles extends RecursiveAction {
+    private static final long serialVersionUID = 4817632092658419521L;
+
+    private final PixelShader shader;
+    private final int tileWidth, tileHeight, cols, from, to;
+
+    ShadeTiles(PixelShader shader, int tileWidth, int tileHeight, int cols, int from, int to) {
+      this.shader = shader;
+      this.tileWidth = tileWidth;
+      this.tileHeight = tileHeight;
+      this.cols = cols;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from > 1
+          && (long) (this.to - this.from) * this.tileWidth * this.tileHeight > PIXELS_PER_TASK) {
+        int mid = (this.from + this.to) >>> 1;
+        invokeAll(new ShadeTiles(this.shader, this.tileWidth, this.tileHeight, this.cols, this.from, mid),
+                  new ShadeTiles(this.shader, this.tileWidth, this.tileHeight, this.cols, mid, this.to));
+        return;
+      }
+      int[] px = ComputedPixelImage.this.pixels;
+      int w = ComputedPixelImage.this.width;
+      int h = ComputedPixelImage.this.height;
+      for (int tile = this.from; tile < this.to; tile++) {
+        int x0 = (tile % this.cols) * this.tileWidth;
+        int y0 = (tile / this.cols) * this.tileHeight;
+        int x1 = Math.min(w, x0 + this.tileWidth);
+        int y1 = Math.min(h, y0 + this.tileHeight);
+        for (int y = y0; y < y1; y++) {
+          int row = y * w;
+          for (int x = x0; x < x1; x++)
+            px[row + x] = this.shader.shade(x, y);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that the rectangle [x, x + width) by [y, y + height) lies within this image
+   */
+  private void rectangleCheck(int x, int y, int width, int height) throws IndexOutOfBoundsException {
     boundsCheck(x, y, this.width, this.height);
     if (width < 0)
       throw new IndexOutOfBoundsException("Width cannot be negative");
@@ -127,10 +335,6 @@ public final class ComputedPixelImage extends WorldImage {
     else if (y + height > this.height)
       throw new IndexOutOfBoundsException(String.format("Bottom edge of rectangle (%d) is not in range [0, %d)",
               y + height, this.height));
-    int[] sample = new int[]{c.getRed(), c.getGreen(), c.getBlue(), c.getAlpha()};
-    for (int w = 0; w < width; w++)
-      for (int h = 0; h < height; h++)
-        this.raster.setPixel(x + w, y + h, sample);
   }
 
   @Override
@@ -168,10 +372,6 @@ public final class ComputedPixelImage extends WorldImage {
     // Reset to original position
     g.translate((this.width / 2.0), (this.height / 2.0));
   }
-  @Override
-  protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-    this.drawStackUnsafe(g);
-  }
 
   @Override
   public double getWidth() {
@@ -196,24 +396,13 @@ public final class ComputedPixelImage extends WorldImage {
 
 
   @Override
-  protected boolean equalsStacksafe(WorldImage other,
-                                    Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+  protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
     if (this.getClass().equals(other.getClass())) {
       // Check for exact class matching, and then casting to the base class is safe
       ComputedPixelImage that = (ComputedPixelImage) other;
       if (this.width == that.width && this.height == that.height
           && this.pinhole.equals(that.pinhole)) {
-        for (int x = 0; x < this.width; x++) {
-          for (int y = 0; y < this.height; y++) {
-            int[] thisPx = new int[4];
-            int[] thatPx = new int[4];
-            this.raster.getPixel(x, y, thisPx);
-            that.raster.getPixel(x, y, thatPx);
-            for (int c = 0; c < 4; c++)
-              if (thisPx[c] != thatPx[c]) return false;
-          }
-        }
-        return true;
+        return Arrays.equals(this.pixels, that.pixels);
       }
     }
     return false;
@@ -230,7 +419,7 @@ public final class ComputedPixelImage extends WorldImage {
   public WorldImage movePinholeTo(Posn p) {
     ComputedPixelImage i = new ComputedPixelImage(this.width, this.height);
     i.pinhole = p;
-    i.raster.setDataElements(0, 0, this.raster);
+    System.arraycopy(this.pixels, 0, i.pixels, 0, this.pixels.length);
     return i;
   }
 }
\ No newline at end of file
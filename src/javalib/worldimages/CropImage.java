@@ -1,6 +1,7 @@
 package javalib.worldimages;
 
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
@@ -29,6 +30,16 @@ final public class CropImage extends WorldImage {
     /** the image to crop */
     WorldImage img;
 
+    /** the hashCode of the image, cached so that our own hashCode takes constant time */
+    private final int imgHashCode;
+
+    /**
+     * The cropped image, rendered on the first draw that cannot simply clip.
+     * Like the memoized bounding box, it is transient, and rendering it twice
+     * in a race is harmless.
+     */
+    private transient volatile BufferedImage cropped;
+
     /**
      * Crops <code>img</code> to the rectangle with the upper left at the point
      * (<code>x</code>,<code>y</code>) and with <code>width</code> and
@@ -52,6 +63,7 @@ final public class CropImage extends WorldImage {
         this.width = width;
         this.height = height;
         this.img = img;
+        this.imgHashCode = img.hashCode();
     }
 
     @Override
@@ -80,6 +92,11 @@ final public class CropImage extends WorldImage {
         if (i == 0) { return new AffineTransform(); }
         throw new IllegalArgumentException("No such kid " + i);
     }
+    @Override
+    void concatenateKidTransform(int i, AffineTransform t) {
+        if (i == 0) { return; }
+        throw new IllegalArgumentException("No such kid " + i);
+    }
 
     @Override
     public WorldImage movePinholeTo(Posn p) {
@@ -97,7 +114,41 @@ final public class CropImage extends WorldImage {
             return;
 
         AffineTransform oldTransform = g.getTransform();
+        g.translate(-this.width / 2.0, -this.height / 2.0);
+
+        if (isWholePixelTranslation(g.getTransform())) {
+            // Only moved by whole pixels: drawing the image through a clip
+            // gives the same pixels as rendering it into its own buffer first
+            Shape oldClip = g.getClip();
+            g.clipRect(0, 0, this.width, this.height);
+            g.translate(this.img.getWidth() / 2.0 - this.x, this.img.getHeight() / 2.0 - this.y);
+            this.img.draw(g);
+            g.setClip(oldClip);
+        } else {
+            // Otherwise the cropped pixels are transformed as a whole, as if
+            // the crop were a picture
+            BufferedImage cropped = this.cropped;
+            if (cropped == null) {
+                cropped = this.renderCropped();
+                if (!this.img.hasMutableParts()) {
+                    this.cropped = cropped;
+                }
+            }
+            g.drawImage(cropped, 0, 0, null);
+        }
+
+        g.setTransform(oldTransform);
+    }
 
+    /** Does the given transform only move things by whole pixels? */
+    private static boolean isWholePixelTranslation(AffineTransform t) {
+        return (t.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+                && t.getTranslateX() == Math.rint(t.getTranslateX())
+                && t.getTranslateY() == Math.rint(t.getTranslateY());
+    }
+
+    /** Render the cropped part of the image into a new buffer */
+    private BufferedImage renderCropped() {
         BufferedImage cropped = new BufferedImage(this.width, this.height,
                 BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2d = cropped.createGraphics();
@@ -105,33 +156,32 @@ final public class CropImage extends WorldImage {
                 / 2.0 - this.y);
         img.draw(g2d);
         g2d.dispose();
-
-        g.translate(-this.width / 2.0, -this.height / 2.0);
-        g.drawImage(cropped, new AffineTransform(), null);
-
-        g.setTransform(oldTransform);
-    }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
+        return cropped;
     }
 
+
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof CropImage) {
             CropImage that = (CropImage)other;
             if (this.x == that.x && this.y == that.y
                     && this.width == that.width && this.height == that.height
                     && this.pinhole.equals(that.pinhole)) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * The hashCode to match the equals method
+     */
+    @Override
+    public int hashCode() {
+        return this.x * 37 + this.y * 43 + this.width * 91 + this.height * 103
+            + 31 * this.imgHashCode;
+    }
 
     @Override
     public double getWidth() {
@@ -0,0 +1,108 @@
+package javalib.worldimages;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+/**
+ * A flattened, replayable form of an image tree: the images that actually
+ * draw something, in drawing order, each with the transform that the
+ * combinators above it would have applied, concatenated into one.
+ *
+ * The list is compiled by walking the tree exactly as drawing it would (see
+ * <code>Traversal.flatten</code>), so every combinator that draws its parts
+ * through the traversal is flattened away: images that draw over their parts,
+ * such as <code>{@link FrameImage FrameImage}</code>, leave an entry that
+ * finishes their drawing after their parts. Every other image, including ones
+ * with parts of their own such as <code>{@link CropImage CropImage}</code>,
+ * becomes a single entry of the list and draws itself as usual.
+ *
+ * The transforms are kept as six numbers each in a single array, and
+ * replaying concatenates each with the transform of the graphics context by
+ * hand, so compiling allocates nothing but the list itself, and replaying
+ * allocates nothing per image. Trees with more than <code>MAX_SIZE</code>
+ * drawn images are not compiled at all: the memory a list holds on to is
+ * bounded, and such trees are walked on every draw instead. Like memoized bounding boxes, a display list
+ * assumes that the images in it are not mutated after they have been drawn.
+ *
+ * @since October 18 2026
+ */
+final class DisplayList {
+    /** the most images a display list may draw */
+    static final int MAX_SIZE = 1 << 14;
+
+    /** stands for the display list of a tree with more than MAX_SIZE images */
+    static final DisplayList TOO_LARGE = new DisplayList(new WorldImage[0], new boolean[0],
+            new double[0]);
+
+    private final WorldImage[] ops;
+    /** does each entry finish drawing an image over its parts? */
+    private final boolean[] over;
+    /** six numbers per entry: its transform, relative to the compiled image */
+    private final double[] matrices;
+
+    DisplayList(WorldImage[] ops, boolean[] over, double[] matrices) {
+        this.ops = ops;
+        this.over = over;
+        this.matrices = matrices;
+    }
+
+    /** Is this image worth flattening into its parts? */
+    static boolean isFlattenable(WorldImage img) {
+        return img instanceof TransformImageBase || img instanceof OverlayOffsetAlignBase
+                || img instanceof PhantomImage || img instanceof FrameImage
+                || img instanceof VisiblePinholeImage;
+    }
+
+    /**
+     * Flatten the given image tree
+     *
+     * @param root
+     *            -- the image to flatten
+     * @return its display list, or <code>TOO_LARGE</code> if it would draw
+     *         more than <code>MAX_SIZE</code> images
+     */
+    static DisplayList compile(WorldImage root) {
+        DisplayList list = Traversal.flatten(root, MAX_SIZE);
+        return list == null ? TOO_LARGE : list;
+    }
+
+    /** @return how many images this list draws */
+    int size() {
+        return this.ops.length;
+    }
+
+    /**
+     * Draw every entry of this list, relative to the current transform of the
+     * given graphics context, which is restored afterwards
+     *
+     * @param g
+     *            -- the graphics context to draw into
+     */
+    void draw(Graphics2D g) {
+        AffineTransform base = g.getTransform();
+        double b00 = base.getScaleX();
+        double b10 = base.getShearY();
+        double b01 = base.getShearX();
+        double b11 = base.getScaleY();
+        double b02 = base.getTranslateX();
+        double b12 = base.getTranslateY();
+        AffineTransform cur = new AffineTransform();
+        double[] m = this.matrices;
+        try {
+            for (int i = 0, o = 0; i < this.ops.length; i++, o += 6) {
+                cur.setTransform(b00 * m[o] + b01 * m[o + 1], b10 * m[o] + b11 * m[o + 1],
+                        b00 * m[o + 2] + b01 * m[o + 3], b10 * m[o + 2] + b11 * m[o + 3],
+                        b00 * m[o + 4] + b01 * m[o + 5] + b02,
+                        b10 * m[o + 4] + b11 * m[o + 5] + b12);
+                g.setTransform(cur);
+                if (this.over[i]) {
+                    this.ops[i].drawOverKids(g);
+                } else {
+                    this.ops[i].drawStackUnsafe(g);
+                }
+            }
+        } finally {
+            g.setTransform(base);
+        }
+    }
+}
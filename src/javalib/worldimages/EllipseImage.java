@@ -158,10 +158,6 @@ abstract class EllipseImageBase extends WorldImage {
         // reset the original paint
         g.setPaint(oldPaint);
     }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
-    }
 
     @Override
     public double getWidth() {
@@ -186,8 +182,7 @@ abstract class EllipseImageBase extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (this.getClass().equals(other.getClass())) {
             // Check for exact class matching, and then casting to the base class is safe
             EllipseImageBase that = (EllipseImageBase)other;
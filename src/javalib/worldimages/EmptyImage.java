@@ -28,8 +28,7 @@ public class EmptyImage extends RectangleImageBase {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         return other instanceof EmptyImage && this.pinhole.equals(other.pinhole);
     }
 }
@@ -55,23 +55,35 @@ public final class FrameImage extends RectangleImageBase {
 
     @Override
     protected BoundingBox getBBHelp(AffineTransform t) {
-        return this.img.getBBHelp(t);
+        return Traversal.bounds(this, t);
+    }
+    @Override
+    boolean pushBoundedKids(Traversal t) {
+        t.push(this.img);
+        return true;
     }
 
     @Override
     protected void drawStackUnsafe(Graphics2D g) {
-        if (this.width <= 0)
-            return;
-        if (this.height <= 0)
-            return;
+        this.drawTree(g);
+    }
+    @Override
+    boolean pushDrawnKids(Traversal t) {
+        if (this.width > 0 && this.height > 0) {
+            // the frame is drawn over the image
+            t.pushOverdraw(this);
+            t.push(this.img);
+        }
+        return true;
+    }
+    @Override
+    void drawOverKids(Graphics2D g) {
         if (this.color == null)
             this.color = new Color(0, 0, 0);
 
         // save the current paint
         Paint oldPaint = g.getPaint();
         Stroke oldStroke = g.getStroke();
-        // draw the object
-        this.img.drawStackUnsafe(g);
         // set the paint to the given color
         g.setPaint(this.color);
         // Draw the frame
@@ -83,22 +95,6 @@ public final class FrameImage extends RectangleImageBase {
         g.setStroke(oldStroke);
     }
 
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        if (this.width <= 0)
-            return;
-        if (this.height <= 0)
-            return;
-        if (this.color == null)
-            this.color = new Color(0, 0, 0);
-
-        BoundingBox bb = this.img.getBB();
-        images.push(new RectangleImage((int)Math.ceil(bb.getWidth()),
-                (int)Math.ceil(bb.getHeight()), OutlineMode.OUTLINE, color));
-        txs.push(g.getTransform());
-        this.img.drawStacksafe(g, images, txs);
-    }
-
     @Override
     protected StringBuilder toIndentedStringHelp(StringBuilder sb, Stack<Object> stack) {
         sb = sb.append("new ").append(this.simpleName()).append("(");
@@ -110,13 +106,11 @@ public final class FrameImage extends RectangleImageBase {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof FrameImage) {
             FrameImage that = (FrameImage)other;
             if (this.color.equals(that.color) && this.pinhole.equals(that.pinhole)) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
@@ -1,18 +1,12 @@
 package javalib.worldimages;
 
-import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
-import java.awt.image.ColorModel;
-import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Stack;
 
 /**
@@ -32,45 +26,18 @@ import java.util.Stack;
  * @since April 4 2015
  */
 public final class FromFileImage extends WorldImage {
-    private static Map<String, BufferedImage> loadedImages = new HashMap<>();
-    private static Map<String, Long> modifiedTimes = new HashMap<>();
+    private static final ImageCache cache = new ImageCache(ImageCache.DEFAULT_MAX_BYTES);
 
     /**
-     * Construct the <code>BufferedImage</code> from the given file. The file
-     * can be given as an URL, or a reference to local image file. If this image
-     * has been loaded already, use the saved version.
+     * The cache of decoded files shared by all <code>FromFileImage</code>s,
+     * whose budget and counters can be inspected and changed
      *
-     * @param filename
-     *            the file name for the desired image
+     * @return the shared cache
      */
-    private static String loadFromFile(String filename) {
-        /** now we set up the image file for the user to process */
-        try {
-            File inputfile = new File(filename);
-            String abs = inputfile.getCanonicalPath();
-            long lastModTime = inputfile.lastModified();
-            if (loadedImages.containsKey(abs) && modifiedTimes.containsKey(abs) &&
-                    modifiedTimes.get(abs) >= lastModTime) {
-                return abs;
-            } else {
-                BufferedImage imageSource = ImageIO.read(inputfile);
-                ColorModel cmodel = imageSource.getColorModel();
-                BufferedImage image = new BufferedImage(imageSource.getWidth(), imageSource.getHeight(),
-                        BufferedImage.TYPE_INT_ARGB);
-                ColorConvertOp colorOp = new ColorConvertOp(cmodel.getColorSpace(),
-                        image.getColorModel().getColorSpace(), null);
-                colorOp.filter(imageSource, image);
-                loadedImages.put(abs, image);
-                modifiedTimes.put(abs, lastModTime);
-                return abs;
-            }
-        } catch (IOException e) {
-            System.out.println("Could not open the image file " + filename);
-        }
-        return null;
+    public static ImageCache getImageCache() {
+        return cache;
     }
 
-
     /** the file name for the image source */
     public String fileName;
 
@@ -87,14 +54,20 @@ public final class FromFileImage extends WorldImage {
      * 
      * @param fileName
      *            -- the file name for the image source
+     * @throws IllegalArgumentException
+     *             if the file cannot be read or decoded as an image
      */
     public FromFileImage(String fileName) {
         super(1);
 
-        String absName = loadFromFile(fileName);
         this.fileName = fileName;
-        this.image = loadedImages.get(absName);
-        this.modifiedTime = modifiedTimes.get(absName);
+        try {
+            ImageCache.Entry loaded = cache.load(fileName);
+            this.image = loaded.await();
+            this.modifiedTime = loaded.modifiedTime;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open the image file " + fileName, e);
+        }
     }
     @Override
     int numKids() {
@@ -119,10 +92,6 @@ public final class FromFileImage extends WorldImage {
         // Reset to original position
         g.translate((this.image.getWidth() / 2.0), (this.image.getHeight() / 2.0));
     }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
-    }
 
     @Override
     public double getWidth() {
@@ -171,8 +140,7 @@ public final class FromFileImage extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof FromFileImage) {
             FromFileImage that = (FromFileImage)other;
             return this.fileName.equals(that.fileName)
@@ -69,10 +69,6 @@ public final class FrozenImage extends WorldImage {
         g.drawImage(this.img, AffineTransform.getTranslateInstance(- this.getWidth() / 2, - this.getHeight() / 2), null);
     }
 
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
-    }
 
     @Override
     public double getWidth() {
@@ -94,8 +90,7 @@ public final class FrozenImage extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof FrozenImage && this.pinhole.equals(other.pinhole)) {
             FrozenImage that = (FrozenImage)other;
             BufferedImage imgA = this.img;
@@ -120,4 +115,11 @@ public final class FrozenImage extends WorldImage {
         return false;
     }
 
+    /**
+     * The hashCode to match the equals method
+     */
+    @Override
+    public int hashCode() {
+        return 1000 * this.img.getWidth() + this.img.getHeight();
+    }
 }
@@ -0,0 +1,390 @@
+package javalib.worldimages;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <p>
+ * The cache of decoded image files shared by every
+ * <code>{@link FromFileImage FromFileImage}</code>, available from
+ * <code>FromFileImage.getImageCache()</code>.
+ * </p>
+ *
+ * <p>
+ * Files are decoded once into ARGB images and kept, keyed by their canonical
+ * path, until their total size exceeds a byte budget; then the least
+ * recently used images are evicted. (Images that are evicted stay valid for
+ * the <code>FromFileImage</code>s already using them; the cache just stops
+ * sharing them with new ones.) A file that changes on disk is decoded again.
+ * </p>
+ *
+ * <p>
+ * By default, every load asks the file system for the file's canonical path
+ * and modification time, to notice files that changed. After
+ * <code>setWatching(true)</code>, each file name is resolved only the first
+ * time it is loaded; later loads of the same name are answered from memory,
+ * and a background thread watching the files' directories evicts the files
+ * that change, so that they are decoded again the next time they are loaded.
+ * </p>
+ *
+ * <p>
+ * The cache may be used from several threads at once. If several threads ask
+ * for the same file while it is being decoded, it is decoded only once and
+ * all of them wait for the result.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class ImageCache {
+
+    /** The default budget: 256 MiB of decoded pixels */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    /** A decoded file, or one being decoded */
+    static final class Entry {
+        final String path;
+        final long modifiedTime;
+        final FutureTask<BufferedImage> task;
+
+        /** how many bytes this entry counts for; 0 until it is decoded */
+        long bytes = 0;
+
+        /** is this entry still in the cache? */
+        volatile boolean cached = true;
+
+        Entry(final String path, long modifiedTime) {
+            this.path = path;
+            this.modifiedTime = modifiedTime;
+            this.task = new FutureTask<BufferedImage>(new Callable<BufferedImage>() {
+                public BufferedImage call() throws IOException {
+                    return decode(new File(path));
+                }
+            });
+        }
+
+        /** @return the decoded image, waiting for it if needed */
+        BufferedImage await() throws IOException {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return this.task.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException) {
+                            throw (IOException) cause;
+                        } else if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        } else if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        throw new IOException(cause);
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /** the cached files, least recently used first */
+    private final LinkedHashMap<String, Entry> entries =
+            new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /** when watching, the entries loaded under each file name, as given */
+    private final ConcurrentHashMap<String, Entry> byName = new ConcurrentHashMap<String, Entry>();
+    private WatchService watcher = null;
+    private final Set<Path> watchedDirs = new HashSet<Path>();
+
+    ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the decoded contents of the given file, decoding it if it is not
+     * cached or has changed since it was.
+     *
+     * @param filename
+     *            the file to load
+     * @return the entry for the file, whose image has been decoded
+     * @throws IOException
+     *             if the file cannot be read or decoded
+     */
+    Entry load(String filename) throws IOException {
+        Entry known = this.byName.get(filename);
+        if (known != null) {
+            synchronized (this) {
+                if (known.cached && this.watcher != null) {
+                    this.entries.get(known.path);
+                    this.hits++;
+                    return known;
+                }
+            }
+        }
+        File file = new File(filename);
+        String path = file.getCanonicalPath();
+        long modified = file.lastModified();
+        Entry entry;
+        boolean mine = false;
+        synchronized (this) {
+            entry = this.entries.get(path);
+            if (entry != null && (!entry.task.isDone() || entry.modifiedTime >= modified)) {
+                this.hits++;
+            } else {
+                if (entry != null) {
+                    this.bytes -= entry.bytes;
+                    entry.cached = false;
+                }
+                entry = new Entry(path, modified);
+                this.entries.put(path, entry);
+                this.misses++;
+                mine = true;
+            }
+        }
+        if (mine) {
+            entry.task.run();
+        }
+        BufferedImage image;
+        try {
+            image = entry.await();
+        } catch (IOException e) {
+            this.forget(entry);
+            throw e;
+        } catch (RuntimeException e) {
+            this.forget(entry);
+            throw e;
+        }
+        if (mine) {
+            synchronized (this) {
+                if (this.entries.get(path) == entry) {
+                    entry.bytes = 4L * image.getWidth() * image.getHeight();
+                    this.bytes += entry.bytes;
+                    this.evict(entry);
+                }
+            }
+        }
+        synchronized (this) {
+            if (this.watcher != null && entry.cached) {
+                try {
+                    this.watch(new File(path).getParentFile());
+                    this.byName.put(filename, entry);
+                } catch (IOException e) {
+                    // the file decoded fine, but its directory cannot be
+                    // watched, so its loads keep asking the file system
+                }
+            }
+        }
+        return entry;
+    }
+
+    /** Drop the given entry, if it is still cached */
+    private synchronized void forget(Entry entry) {
+        if (this.entries.get(entry.path) == entry) {
+            this.entries.remove(entry.path);
+            this.bytes -= entry.bytes;
+            entry.cached = false;
+        }
+    }
+
+    /**
+     * Evict the least recently used decoded entries until the cache fits its
+     * budget, keeping the given entry (which may be <code>null</code>)
+     */
+    private void evict(Entry keep) {
+        Iterator<Entry> it = this.entries.values().iterator();
+        while (this.bytes > this.maxBytes && it.hasNext()) {
+            Entry e = it.next();
+            if (e != keep && e.bytes > 0) {
+                it.remove();
+                this.bytes -= e.bytes;
+                e.cached = false;
+                this.evictions++;
+            }
+        }
+    }
+
+    /** Decode the given file into a new ARGB image */
+    static BufferedImage decode(File file) throws IOException {
+        BufferedImage imageSource = ImageIO.read(file);
+        if (imageSource == null) {
+            throw new IOException("No decoder for " + file);
+        }
+        ColorModel cmodel = imageSource.getColorModel();
+        BufferedImage image = new BufferedImage(imageSource.getWidth(), imageSource.getHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+        ColorConvertOp colorOp = new ColorConvertOp(cmodel.getColorSpace(),
+                image.getColorModel().getColorSpace(), null);
+        colorOp.filter(imageSource, image);
+        return image;
+    }
+
+    /** @return the most bytes of decoded pixels this cache keeps */
+    public synchronized long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Change the budget of this cache, evicting images if it no longer fits
+     *
+     * @param maxBytes
+     *            the most bytes of decoded pixels to keep
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.evict(null);
+    }
+
+    /** @return how many bytes of decoded pixels this cache currently holds */
+    public synchronized long getCurrentBytes() {
+        return this.bytes;
+    }
+
+    /** @return how many files this cache currently holds */
+    public synchronized int getSize() {
+        return this.entries.size();
+    }
+
+    /** @return how many loads were served from the cache, or joined a decode in progress */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /** @return how many loads had to decode their file */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /** @return how many images were evicted to stay within the budget */
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /** Forget every cached image; counters are kept */
+    public synchronized void clear() {
+        for (Entry e : this.entries.values()) {
+            e.cached = false;
+        }
+        this.entries.clear();
+        this.byName.clear();
+        this.bytes = 0;
+    }
+
+    /** @return whether loads are answered from memory and changes are noticed by watching */
+    public synchronized boolean isWatching() {
+        return this.watcher != null;
+    }
+
+    /**
+     * Start or stop answering loads of known file names from memory, and
+     * watching the directories of loaded files for changes instead.
+     *
+     * @param watching
+     *            whether to watch for changes
+     * @throws IOException
+     *             if the file system cannot watch for changes
+     */
+    public synchronized void setWatching(boolean watching) throws IOException {
+        if (watching == (this.watcher != null)) {
+            return;
+        }
+        if (watching) {
+            final WatchService service = FileSystems.getDefault().newWatchService();
+            this.watcher = service;
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    watchLoop(service);
+                }
+            }, "javalib-image-watch");
+            t.setDaemon(true);
+            t.start();
+        } else {
+            this.watcher.close();
+            this.watcher = null;
+            this.watchedDirs.clear();
+            this.byName.clear();
+        }
+    }
+
+    /** Start watching the given directory, unless it is watched already */
+    private void watch(File dir) throws IOException {
+        Path path = dir.toPath();
+        if (!this.watchedDirs.contains(path)) {
+            path.register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            this.watchedDirs.add(path);
+        }
+    }
+
+    /** Evicts the files that change, until the given service is closed */
+    private void watchLoop(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        this.invalidateDirectory(dir);
+                    } else {
+                        this.invalidate(dir.resolve((Path) event.context()).toString());
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            // stop watching
+        } catch (ClosedWatchServiceException e) {
+            // stopped by setWatching(false)
+        }
+    }
+
+    /** Evict the file at the given canonical path, if it is cached */
+    private synchronized void invalidate(String path) {
+        Entry e = this.entries.get(path);
+        if (e != null) {
+            this.forget(e);
+        }
+    }
+
+    /** Evict every cached file in the given directory */
+    private synchronized void invalidateDirectory(Path dir) {
+        Iterator<Entry> it = this.entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (dir.equals(new File(e.path).toPath().getParent())) {
+                it.remove();
+                this.bytes -= e.bytes;
+                e.cached = false;
+            }
+        }
+    }
+}
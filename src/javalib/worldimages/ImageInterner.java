@@ -0,0 +1,219 @@
+package javalib.worldimages;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * An opt-in factory that hash-conses images: structurally equal images built
+ * through the same interner are represented by a single, canonical instance.
+ * </p>
+ * <p>
+ * Worlds that rebuild the same shapes, text and combinations of them on every
+ * frame can build them through an interner instead of calling the
+ * constructors directly. Repeated requests for the same leaf image are
+ * answered from the interner without constructing (or, for
+ * <code>{@link TextImage TextImage}s</code>, measuring) a new image, and
+ * comparing two images produced by the same interner takes constant time: equal
+ * images are the same object, and distinct canonical images are known to be
+ * different without walking either of them.
+ * </p>
+ * <p>
+ * Canonical images are shared, so they must not be mutated after they have
+ * been interned. Interners are safe to use from several threads at once.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class ImageInterner {
+
+    /**
+     * One generation of canonical images. Clearing the interner starts a new
+     * generation, so that images that were canonical in an older generation
+     * are never mistaken for canonical images of the new one.
+     */
+    private static final class Generation {
+        final Object token = new Object();
+        final ConcurrentHashMap<WorldImage, WorldImage> images = new ConcurrentHashMap<WorldImage, WorldImage>();
+        final ConcurrentHashMap<List<Object>, WorldImage> built = new ConcurrentHashMap<List<Object>, WorldImage>();
+    }
+
+    private volatile Generation gen = new Generation();
+
+    /**
+     * Produces the canonical image that is structurally equal to the given
+     * one, making the given image canonical if no equal image has been interned
+     * yet.
+     *
+     * @param img
+     *            -- the image to intern
+     * @return an image equal to <code>img</code>, shared by every equal image
+     *         interned by this interner
+     */
+    public WorldImage intern(WorldImage img) {
+        Generation g = this.gen;
+        if (img.internToken() == g.token) {
+            return img;
+        }
+        WorldImage prev = g.images.putIfAbsent(img, img);
+        WorldImage canon = prev != null ? prev : img;
+        // an image made canonical in an older generation (or by another
+        // interner) still carries that generation's token: stamp it anew
+        WorldImage.Memo memo = canon.memo();
+        if (memo.internToken != g.token) {
+            memo.internToken = g.token;
+        }
+        return canon;
+    }
+
+    /**
+     * @return the number of distinct canonical images held by this interner
+     */
+    public int size() {
+        return this.gen.images.size();
+    }
+
+    /**
+     * Forgets all canonical images. Images interned before this call remain
+     * valid, but are no longer shared with images interned afterward.
+     */
+    public void clear() {
+        this.gen = new Generation();
+    }
+
+    private WorldImage lookup(Object... key) {
+        return this.gen.built.get(Arrays.asList(key));
+    }
+
+    private WorldImage remember(WorldImage img, Object... key) {
+        Generation g = this.gen;
+        WorldImage canon = this.intern(img);
+        WorldImage prev = g.built.putIfAbsent(Arrays.asList(key), canon);
+        return prev == null ? canon : prev;
+    }
+
+    // ///////////////////////////////////////////////////////////////////////
+    // Leaf images //
+    // ///////////////////////////////////////////////////////////////////////
+
+    /** The canonical <code>new CircleImage(radius, fill, color)</code> */
+    public WorldImage circle(int radius, OutlineMode fill, Color color) {
+        WorldImage img = this.lookup("circle", radius, fill, color);
+        return img != null ? img
+            : this.remember(new CircleImage(radius, fill, color), "circle", radius, fill, color);
+    }
+
+    /** The canonical <code>new EllipseImage(width, height, fill, color)</code> */
+    public WorldImage ellipse(int width, int height, OutlineMode fill, Color color) {
+        WorldImage img = this.lookup("ellipse", width, height, fill, color);
+        return img != null ? img
+            : this.remember(new EllipseImage(width, height, fill, color), "ellipse", width, height, fill, color);
+    }
+
+    /** The canonical <code>new RectangleImage(width, height, fill, color)</code> */
+    public WorldImage rectangle(int width, int height, OutlineMode fill, Color color) {
+        WorldImage img = this.lookup("rectangle", width, height, fill, color);
+        return img != null ? img
+            : this.remember(new RectangleImage(width, height, fill, color), "rectangle", width, height, fill, color);
+    }
+
+    /** The canonical <code>new LineImage(endPoint, color)</code> */
+    public WorldImage line(Posn endPoint, Color color) {
+        WorldImage img = this.lookup("line", endPoint.x, endPoint.y, color);
+        return img != null ? img
+            : this.remember(new LineImage(endPoint, color), "line", endPoint.x, endPoint.y, color);
+    }
+
+    /** The canonical <code>new TextImage(text, size, style, color)</code> */
+    public WorldImage text(String text, double size, FontStyle style, Color color) {
+        WorldImage img = this.lookup("text", text, size, style, color);
+        return img != null ? img
+            : this.remember(new TextImage(text, size, style, color), "text", text, size, style, color);
+    }
+
+    /** The canonical <code>new TextImage(text, size, color)</code> */
+    public WorldImage text(String text, double size, Color color) {
+        return this.text(text, size, FontStyle.REGULAR, color);
+    }
+
+    /** The canonical <code>new TextImage(text, color)</code> */
+    public WorldImage text(String text, Color color) {
+        return this.text(text, 13, FontStyle.REGULAR, color);
+    }
+
+    // ///////////////////////////////////////////////////////////////////////
+    // Combined images //
+    // ///////////////////////////////////////////////////////////////////////
+
+    /** The canonical <code>new OverlayImage(top, bot)</code> */
+    public WorldImage overlay(WorldImage top, WorldImage bot) {
+        top = this.intern(top);
+        bot = this.intern(bot);
+        WorldImage img = this.lookup("overlay", top, bot);
+        return img != null ? img
+            : this.remember(new OverlayImage(top, bot), "overlay", top, bot);
+    }
+
+    /** The canonical <code>new OverlayOffsetImage(top, dx, dy, bot)</code> */
+    public WorldImage overlayOffset(WorldImage top, double dx, double dy, WorldImage bot) {
+        top = this.intern(top);
+        bot = this.intern(bot);
+        WorldImage img = this.lookup("overlayOffset", top, dx, dy, bot);
+        return img != null ? img
+            : this.remember(new OverlayOffsetImage(top, dx, dy, bot), "overlayOffset", top, dx, dy, bot);
+    }
+
+    /**
+     * The canonical <code>new BesideImage(im1, ims)</code>. Every nested
+     * <code>BesideImage</code> is canonical, too.
+     */
+    public WorldImage beside(WorldImage im1, WorldImage... ims) {
+        if (ims.length == 0) {
+            return this.beside(im1, new EmptyImage());
+        }
+        WorldImage acc = this.intern(ims[ims.length - 1]);
+        for (int i = ims.length - 2; i >= -1; i--) {
+            WorldImage left = this.intern(i >= 0 ? ims[i] : im1);
+            WorldImage img = this.lookup("beside", left, acc);
+            acc = img != null ? img
+                : this.remember(new BesideImage(left, acc), "beside", left, acc);
+        }
+        return acc;
+    }
+
+    /**
+     * The canonical <code>new AboveImage(im1, ims)</code>. Every nested
+     * <code>AboveImage</code> is canonical, too.
+     */
+    public WorldImage above(WorldImage im1, WorldImage... ims) {
+        if (ims.length == 0) {
+            return this.above(im1, new EmptyImage());
+        }
+        WorldImage acc = this.intern(ims[ims.length - 1]);
+        for (int i = ims.length - 2; i >= -1; i--) {
+            WorldImage top = this.intern(i >= 0 ? ims[i] : im1);
+            WorldImage img = this.lookup("above", top, acc);
+            acc = img != null ? img
+                : this.remember(new AboveImage(top, acc), "above", top, acc);
+        }
+        return acc;
+    }
+
+    /** The canonical <code>new RotateImage(img, rotationDegrees)</code> */
+    public WorldImage rotate(WorldImage img, double rotationDegrees) {
+        img = this.intern(img);
+        WorldImage ans = this.lookup("rotate", img, rotationDegrees);
+        return ans != null ? ans
+            : this.remember(new RotateImage(img, rotationDegrees), "rotate", img, rotationDegrees);
+    }
+
+    /** The canonical <code>new ScaleImage(img, scale)</code> */
+    public WorldImage scale(WorldImage img, double scale) {
+        img = this.intern(img);
+        WorldImage ans = this.lookup("scale", img, scale);
+        return ans != null ? ans
+            : this.remember(new ScaleImage(img, scale), "scale", img, scale);
+    }
+}
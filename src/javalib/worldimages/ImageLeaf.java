@@ -0,0 +1,53 @@
+package javalib.worldimages;
+
+import java.awt.geom.AffineTransform;
+
+/**
+ * <p>
+ * One leaf of an image, as produced by
+ * <code>WorldImage.leafSpliterator</code>: an image with no images inside
+ * it, together with the transform that the images above it place it with.
+ * </p>
+ *
+ * <p>
+ * The transform is given as the six numbers of its matrix, in the order of
+ * <code>AffineTransform.getMatrix</code>; see
+ * <code>{@link LeafVisitor LeafVisitor}</code>.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class ImageLeaf {
+    /** the leaf image */
+    public final WorldImage image;
+
+    /** the matrix of the transform that places it */
+    public final double m00, m10, m01, m11, m02, m12;
+
+    ImageLeaf(WorldImage image, double m00, double m10, double m01, double m11,
+            double m02, double m12) {
+        this.image = image;
+        this.m00 = m00;
+        this.m10 = m10;
+        this.m01 = m01;
+        this.m11 = m11;
+        this.m02 = m02;
+        this.m12 = m12;
+    }
+
+    /** @return the transform that places the leaf, as a new <code>AffineTransform</code> */
+    public AffineTransform getTransform() {
+        return new AffineTransform(this.m00, this.m10, this.m01, this.m11, this.m02, this.m12);
+    }
+
+    /** @return the bounding box of the leaf, where it is placed */
+    public BoundingBox getBB() {
+        return this.image.getBB(this.getTransform());
+    }
+
+    @Override
+    public String toString() {
+        return "ImageLeaf(" + this.image.simpleName() + ", [" + this.m00 + ", " + this.m10 + ", "
+                + this.m01 + ", " + this.m11 + ", " + this.m02 + ", " + this.m12 + "])";
+    }
+}
@@ -0,0 +1,201 @@
+package javalib.worldimages;
+
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * A <code>Spliterator</code> over the leaves of an image, in drawing order,
+ * as produced by <code>WorldImage.leafSpliterator</code>.
+ * </p>
+ *
+ * <p>
+ * Like a <code>{@link Traversal Traversal}</code>, it keeps its worklist in
+ * parallel arrays, with each transform stored as the six numbers of its
+ * matrix, so only the <code>{@link ImageLeaf ImageLeaf}</code> handed to the
+ * consumer is allocated for each leaf. The number of leaves under each image
+ * is memoized, which makes the spliterator sized, and lets it split long
+ * chains of images, such as scenes built up one image at a time, into
+ * halves rather than peeling off one leaf at a time.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+final class LeafSpliterator implements Spliterator<ImageLeaf> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** the images still to visit, the next one last */
+    private WorldImage[] images;
+    /** six numbers per image: its transform */
+    private double[] matrices;
+    private int size;
+    /** how many leaves are under the images still to visit */
+    private long remaining;
+
+    /** the transform of the image being expanded, and of its kid being pushed */
+    private final AffineTransform base = new AffineTransform();
+    private final AffineTransform cur = new AffineTransform();
+
+    LeafSpliterator(WorldImage root, AffineTransform tx) {
+        this(INITIAL_CAPACITY);
+        this.push(root, tx);
+        this.remaining = root.leafCount();
+    }
+
+    private LeafSpliterator(int capacity) {
+        this.images = new WorldImage[capacity];
+        this.matrices = new double[6 * capacity];
+    }
+
+    private void push(WorldImage img, AffineTransform t) {
+        int i = this.size;
+        if (i == this.images.length) {
+            this.images = Arrays.copyOf(this.images, 2 * i);
+            this.matrices = Arrays.copyOf(this.matrices, 12 * i);
+        }
+        this.images[i] = img;
+        int o = 6 * i;
+        this.matrices[o] = t.getScaleX();
+        this.matrices[o + 1] = t.getShearY();
+        this.matrices[o + 2] = t.getShearX();
+        this.matrices[o + 3] = t.getScaleY();
+        this.matrices[o + 4] = t.getTranslateX();
+        this.matrices[o + 5] = t.getTranslateY();
+        this.size = i + 1;
+    }
+
+    /** Replace the next image to visit, which must have kids, by its kids */
+    private void expand() {
+        int i = --this.size;
+        WorldImage img = this.images[i];
+        this.images[i] = null;
+        int o = 6 * i;
+        this.base.setTransform(this.matrices[o], this.matrices[o + 1], this.matrices[o + 2],
+                this.matrices[o + 3], this.matrices[o + 4], this.matrices[o + 5]);
+        for (int k = img.numKids() - 1; k >= 0; k--) {
+            this.cur.setTransform(this.base);
+            img.concatenateKidTransform(k, this.cur);
+            this.push(img.getKid(k), this.cur);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ImageLeaf> action) {
+        while (this.size > 0) {
+            int i = this.size - 1;
+            WorldImage img = this.images[i];
+            if (img.numKids() > 0) {
+                this.expand();
+                continue;
+            }
+            this.size = i;
+            this.images[i] = null;
+            this.remaining--;
+            double[] m = this.matrices;
+            int o = 6 * i;
+            action.accept(new ImageLeaf(img, m[o], m[o + 1], m[o + 2], m[o + 3], m[o + 4], m[o + 5]));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<ImageLeaf> trySplit() {
+        long half = this.remaining / 2;
+        if (half == 0) {
+            return null;
+        }
+        // hand out the next images, opening up any that would take more than
+        // half the leaves, until exactly half the leaves are handed out
+        LeafSpliterator prefix = new LeafSpliterator(INITIAL_CAPACITY);
+        long taken = 0;
+        while (taken < half) {
+            int i = this.size - 1;
+            long count = this.images[i].leafCount();
+            if (taken + count > half) {
+                this.expand();
+                continue;
+            }
+            int j = prefix.size;
+            if (j == prefix.images.length) {
+                prefix.images = Arrays.copyOf(prefix.images, 2 * j);
+                prefix.matrices = Arrays.copyOf(prefix.matrices, 12 * j);
+            }
+            prefix.images[j] = this.images[i];
+            System.arraycopy(this.matrices, 6 * i, prefix.matrices, 6 * j, 6);
+            prefix.size = j + 1;
+            this.images[i] = null;
+            this.size = i;
+            taken += count;
+        }
+        // the image handed out first must be visited first
+        for (int j = 0, k = prefix.size - 1; j < k; j++, k--) {
+            WorldImage img = prefix.images[j];
+            prefix.images[j] = prefix.images[k];
+            prefix.images[k] = img;
+            for (int c = 0; c < 6; c++) {
+                double m = prefix.matrices[6 * j + c];
+                prefix.matrices[6 * j + c] = prefix.matrices[6 * k + c];
+                prefix.matrices[6 * k + c] = m;
+            }
+        }
+        prefix.remaining = taken;
+        this.remaining -= taken;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Count the leaves under the given image, memoizing the count of every
+     * image counted on the way
+     *
+     * @param root
+     *            -- the image whose leaves to count
+     * @return how many leaves it has
+     */
+    static long countLeaves(WorldImage root) {
+        WorldImage[] stack = new WorldImage[INITIAL_CAPACITY];
+        boolean[] opened = new boolean[INITIAL_CAPACITY];
+        int size = 1;
+        stack[0] = root;
+        while (size > 0) {
+            WorldImage img = stack[size - 1];
+            int kids = img.numKids();
+            if (img.knownLeafCount() > 0) {
+                // including every image without kids
+                stack[--size] = null;
+            } else if (!opened[size - 1]) {
+                // count the kids first, then come back to this image
+                opened[size - 1] = true;
+                for (int k = 0; k < kids; k++) {
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * size);
+                        opened = Arrays.copyOf(opened, 2 * size);
+                    }
+                    stack[size] = img.getKid(k);
+                    opened[size] = false;
+                    size++;
+                }
+            } else {
+                long leaves = 0;
+                for (int k = 0; k < kids; k++) {
+                    leaves += img.getKid(k).knownLeafCount();
+                }
+                img.memo().leaves = leaves;
+                stack[--size] = null;
+            }
+        }
+        return root.knownLeafCount();
+    }
+}
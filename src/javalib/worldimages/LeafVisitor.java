@@ -0,0 +1,30 @@
+package javalib.worldimages;
+
+/**
+ * A function called on each leaf of an image, i.e. each image that has no
+ * images inside it, for use with <code>WorldImage.visitLeaves</code>.
+ *
+ * Each leaf is passed with the transform that the images above it place it
+ * with, concatenated into one and given as the six numbers of its matrix, in
+ * the order of <code>AffineTransform.getMatrix</code>: a point (x, y) of the
+ * leaf is drawn at (m00 * x + m01 * y + m02, m10 * x + m11 * y + m12).
+ *
+ * @since October 18 2026
+ */
+@FunctionalInterface
+public interface LeafVisitor {
+  /**
+   * Visit one leaf
+   *
+   * @param leaf - the leaf image
+   * @param m00 - the x scaling of its transform
+   * @param m10 - the y shearing of its transform
+   * @param m01 - the x shearing of its transform
+   * @param m11 - the y scaling of its transform
+   * @param m02 - the x translation of its transform
+   * @param m12 - the y translation of its transform
+   * @return whether to go on to the next leaf; false stops the walk
+   */
+  boolean visit(WorldImage leaf, double m00, double m10, double m01, double m11,
+      double m02, double m12);
+}
@@ -85,10 +85,6 @@ public final class LineImage extends WorldImage {
         // reset the original paint
         g.setPaint(oldPaint);
     }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
-    }
 
     @Override
     public double getWidth() {
@@ -111,8 +107,7 @@ public final class LineImage extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof LineImage) {
             LineImage that = (LineImage) other;
             return this.endPoint.x == that.endPoint.x && this.endPoint.y == that.endPoint.y
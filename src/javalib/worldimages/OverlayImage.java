@@ -50,13 +50,6 @@ public final class OverlayImage extends OverlayOffsetAlignBase {
         return sb;
     }
 
-    /**
-     * The hashCode to match the equals method
-     */
-    public int hashCode() {
-        return this.bot.hashCode() + this.top.hashCode();
-    }
-
     @Override
     public WorldImage movePinholeTo(Posn p) {
         WorldImage i = new OverlayImage(this.top, this.bot);
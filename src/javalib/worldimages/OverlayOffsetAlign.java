@@ -174,13 +174,13 @@ abstract class OverlayOffsetAlignBase extends WorldImage {
 
     @Override
     protected BoundingBox getBBHelp(AffineTransform t) {
-        AffineTransform temp = new AffineTransform(t);
-        temp.translate(this.deltaBot.x, this.deltaBot.y);
-        BoundingBox botBox = this.bot.getBB(temp);
-        temp.setTransform(t);
-        temp.translate(this.deltaTop.x, this.deltaTop.y);
-        BoundingBox topBox = this.top.getBB(temp);
-        return botBox.combine(topBox);
+        return Traversal.bounds(this, t);
+    }
+    @Override
+    boolean pushBoundedKids(Traversal t) {
+        t.push(this.top, this.deltaTop.x, this.deltaTop.y);
+        t.push(this.bot, this.deltaBot.x, this.deltaBot.y);
+        return true;
     }
     @Override
     int numKids() {
@@ -198,33 +198,23 @@ abstract class OverlayOffsetAlignBase extends WorldImage {
         if (i == 1) { return AffineTransform.getTranslateInstance(this.deltaTop.x, this.deltaTop.y); }
         throw new IllegalArgumentException("No such kid " + i);
     }
+    @Override
+    void concatenateKidTransform(int i, AffineTransform t) {
+        if (i == 0) { t.translate(this.deltaBot.x, this.deltaBot.y); return; }
+        if (i == 1) { t.translate(this.deltaTop.x, this.deltaTop.y); return; }
+        throw new IllegalArgumentException("No such kid " + i);
+    }
 
     @Override
     protected void drawStackUnsafe(Graphics2D g) {
-        // Save the old transform state
-        AffineTransform old = g.getTransform();
-
-        // draw the two objects
-        g.translate(this.deltaBot.x, this.deltaBot.y);
-        this.bot.drawStackUnsafe(g);
-        g.setTransform(old);
-        g.translate(this.deltaTop.x, this.deltaTop.y);
-        this.top.drawStackUnsafe(g);
-
-        // Reset the transformation matrix
-        g.setTransform(old);
+        this.drawTree(g);
     }
     @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        AffineTransform cur;
-        cur = g.getTransform();
-        cur.translate(this.deltaTop.x, this.deltaTop.y);
-        txs.push(cur);
-        images.push(this.top);
-        cur = g.getTransform();
-        cur.translate(this.deltaBot.x, this.deltaBot.y);
-        txs.push(cur);
-        images.push(this.bot);
+    boolean pushDrawnKids(Traversal t) {
+        // the bottom image is drawn first, so it is pushed last
+        t.push(this.top, this.deltaTop.x, this.deltaTop.y);
+        t.push(this.bot, this.deltaBot.x, this.deltaBot.y);
+        return true;
     }
 
     @Override
@@ -252,17 +242,14 @@ abstract class OverlayOffsetAlignBase extends WorldImage {
 
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (this.getClass().equals(other.getClass())) {
             OverlayOffsetAlignBase that = (OverlayOffsetAlignBase)other;
             if (this.alignX == that.alignX && this.alignY == that.alignY
                     && this.dx == that.dx && this.dy == that.dy
                     && this.pinhole.equals(that.pinhole)) {
-                worklistThis.push(this.bot);
-                worklistThat.push(that.bot);
-                worklistThis.push(this.top);
-                worklistThat.push(that.top);
+                worklist.pushPair(this.bot, that.bot);
+                worklist.pushPair(this.top, that.top);
                 return true;
             }
         }
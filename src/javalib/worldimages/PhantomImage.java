@@ -16,6 +16,9 @@ final public class PhantomImage extends WorldImage {
     int width, height;
     WorldImage img;
 
+    /** the hashCode of the image, cached so that our own hashCode takes constant time */
+    private final int imgHashCode;
+
     /**
      * Creates a phantom image based on <code>img</code> of size
      * <code>width</code> and <code>height</code>
@@ -32,6 +35,7 @@ final public class PhantomImage extends WorldImage {
         this.img = img;
         this.width = width;
         this.height = height;
+        this.imgHashCode = img.hashCode();
     }
 
     /**
@@ -58,6 +62,11 @@ final public class PhantomImage extends WorldImage {
         if (i == 0) { return new AffineTransform(); }
         throw new IllegalArgumentException("No such kid " + i);
     }
+    @Override
+    void concatenateKidTransform(int i, AffineTransform t) {
+        if (i == 0) { return; }
+        throw new IllegalArgumentException("No such kid " + i);
+    }
 
     @Override
     protected BoundingBox getBBHelp(AffineTransform t) {
@@ -79,12 +88,12 @@ final public class PhantomImage extends WorldImage {
 
     @Override
     protected void drawStackUnsafe(Graphics2D g) {
-        this.img.drawStackUnsafe(g);
+        this.drawTree(g);
     }
     @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        images.push(this.img);
-        txs.push(g.getTransform());
+    boolean pushDrawnKids(Traversal t) {
+        t.push(this.img);
+        return true;
     }
 
     @Override
@@ -109,14 +118,12 @@ final public class PhantomImage extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
        if (other instanceof PhantomImage) {
             PhantomImage that = (PhantomImage)other;
             if (this.width == that.width && this.height == that.height
                     && this.pinhole.equals(that.pinhole)) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
@@ -125,6 +132,6 @@ final public class PhantomImage extends WorldImage {
 
     @Override
     public int hashCode() {
-        return java.util.Arrays.hashCode(new Object[]{this.width, this.height, this.img});
+        return java.util.Arrays.hashCode(new int[]{this.width, this.height, this.imgHashCode});
     }
 }
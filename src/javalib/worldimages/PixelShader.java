@@ -0,0 +1,23 @@
+package javalib.worldimages;
+
+/**
+ * A function that computes the color of each pixel of a
+ * <code>{@link ComputedPixelImage ComputedPixelImage}</code> from its
+ * coordinates, for use with <code>ComputedPixelImage.shade</code>.
+ *
+ * Shaders are called from several threads at once, in no particular order,
+ * so they should not depend on or change any shared mutable state.
+ *
+ * @since October 18 2026
+ */
+public interface PixelShader {
+  /**
+   * Compute the color of one pixel
+   *
+   * @param x - the column of the pixel
+   * @param y - the row of the pixel
+   * @return the color of the pixel, packed as in {@link java.awt.Color#getRGB}:
+   *         alpha in bits 24-31, red in 16-23, green in 8-15 and blue in 0-7
+   */
+  int shade(int x, int y);
+}
@@ -68,10 +68,6 @@ abstract class PolyImageBase extends WorldImage {
     // reset the original paint
     g.setPaint(oldPaint);
   }
-  @Override
-  protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-    this.drawStackUnsafe(g);
-  }
 
   @Override
   public double getWidth() {
@@ -84,7 +80,7 @@ abstract class PolyImageBase extends WorldImage {
   }
 
   @Override
-  protected boolean equalsStacksafe(WorldImage other, Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+  protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
     if (this.getClass().equals(other.getClass())) {
       PolyImageBase that = (PolyImageBase) other;
       AffineTransform identity = new AffineTransform();
@@ -134,10 +134,6 @@ public final class RadialStarImage extends WorldImage {
     // reset the original paint
     g.setPaint(oldPaint);
   }
-  @Override
-  protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-    this.drawStackUnsafe(g);
-  }
 
   @Override
   public double getWidth() {
@@ -163,8 +159,7 @@ public final class RadialStarImage extends WorldImage {
   }
 
   @Override
-  protected boolean equalsStacksafe(WorldImage other,
-                                    Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+  protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
     if (this.getClass().equals(other.getClass())) {
       RadialStarImage that = (RadialStarImage)other;
       return this.outerRadius == that.outerRadius && this.innerRadius == that.innerRadius
@@ -0,0 +1,416 @@
+package javalib.worldimages;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * <p>
+ * The cache of rendered images shared by every
+ * <code>{@link WorldImage WorldImage}</code>, available from
+ * <code>WorldImage.getRasterCache()</code>.
+ * </p>
+ *
+ * <p>
+ * Combined images that are drawn again and again, such as the static
+ * decorations of a scene, are rendered once into a picture that is then
+ * copied with a single <code>drawImage</code> each time they are drawn, like
+ * a <code>{@link FrozenImage FrozenImage}</code> made automatically. Pictures
+ * are kept for an image together with the transform it is drawn with, rounded
+ * to a fraction of a pixel, so that an image is rendered at the size, angle
+ * and position it is actually shown at. An image is only rendered into a
+ * picture the second time it is drawn with the same transform, so images
+ * that move smoothly or are only drawn once are never cached. Until then, the
+ * image itself remembers the transform it was last drawn with, so images
+ * that are built anew for every frame never reach the cache at all.
+ * </p>
+ *
+ * <p>
+ * Images are not cached when they are small, contain a
+ * <code>{@link ComputedPixelImage ComputedPixelImage}</code> (whose pixels
+ * may change), are drawn with a composite other than plain
+ * <code>SrcOver</code>, or when rounding their transform would move some of
+ * their pixels by a noticeable fraction of a pixel. Pictures are kept until
+ * their total size exceeds a byte budget; then the least recently drawn are
+ * evicted. The cache refers to images only weakly: the pictures of images
+ * that are no longer used are dropped. The cache may be used from several
+ * threads at once.
+ * </p>
+ *
+ * <p>
+ * A cached picture is composited onto what is already drawn all at once,
+ * rather than one part at a time, so over an opaque background, translucent
+ * parts may come out a few color levels different from drawing the image
+ * itself. The cache is therefore off until <code>setEnabled(true)</code> is
+ * called, and it is never used when drawing into a graphics context whose
+ * <code>{@link #KEY_CACHING KEY_CACHING}</code> hint is
+ * <code>Boolean.FALSE</code>, as scenes do when they are rendered into an
+ * image or compared pixel by pixel.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class RasterCache {
+
+    /** The default budget: 64 MiB of rendered pixels */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Images less deeply nested than this are cheaper to draw than to cache */
+    static final int MIN_DEPTH = 6;
+
+    /** the most images the cache keeps track of, rendered or not */
+    private static final int MAX_ENTRIES = 4096;
+
+    /** how finely the parts of a transform that scale, rotate and shear are rounded */
+    private static final double LINEAR_STEPS = 4096;
+
+    /** how finely the fractional part of a translation is rounded */
+    private static final double SUBPIXEL_STEPS = 8;
+
+    /** the furthest, in pixels, that rounding the transform may move any point of an image */
+    private static final double MAX_ERROR = 0.25;
+
+    /** extra pixels around each picture, for antialiasing and strokes */
+    private static final int PAD = 2;
+
+    private static final AffineTransform IDENTITY = new AffineTransform();
+
+    /** The key of the rendering hint that can keep drawings out of the cache */
+    private static final class CachingKey extends RenderingHints.Key {
+        CachingKey() {
+            super(0);
+        }
+
+        @Override
+        public boolean isCompatibleValue(Object val) {
+            return val instanceof Boolean;
+        }
+
+        @Override
+        public String toString() {
+            return "Raster caching";
+        }
+    }
+
+    /**
+     * The rendering hint that, set to <code>Boolean.FALSE</code>, keeps the
+     * images drawn into a graphics context from being drawn from (or into)
+     * the cache, so that they are drawn exactly
+     */
+    public static final RenderingHints.Key KEY_CACHING = new CachingKey();
+
+    /**
+     * An image together with a rounded transform. The image is only weakly
+     * referred to, so that keys in the cache do not keep it alive; once it is
+     * collected, the key equals only itself.
+     */
+    static final class Key extends WeakReference<WorldImage> {
+        final long m00, m10, m01, m11, fx, fy;
+        private final int hash;
+
+        Key(WorldImage img, ReferenceQueue<WorldImage> queue,
+                long m00, long m10, long m01, long m11, long fx, long fy) {
+            super(img, queue);
+            this.m00 = m00;
+            this.m10 = m10;
+            this.m01 = m01;
+            this.m11 = m11;
+            this.fx = fx;
+            this.fy = fy;
+            long h = System.identityHashCode(img);
+            h = h * 31 + m00;
+            h = h * 31 + m10;
+            h = h * 31 + m01;
+            h = h * 31 + m11;
+            h = h * 31 + fx;
+            h = h * 31 + fy;
+            this.hash = (int) (h ^ (h >>> 32));
+        }
+
+        /** Does the given key (which may be <code>null</code>) round to the same transform? */
+        boolean samePlacement(Key that) {
+            return that != null && this.m00 == that.m00 && this.m10 == that.m10
+                    && this.m01 == that.m01 && this.m11 == that.m11
+                    && this.fx == that.fx && this.fy == that.fy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            WorldImage img = this.get();
+            return img != null && img == that.get() && this.samePlacement(that);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /** A picture of an image, or a placeholder for one seen only once */
+    private static final class Entry {
+        /** the picture; null until the image is drawn a second time */
+        volatile BufferedImage raster;
+
+        /** where the picture's top left corner goes, relative to the whole-pixel translation */
+        int ox, oy;
+
+        /** how many bytes this entry counts for */
+        long bytes = 0;
+
+        /** is this image too large to render into a picture? */
+        boolean rejected = false;
+    }
+
+    /** the known images, least recently drawn first */
+    private final LinkedHashMap<Key, Entry> entries =
+            new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    /** the keys whose images have been collected */
+    private final ReferenceQueue<WorldImage> collected = new ReferenceQueue<WorldImage>();
+
+    private volatile boolean enabled = false;
+    private long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    RasterCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Draw the given image from its cached picture, rendering the picture if
+     * this is the second time the image is drawn with this transform. The
+     * first time, the transform is only remembered by the image, unless the
+     * image is already known to the cache.
+     *
+     * @param img
+     *            -- the image to draw
+     * @param g
+     *            -- the graphics context to draw into
+     * @return whether the image was drawn; if not, the caller must draw it
+     */
+    boolean draw(WorldImage img, Graphics2D g) {
+        if (!this.enabled || Boolean.FALSE.equals(g.getRenderingHint(KEY_CACHING))
+                || img.hasMutableParts() || !AlphaComposite.SrcOver.equals(g.getComposite())) {
+            return false;
+        }
+        AffineTransform t = g.getTransform();
+        double wholeX = Math.floor(t.getTranslateX());
+        double wholeY = Math.floor(t.getTranslateY());
+        long m00 = Math.round(t.getScaleX() * LINEAR_STEPS);
+        long m10 = Math.round(t.getShearY() * LINEAR_STEPS);
+        long m01 = Math.round(t.getShearX() * LINEAR_STEPS);
+        long m11 = Math.round(t.getScaleY() * LINEAR_STEPS);
+        long fx = Math.round((t.getTranslateX() - wholeX) * SUBPIXEL_STEPS);
+        long fy = Math.round((t.getTranslateY() - wholeY) * SUBPIXEL_STEPS);
+
+        // how far rounding could move the furthest point of the image
+        BoundingBox bb = img.getBB();
+        double extent = Math.max(Math.max(Math.abs(bb.getTlx()), Math.abs(bb.getBrx())),
+                Math.max(Math.abs(bb.getTly()), Math.abs(bb.getBry())));
+        double linearError = Math.abs(m00 / LINEAR_STEPS - t.getScaleX())
+                + Math.abs(m10 / LINEAR_STEPS - t.getShearY())
+                + Math.abs(m01 / LINEAR_STEPS - t.getShearX())
+                + Math.abs(m11 / LINEAR_STEPS - t.getScaleY());
+        if (linearError * extent + 0.5 / SUBPIXEL_STEPS > MAX_ERROR) {
+            return false;
+        }
+
+        Key key = new Key(img, this.collected, m00, m10, m01, m11, fx, fy);
+        WorldImage.Memo memo = img.memo();
+        boolean again = key.samePlacement(memo.rasterPlacement);
+        if (!memo.rasterKnown) {
+            if (!again) {
+                memo.rasterPlacement = key;
+                return false;
+            }
+            memo.rasterKnown = true;
+        }
+        memo.rasterPlacement = key;
+        Entry entry;
+        synchronized (this) {
+            this.purge();
+            entry = this.entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                this.entries.put(key, entry);
+                this.evict(entry);
+                if (!again) {
+                    return false;
+                }
+            }
+            if (entry.rejected) {
+                return false;
+            }
+            if (entry.raster != null) {
+                this.hits++;
+            }
+        }
+        if (entry.raster == null) {
+            AffineTransform exact = new AffineTransform(t);
+            exact.preConcatenate(AffineTransform.getTranslateInstance(-wholeX, -wholeY));
+            if (!this.render(img, key, entry, g, exact)) {
+                return false;
+            }
+        }
+        g.setTransform(IDENTITY);
+        g.drawImage(entry.raster, (int) wholeX + entry.ox, (int) wholeY + entry.oy, null);
+        g.setTransform(t);
+        return true;
+    }
+
+    /**
+     * Render the picture for the given entry with the given transform, which
+     * rounds to the entry's key, unless the picture would be too large
+     */
+    private boolean render(WorldImage img, Key key, Entry entry, Graphics2D g,
+            AffineTransform tx) {
+        BoundingBox bb = img.getBB(tx);
+        int ox = (int) Math.floor(bb.getTlx()) - PAD;
+        int oy = (int) Math.floor(bb.getTly()) - PAD;
+        long width = (long) Math.ceil(bb.getBrx()) + PAD - ox;
+        long height = (long) Math.ceil(bb.getBry()) + PAD - oy;
+        long size = 4L * width * height;
+        synchronized (this) {
+            if (width <= 0 || height <= 0 || width > Integer.MAX_VALUE
+                    || height > Integer.MAX_VALUE || size > this.maxBytes / 4) {
+                entry.rejected = true;
+                return false;
+            }
+        }
+        BufferedImage raster = new BufferedImage((int) width, (int) height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D rg = raster.createGraphics();
+        rg.setRenderingHints(g.getRenderingHints());
+        rg.translate(-ox, -oy);
+        rg.transform(tx);
+        img.drawUncached(rg);
+        rg.dispose();
+        synchronized (this) {
+            if (entry.raster == null) {
+                entry.ox = ox;
+                entry.oy = oy;
+                entry.bytes = size;
+                entry.raster = raster;
+                this.misses++;
+                if (this.entries.get(key) == entry) {
+                    this.bytes += size;
+                    this.evict(entry);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Drop the entries of images that have been collected */
+    private void purge() {
+        Reference<? extends WorldImage> key;
+        while ((key = this.collected.poll()) != null) {
+            Entry e = this.entries.remove(key);
+            if (e != null) {
+                this.bytes -= e.bytes;
+            }
+        }
+    }
+
+    /**
+     * Evict the least recently drawn entries until the cache fits its budget,
+     * keeping the given entry (which may be <code>null</code>)
+     */
+    private void evict(Entry keep) {
+        Iterator<Entry> it = this.entries.values().iterator();
+        while ((this.bytes > this.maxBytes || this.entries.size() > MAX_ENTRIES) && it.hasNext()) {
+            Entry e = it.next();
+            if (e != keep) {
+                it.remove();
+                this.bytes -= e.bytes;
+                if (e.bytes > 0) {
+                    this.evictions++;
+                }
+            }
+        }
+    }
+
+    /** @return whether images are cached; by default, they are not */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Start or stop caching images; stopping also forgets every picture
+     *
+     * @param enabled
+     *            whether to cache images
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.clear();
+        }
+    }
+
+    /** @return the most bytes of rendered pixels this cache keeps */
+    public synchronized long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    /**
+     * Change the budget of this cache, evicting pictures if it no longer fits
+     *
+     * @param maxBytes
+     *            the most bytes of rendered pixels to keep
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.evict(null);
+    }
+
+    /** @return how many bytes of rendered pixels this cache currently holds */
+    public synchronized long getCurrentBytes() {
+        this.purge();
+        return this.bytes;
+    }
+
+    /** @return how many images, each with a transform, this cache currently knows */
+    public synchronized int getSize() {
+        this.purge();
+        return this.entries.size();
+    }
+
+    /** @return how many draws were served by copying a picture */
+    public synchronized long getHitCount() {
+        return this.hits;
+    }
+
+    /** @return how many pictures were rendered */
+    public synchronized long getMissCount() {
+        return this.misses;
+    }
+
+    /** @return how many pictures were evicted to stay within the budget */
+    public synchronized long getEvictionCount() {
+        return this.evictions;
+    }
+
+    /** Forget every picture; counters are kept */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+}
@@ -163,10 +163,6 @@ abstract class RectangleImageBase extends WorldImage {
         // reset the original paint
         g.setPaint(oldPaint);
     }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
-    }
 
     @Override
     public double getWidth() {
@@ -192,8 +188,7 @@ abstract class RectangleImageBase extends WorldImage {
 
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (this.getClass().equals(other.getClass())) {
             // Check for exact class matching, and then casting to the base class is safe
             RectangleImageBase that = (RectangleImageBase)other;
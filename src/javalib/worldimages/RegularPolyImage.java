@@ -242,8 +242,7 @@ abstract class RegularPolyImageBase extends PolyImageBase {
 
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (this.getClass().equals(other.getClass())) {
             RegularPolyImageBase that = (RegularPolyImageBase)other;
             return this.sideLen == that.sideLen && this.sides == that.sides
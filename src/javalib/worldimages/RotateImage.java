@@ -38,13 +38,11 @@ public final class RotateImage extends TransformImageBase {
 
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof RotateImage && this.pinhole.equals(other.pinhole)){
             RotateImage that = (RotateImage)other;
             if (Math.abs(this.rotationDegrees - that.rotationDegrees) < 0.00001) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
@@ -56,7 +54,7 @@ public final class RotateImage extends TransformImageBase {
      * The hashCode to match the equals method
      */
     public int hashCode() {
-        return (int)(this.rotationDegrees * 1000);
+        return (int)(this.rotationDegrees * 1000) + 31 * this.imgHashCode;
     }
 
     @Override
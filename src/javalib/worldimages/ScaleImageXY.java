@@ -65,16 +65,14 @@ abstract class ScaleImageXYBase extends TransformImageBase {
 
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (this.getClass().equals(other.getClass())
                 && this.pinhole.equals(other.pinhole)){
             // Check for exact class matching, and then casting to the base class is safe
             ScaleImageXYBase that = (ScaleImageXYBase) other;
             if (Math.abs(this.scaleX- that.scaleX) < 0.00001 &&
                     Math.abs(this.scaleY - that.scaleY) < 0.00001) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
@@ -86,7 +84,7 @@ abstract class ScaleImageXYBase extends TransformImageBase {
      * The hashCode to match the equals method
      */
     public int hashCode() {
-        return (int) (this.scaleX * 42 + this.scaleY * -57);
+        return (int) (this.scaleX * 42 + this.scaleY * -57) + 31 * this.imgHashCode;
     }
 
     @Override
@@ -0,0 +1,161 @@
+package javalib.worldimages;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Stack;
+
+/**
+ * <p>
+ * One frame, or any other rectangle, of a
+ * <code>{@link SpriteSheetImage SpriteSheetImage}</code>.
+ * </p>
+ *
+ * <p>
+ * A sprite shares the decoded pixels of its sheet and draws its rectangle
+ * straight from them, so making and drawing sprites copies no pixels. Two
+ * sprites are equal when they show the same rectangle of the same file.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class SpriteImage extends WorldImage {
+
+    /** the file name of the sheet this sprite comes from */
+    public final String fileName;
+
+    /** the rectangle of the sheet that this sprite shows */
+    public final int x, y, width, height;
+
+    /** the decoded sheet, shared with every other sprite of it */
+    private final BufferedImage sheet;
+
+    /** the modification time of the decoded sheet */
+    private final long modifiedTime;
+
+    SpriteImage(SpriteSheetImage sheet, int x, int y, int width, int height) {
+        this(sheet.fileName, sheet.image, sheet.modifiedTime, x, y, width, height);
+    }
+
+    private SpriteImage(String fileName, BufferedImage sheet, long modifiedTime,
+            int x, int y, int width, int height) {
+        super(1);
+        this.fileName = fileName;
+        this.sheet = sheet;
+        this.modifiedTime = modifiedTime;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    int numKids() {
+        return 0;
+    }
+    @Override
+    WorldImage getKid(int i) {
+        throw new IllegalArgumentException("No such kid " + i);
+    }
+    @Override
+    AffineTransform getTransform(int i) {
+        throw new IllegalArgumentException("No such kid " + i);
+    }
+
+    @Override
+    protected void drawStackUnsafe(Graphics2D g) {
+        g.translate(-(this.width / 2.0), -(this.height / 2.0));
+        g.drawImage(this.sheet, 0, 0, this.width, this.height,
+                this.x, this.y, this.x + this.width, this.y + this.height, null);
+        g.translate((this.width / 2.0), (this.height / 2.0));
+    }
+
+    @Override
+    public double getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public double getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Retrieves the color of the requested pixel of this sprite
+     *
+     * @param x - the column of the desired pixel, relative to this sprite
+     * @param y - the row of the desired pixel, relative to this sprite
+     * @return the {@link Color} of the desired pixel
+     * @throws IndexOutOfBoundsException if (x, y) is out of bounds
+     */
+    public Color getColorAt(int x, int y) throws IndexOutOfBoundsException {
+        WorldImage.boundsCheck(x, y, this.width, this.height);
+        return new Color(this.sheet.getRGB(this.x + x, this.y + y), true);
+    }
+
+    /**
+     * A view of this sprite's pixels, sharing them with the sheet: changes to
+     * it change every sprite of the sheet, and every later load of its file.
+     *
+     * @return the sprite's pixels
+     */
+    public BufferedImage getSubimage() {
+        return this.sheet.getSubimage(this.x, this.y, this.width, this.height);
+    }
+
+    @Override
+    protected BoundingBox getBBHelp(AffineTransform t) {
+        double w = this.getWidth();
+        double h = this.getHeight();
+        Point2D tl = t.transform(new Point.Double(-w / 2, -h / 2), null);
+        Point2D br = t.transform(new Point.Double(w / 2, h / 2), null);
+        return new BoundingBox(tl.getX(), tl.getY(), br.getX(), br.getY());
+    }
+
+    @Override
+    protected StringBuilder toIndentedStringHelp(StringBuilder sb, Stack<Object> stack) {
+        sb = sb.append("new ").append(this.simpleName()).append("(")
+               .append("this.fileName = \"")
+               .append(this.fileName.replace("\\", "\\\\").replace("\"", "\\\"")).append("\", ")
+               .append("this.x = ").append(this.x).append(", ")
+               .append("this.y = ").append(this.y).append(", ")
+               .append("this.width = ").append(this.width).append(", ")
+               .append("this.height = ").append(this.height);
+        if (this.pinhole.x != 0 || this.pinhole.y != 0)
+            stack.push(new FieldsWLItem(this.pinhole));
+        else
+            sb = sb.append(")");
+        return sb;
+    }
+
+    @Override
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
+        if (other instanceof SpriteImage) {
+            SpriteImage that = (SpriteImage)other;
+            return this.fileName.equals(that.fileName)
+                    && this.modifiedTime == that.modifiedTime
+                    && this.x == that.x && this.y == that.y
+                    && this.width == that.width && this.height == that.height
+                    && this.pinhole.equals(that.pinhole);
+        }
+        return false;
+    }
+    /**
+     * The hashCode to match the equals method
+     */
+    public int hashCode() {
+        return this.fileName.hashCode() * 31 + this.x * 37 + this.y * 43
+            + this.width * 91 + this.height * 103;
+    }
+
+    @Override
+    public WorldImage movePinholeTo(Posn p) {
+        WorldImage i = new SpriteImage(this.fileName, this.sheet, this.modifiedTime,
+                this.x, this.y, this.width, this.height);
+        i.pinhole = p;
+        return i;
+    }
+}
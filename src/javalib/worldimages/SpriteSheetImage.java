@@ -0,0 +1,289 @@
+package javalib.worldimages;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Stack;
+
+/**
+ * <p>
+ * An image file holding many pictures, such as the frames of an animation or
+ * the tiles of a game board, laid out in a grid of equally sized frames.
+ * </p>
+ *
+ * <p>
+ * The file is decoded once, through the same cache as
+ * <code>{@link FromFileImage FromFileImage}</code>. Drawing the sheet draws
+ * the whole file; <code>getFrame</code> and <code>getRegion</code> hand out
+ * <code>{@link SpriteImage SpriteImage}</code>s for parts of it, which share
+ * the decoded pixels and are drawn straight from the sheet, without copying
+ * anything. Unlike a <code>{@link CropImage CropImage}</code> of a
+ * <code>FromFileImage</code>, they allocate nothing when drawn.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+public final class SpriteSheetImage extends WorldImage {
+
+    /** the file name for the sheet */
+    public final String fileName;
+
+    /** the size of each frame of the sheet's grid */
+    public final int frameWidth, frameHeight;
+
+    /** the decoded sheet, shared with the cache */
+    final BufferedImage image;
+
+    /** the modification time of the decoded file */
+    final long modifiedTime;
+
+    /** how many frames fit across and down the sheet */
+    private final int cols, rows;
+
+    /** the frames handed out so far, so each is only created once */
+    private final SpriteImage[] frames;
+
+    /**
+     * Load a sprite sheet whose frames are laid out in a grid, left to right
+     * and then top to bottom. Any partial frames at the right or bottom edges
+     * are ignored.
+     *
+     * @param fileName
+     *            -- the file name for the sheet
+     * @param frameWidth
+     *            -- the width of each frame
+     * @param frameHeight
+     *            -- the height of each frame
+     * @throws IllegalArgumentException
+     *             if the file cannot be loaded, or the frame size is not
+     *             positive
+     */
+    public SpriteSheetImage(String fileName, int frameWidth, int frameHeight) {
+        this(fileName, frameWidth, frameHeight, false);
+        if (frameWidth <= 0 || frameHeight <= 0) {
+            throw new IllegalArgumentException("Frames must be at least 1 by 1");
+        }
+    }
+
+    /**
+     * Load a sprite sheet that is treated as a single frame; parts of it can
+     * be taken with <code>getRegion</code>, as in a texture atlas
+     *
+     * @param fileName
+     *            -- the file name for the sheet
+     * @throws IllegalArgumentException
+     *             if the file cannot be loaded
+     */
+    public SpriteSheetImage(String fileName) {
+        this(fileName, 0, 0, true);
+    }
+
+    private SpriteSheetImage(String fileName, int frameWidth, int frameHeight, boolean whole) {
+        super(1);
+        this.fileName = fileName;
+        try {
+            ImageCache.Entry loaded = FromFileImage.getImageCache().load(fileName);
+            this.image = loaded.await();
+            this.modifiedTime = loaded.modifiedTime;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open the image file " + fileName, e);
+        }
+        this.frameWidth = whole ? this.image.getWidth() : frameWidth;
+        this.frameHeight = whole ? this.image.getHeight() : frameHeight;
+        this.cols = this.frameWidth > 0 ? this.image.getWidth() / this.frameWidth : 0;
+        this.rows = this.frameHeight > 0 ? this.image.getHeight() / this.frameHeight : 0;
+        this.frames = new SpriteImage[this.cols * this.rows];
+    }
+
+    private SpriteSheetImage(SpriteSheetImage other) {
+        super(1);
+        this.fileName = other.fileName;
+        this.frameWidth = other.frameWidth;
+        this.frameHeight = other.frameHeight;
+        this.image = other.image;
+        this.modifiedTime = other.modifiedTime;
+        this.cols = other.cols;
+        this.rows = other.rows;
+        this.frames = other.frames;
+    }
+
+    /** @return how many whole frames the sheet holds */
+    public int getFrameCount() {
+        return this.frames.length;
+    }
+
+    /** @return how many frames fit across the sheet */
+    public int getColumns() {
+        return this.cols;
+    }
+
+    /** @return how many frames fit down the sheet */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * The frame with the given index, counting left to right and then top to
+     * bottom from 0. Asking for the same frame twice gives the same image.
+     *
+     * @param index
+     *            -- the index of the desired frame
+     * @return the frame
+     * @throws IndexOutOfBoundsException
+     *             if there is no such frame
+     */
+    public SpriteImage getFrame(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= this.frames.length) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Specified frame (%d) is not in range [0, %d)", index, this.frames.length));
+        }
+        SpriteImage frame = this.frames[index];
+        if (frame == null) {
+            frame = new SpriteImage(this, (index % this.cols) * this.frameWidth,
+                    (index / this.cols) * this.frameHeight, this.frameWidth, this.frameHeight);
+            this.frames[index] = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * The frame in the given column and row of the sheet's grid
+     *
+     * @param col
+     *            -- the column of the desired frame
+     * @param row
+     *            -- the row of the desired frame
+     * @return the frame
+     * @throws IndexOutOfBoundsException
+     *             if there is no such frame
+     */
+    public SpriteImage getFrame(int col, int row) throws IndexOutOfBoundsException {
+        WorldImage.boundsCheck(col, row, this.cols, this.rows);
+        return this.getFrame(row * this.cols + col);
+    }
+
+    /**
+     * Any rectangle of the sheet, such as one entry of a texture atlas
+     *
+     * @param x
+     *            -- the leftmost column of the region
+     * @param y
+     *            -- the topmost row of the region
+     * @param width
+     *            -- the width of the region
+     * @param height
+     *            -- the height of the region
+     * @return the region
+     * @throws IndexOutOfBoundsException
+     *             if the region does not lie within the sheet
+     */
+    public SpriteImage getRegion(int x, int y, int width, int height)
+            throws IndexOutOfBoundsException {
+        WorldImage.boundsCheck(x, y, this.image.getWidth(), this.image.getHeight());
+        if (width <= 0 || x + width > this.image.getWidth() || height <= 0
+                || y + height > this.image.getHeight()) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Region %dx%d at (%d, %d) does not fit in the %dx%d sheet", width, height,
+                    x, y, this.image.getWidth(), this.image.getHeight()));
+        }
+        return new SpriteImage(this, x, y, width, height);
+    }
+
+    @Override
+    int numKids() {
+        return 0;
+    }
+    @Override
+    WorldImage getKid(int i) {
+        throw new IllegalArgumentException("No such kid " + i);
+    }
+    @Override
+    AffineTransform getTransform(int i) {
+        throw new IllegalArgumentException("No such kid " + i);
+    }
+
+    @Override
+    protected void drawStackUnsafe(Graphics2D g) {
+        int w = this.image.getWidth();
+        int h = this.image.getHeight();
+        g.translate(-(w / 2.0), -(h / 2.0));
+        g.drawImage(this.image, 0, 0, null);
+        g.translate((w / 2.0), (h / 2.0));
+    }
+
+    @Override
+    public double getWidth() {
+        return this.image.getWidth();
+    }
+
+    @Override
+    public double getHeight() {
+        return this.image.getHeight();
+    }
+
+    /**
+     * Retrieves the color of the requested pixel of this sheet
+     *
+     * @param x - the column of the desired pixel
+     * @param y - the row of the desired pixel
+     * @return the {@link Color} of the desired pixel
+     * @throws IndexOutOfBoundsException if (x, y) is out of bounds
+     */
+    public Color getColorAt(int x, int y) throws IndexOutOfBoundsException {
+        WorldImage.boundsCheck(x, y, this.image.getWidth(), this.image.getHeight());
+        return new Color(this.image.getRGB(x, y), true);
+    }
+
+    @Override
+    protected BoundingBox getBBHelp(AffineTransform t) {
+        double w = this.getWidth();
+        double h = this.getHeight();
+        Point2D tl = t.transform(new Point.Double(-w / 2, -h / 2), null);
+        Point2D br = t.transform(new Point.Double(w / 2, h / 2), null);
+        return new BoundingBox(tl.getX(), tl.getY(), br.getX(), br.getY());
+    }
+
+    @Override
+    protected StringBuilder toIndentedStringHelp(StringBuilder sb, Stack<Object> stack) {
+        sb = sb.append("new ").append(this.simpleName()).append("(")
+               .append("this.fileName = \"")
+               .append(this.fileName.replace("\\", "\\\\").replace("\"", "\\\"")).append("\", ")
+               .append("this.frameWidth = ").append(this.frameWidth).append(", ")
+               .append("this.frameHeight = ").append(this.frameHeight);
+        if (this.pinhole.x != 0 || this.pinhole.y != 0)
+            stack.push(new FieldsWLItem(this.pinhole));
+        else
+            sb = sb.append(")");
+        return sb;
+    }
+
+    @Override
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
+        if (other instanceof SpriteSheetImage) {
+            SpriteSheetImage that = (SpriteSheetImage)other;
+            return this.fileName.equals(that.fileName)
+                    && this.modifiedTime == that.modifiedTime
+                    && this.frameWidth == that.frameWidth
+                    && this.frameHeight == that.frameHeight
+                    && this.pinhole.equals(that.pinhole);
+        }
+        return false;
+    }
+    /**
+     * The hashCode to match the equals method
+     */
+    public int hashCode() {
+        return this.fileName.hashCode() * 31 + this.frameWidth * 7 + this.frameHeight;
+    }
+
+    @Override
+    public WorldImage movePinholeTo(Posn p) {
+        WorldImage i = new SpriteSheetImage(this);
+        i.pinhole = p;
+        return i;
+    }
+}
@@ -172,10 +172,6 @@ public final class StarImage extends WorldImage {
     // reset the original paint
     g.setPaint(oldPaint);
   }
-  @Override
-  protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-    this.drawStackUnsafe(g);
-  }
 
   @Override
   public double getWidth() {
@@ -201,8 +197,7 @@ public final class StarImage extends WorldImage {
   }
 
   @Override
-  protected boolean equalsStacksafe(WorldImage other,
-                                    Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+  protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
     if (this.getClass().equals(other.getClass())) {
       StarImage that = (StarImage)other;
       return this.radius == that.radius && this.points == that.points
@@ -1,15 +1,10 @@
 package javalib.worldimages;
 
-import javalib.worldcanvas.CanvasPanel;
-
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Paint;
-import java.awt.font.FontRenderContext;
-import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Stack;
 
@@ -53,14 +48,29 @@ public final class TextImage extends WorldImage {
 
     private double baselineDy = 0;
 
-    /** the Canvas for defining the font for this text image */
-    public static CanvasPanel c = new CanvasPanel(600, 600);
+    /** A font derived from a base font for a size and style */
+    private static final class DerivedFont {
+        final Font base;
+        final double size;
+        final FontStyle style;
+        final Font font;
+
+        DerivedFont(Font base, double size, FontStyle style) {
+            this.base = base;
+            this.size = size;
+            this.style = style;
+            this.font = base.deriveFont(style.ordinal(), (float) size);
+        }
+    }
 
-    /** the graphics context where the text is to be shown */
-    protected static Graphics2D g = c.getBufferGraphics();
+    /**
+     * The font this text was last drawn in, remembered under the same policy
+     * as <code>WorldImage.Memo</code>.
+     */
+    private transient volatile DerivedFont drawFont;
 
-    /** the current default font in our graphics context */
-    protected static Font font = g.getFont();
+    /** the font that text is measured in, before applying its size and style */
+    protected static final Font font = TextMetrics.BASE_FONT;
 
     /**
      * A full constructor for this text image.
@@ -150,8 +160,15 @@ public final class TextImage extends WorldImage {
         Paint oldPaint = g.getPaint();
         Font oldFont = g.getFont();
 
-        // change the font style and size as given
-        g.setFont(oldFont.deriveFont(this.style.ordinal(), (float) this.size));
+        // change the font style and size as given, reusing the font from
+        // the last time this text was drawn if nothing has changed
+        DerivedFont drawFont = this.drawFont;
+        if (drawFont == null || drawFont.base != oldFont
+                || drawFont.size != this.size || drawFont.style != this.style) {
+            drawFont = new DerivedFont(oldFont, this.size, this.style);
+            this.drawFont = drawFont;
+        }
+        g.setFont(drawFont.font);
         // set the paint to the given color
         g.setPaint(this.color);
 
@@ -162,10 +179,6 @@ public final class TextImage extends WorldImage {
         g.setPaint(oldPaint);
         g.setFont(oldFont);
     }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-         this.drawStackUnsafe(g);
-    }
 
     /**
      * Compute and set the width and the height for this text in the given style
@@ -180,12 +193,12 @@ public final class TextImage extends WorldImage {
 
     @Override
     protected BoundingBox getBBHelp(AffineTransform t) {
-        AffineTransform old = g.getTransform();
-        g.setTransform(t);
         Rectangle2D bounds = getBoundingBox();
-        g.setTransform(old);
-        return new BoundingBox(bounds.getMinX(), bounds.getMinY(),
-                bounds.getMaxX(), bounds.getMaxY());
+        return BoundingBox.containing(
+                WorldImage.transformPosn(t, bounds.getMinX(), bounds.getMinY()),
+                WorldImage.transformPosn(t, bounds.getMaxX(), bounds.getMinY()),
+                WorldImage.transformPosn(t, bounds.getMinX(), bounds.getMaxY()),
+                WorldImage.transformPosn(t, bounds.getMaxX(), bounds.getMaxY()));
     }
     
     /**
@@ -196,40 +209,12 @@ public final class TextImage extends WorldImage {
      * @return
      */
     private Rectangle2D getBoundingBox() {
-        Font newFont = font.deriveFont(this.style.ordinal(), (float)this.size);
-
-        FontRenderContext frc = new FontRenderContext(null, true, true);//g.getFontRenderContext();
-        TextLayout layout = new TextLayout(this.text, newFont, frc);
-
-
-        double width = layout.getBounds().getWidth();
-        double height = layout.getAscent() + layout.getDescent();
-
-        this.baselineDy = height / 2.0 - layout.getAscent();
-
-        Rectangle2D ans = new Rectangle2D.Double(-width / 2.0, -height / 2.0,
-                width, height);
-        return ans;
-/*
-        AffineTransform t = g.getTransform();
-        Point2D topLeft = new Point2D.Double(ans.getMinX(), ans.getMinY());
-        Point2D botRight = new Point2D.Double(ans.getMaxX(), ans.getMaxY());
-        Point2D topRight = new Point2D.Double(ans.getMaxX(), ans.getMinY());
-        Point2D botLeft = new Point2D.Double(ans.getMinX(), ans.getMaxY());
-        t.transform(topLeft, topLeft);
-        t.transform(topRight, topRight);
-        t.transform(botRight, botRight);
-        t.transform(botLeft, botLeft);
-        double minX = Math.min(Math.min(topLeft.getX(), topRight.getX()),
-                Math.min(botLeft.getX(), botRight.getX()));
-        double minY = Math.min(Math.min(topLeft.getY(), topRight.getY()),
-                Math.min(botLeft.getY(), botRight.getY()));
-        double maxX = Math.max(Math.max(topLeft.getX(), topRight.getX()),
-                Math.max(botLeft.getX(), botRight.getX()));
-        double maxY = Math.max(Math.max(topLeft.getY(), topRight.getY()),
-                Math.max(botLeft.getY(), botRight.getY()));
-        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
-        */
+        TextMetrics.Bounds measured = TextMetrics.measure(this.text, this.size, this.style);
+
+        this.baselineDy = measured.baselineDy;
+
+        return new Rectangle2D.Double(-measured.width / 2.0, -measured.height / 2.0,
+                measured.width, measured.height);
     }
 
     @Override
@@ -257,8 +242,7 @@ public final class TextImage extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof TextImage) {
             TextImage that = (TextImage)other;
             return this.size == that.size && this.style == that.style
@@ -0,0 +1,112 @@
+package javalib.worldimages;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures text for <code>{@link TextImage TextImage}</code>, remembering the
+ * measurements of each combination of text, size and style.
+ *
+ * Measuring needs no graphics context: layouts are built against a shared,
+ * immutable <code>FontRenderContext</code>, so text may be measured from any
+ * number of threads at once, e.g. while building scenes in parallel. If the
+ * same text is measured twice in a race, both threads compute equal results.
+ * To keep text that changes every frame (scores, timers) from growing it
+ * without bound, the cache is emptied whenever it gets too large.
+ *
+ * @since October 18 2026
+ */
+final class TextMetrics {
+    /** the most measurements to remember */
+    private static final int MAX_ENTRIES = 4096;
+
+    /** the font that sizes and styles are derived from: the default font of a graphics context */
+    static final Font BASE_FONT = new Font(Font.DIALOG, Font.PLAIN, 12);
+
+    /** antialiased, with fractional metrics, like the measurements always were */
+    private static final FontRenderContext FRC = new FontRenderContext(null, true, true);
+
+    /** The measurements of one piece of text */
+    static final class Bounds {
+        /** the width of the text's ink */
+        final double width;
+
+        /** the ascent plus the descent of the font */
+        final double height;
+
+        /** how far the baseline is below the vertical center of the box */
+        final double baselineDy;
+
+        Bounds(double width, double height, double baselineDy) {
+            this.width = width;
+            this.height = height;
+            this.baselineDy = baselineDy;
+        }
+    }
+
+    /** What was measured: the text, in the given size and style */
+    private static final class Key {
+        final String text;
+        final double size;
+        final FontStyle style;
+
+        Key(String text, double size, FontStyle style) {
+            this.text = text;
+            this.size = size;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return this.size == that.size && this.style == that.style
+                    && this.text.equals(that.text);
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(this.size);
+            return this.text.hashCode() * 31 + this.style.hashCode() * 7
+                    + (int) (bits ^ (bits >>> 32));
+        }
+    }
+
+    private static final ConcurrentHashMap<Key, Bounds> cache =
+            new ConcurrentHashMap<Key, Bounds>();
+
+    private TextMetrics() {
+    }
+
+    /**
+     * Measure the given text
+     *
+     * @param text
+     *            -- the text to measure; must not be empty
+     * @param size
+     *            -- the size of the font
+     * @param style
+     *            -- the style of the font
+     * @return the measurements of the text
+     */
+    static Bounds measure(String text, double size, FontStyle style) {
+        Key key = new Key(text, size, style);
+        Bounds bounds = cache.get(key);
+        if (bounds == null) {
+            Font font = BASE_FONT.deriveFont(style.ordinal(), (float) size);
+            TextLayout layout = new TextLayout(text, font, FRC);
+            double height = layout.getAscent() + layout.getDescent();
+            bounds = new Bounds(layout.getBounds().getWidth(), height,
+                    height / 2.0 - layout.getAscent());
+            if (cache.size() >= MAX_ENTRIES) {
+                cache.clear();
+            }
+            cache.put(key, bounds);
+        }
+        return bounds;
+    }
+}
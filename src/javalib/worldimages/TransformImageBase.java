@@ -3,7 +3,6 @@ package javalib.worldimages;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
-import java.util.Stack;
 
 abstract public class TransformImageBase extends WorldImage {
 
@@ -12,11 +11,15 @@ abstract public class TransformImageBase extends WorldImage {
 
     /** the transformation for that image */
     public AffineTransform tx;
+
+    /** the hashCode of the image, cached so that our own hashCode takes constant time */
+    protected final int imgHashCode;
     
     TransformImageBase(WorldImage img, AffineTransform tx) {
         super(1 + img.depth);
         this.img = img;
         this.tx = tx;
+        this.imgHashCode = img.hashCode();
         Point2D p = WorldImage.transformPosn(tx, img.pinhole);
         this.pinhole = new DPosn(p.getX(), p.getY()).asPosn();
     }
@@ -35,53 +38,53 @@ abstract public class TransformImageBase extends WorldImage {
         if (i == 0) { return this.tx; }
         throw new IllegalArgumentException("No such kid " + i);
     }
+    @Override
+    void concatenateKidTransform(int i, AffineTransform t) {
+        if (i == 0) { t.concatenate(this.tx); return; }
+        throw new IllegalArgumentException("No such kid " + i);
+    }
 
     @Override
     protected BoundingBox getBBHelp(AffineTransform t) {
-        AffineTransform temp = new AffineTransform(t);
-        temp.concatenate(this.tx);
-        return this.img.getBB(temp);
+        return Traversal.bounds(this, t);
+    }
+    @Override
+    boolean pushBoundedKids(Traversal t) {
+        t.push(this.img, this.tx);
+        return true;
     }
 
     @Override
     protected void drawStackUnsafe(Graphics2D g) {
-        // draw the object
-        AffineTransform old = g.getTransform();
-        g.transform(this.tx);
-
-        // draw rotated shape/image
-        this.img.drawStackUnsafe(g);
-
-        // Reset the transform to the old transform
-        g.setTransform(old);
+        this.drawTree(g);
     }
-
     @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        if (this.getWidth() <= 0)
-            return;
-        if (this.getHeight() <= 0)
-            return;
-        images.push(this.img);
-        AffineTransform temp = g.getTransform();
-        temp.concatenate(this.tx);
-        txs.push(temp);
+    boolean pushDrawnKids(Traversal t) {
+        // draw rotated shape/image
+        t.push(this.img, this.tx);
+        return true;
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (this.getClass().equals(other.getClass())) {
             TransformImageBase that = (TransformImageBase) other;
             if (this.tx.equals(that.tx) && this.pinhole.equals(that.pinhole)) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * The hashCode to match the equals method
+     */
+    @Override
+    public int hashCode() {
+        return this.tx.hashCode() + 31 * this.imgHashCode;
+    }
+
     @Override
     public double getWidth() {
         return this.getBB().getWidth();
@@ -0,0 +1,516 @@
+package javalib.worldimages;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The worklist that drawing, measuring, comparing and visiting the leaves of
+ * images walk image trees with, so that images of any depth are handled in constant stack space.
+ * </p>
+ *
+ * <p>
+ * Combined images push the images they are made of onto the traversal, the
+ * one to visit last first, each with the transform that places it: see
+ * <code>WorldImage.pushDrawnKids</code>, <code>pushBoundedKids</code> and
+ * <code>equalsStacksafe</code>. The worklist is kept in parallel arrays, with
+ * each transform stored as the six numbers of its matrix, so walking a tree
+ * allocates nothing per image. Each thread reuses its own traversals from
+ * one walk to the next; a walk started while another is under way on the
+ * same thread (e.g. a <code>{@link CropImage CropImage}</code> drawing the
+ * image it crops) uses a traversal of its own.
+ * </p>
+ *
+ * <p>
+ * Bounding boxes are folded bottom-up: a combined image is left on the
+ * worklist, marked as exited, beneath its parts, and accumulates their boxes
+ * as they are finished. Like <code>WorldImage.getBB(AffineTransform)</code>,
+ * the boxes of images that are only translated are computed once and
+ * memoized, so measuring a tree built up from measured parts is cheap.
+ * </p>
+ *
+ * @since October 18 2026
+ */
+final class Traversal {
+    private static final int DRAW = 0;
+    private static final int BOUNDS = 1;
+    private static final int EQUALS = 2;
+    private static final int LEAVES = 3;
+
+    /** the entry is an image whose parts have all been visited */
+    private static final int EXITED = 1;
+    /** the entry draws over the parts of an image that were drawn before it */
+    private static final int OVERDRAW = 2;
+    /** the entry is only translated: its box is computed untransformed, then memoized and moved */
+    private static final int MEMOIZED = 4;
+
+    /** how many entries fit in a fresh traversal */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** traversals that grew larger than this are shrunk after their walk */
+    private static final int RETAINED_CAPACITY = 1 << 14;
+
+    private static final ThreadLocal<Traversal> traversals = new ThreadLocal<Traversal>() {
+        @Override
+        protected Traversal initialValue() {
+            return new Traversal();
+        }
+    };
+
+    /** the images on the worklist */
+    private WorldImage[] images;
+    /** the images they are compared with, when comparing */
+    private WorldImage[] others;
+    /**
+     * six numbers per entry: its transform, or once exited, the box of the
+     * parts visited so far followed by the translation of the image
+     */
+    private double[] matrices;
+    private int[] flags;
+    /** the entry that each entry's box is added to; -1 for the root */
+    private int[] parents;
+    private int size;
+
+    private int mode;
+    /** the entry whose parts are being pushed */
+    private int parent;
+    /** the transform of the image whose parts are being pushed */
+    private final AffineTransform cur = new AffineTransform();
+    /** the transform of the part being pushed */
+    private final AffineTransform kid = new AffineTransform();
+    /** the bounding box of the whole tree */
+    private double tlx, tly, brx, bry;
+
+    private boolean busy;
+    /** the traversal to use for a walk started during this one */
+    private Traversal nested;
+
+    private Traversal() {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.images = new WorldImage[capacity];
+        this.others = null;
+        this.matrices = new double[6 * capacity];
+        this.flags = new int[capacity];
+        this.parents = new int[capacity];
+    }
+
+    private static Traversal acquire(int mode) {
+        Traversal t = traversals.get();
+        while (t.busy) {
+            if (t.nested == null) {
+                t.nested = new Traversal();
+            }
+            t = t.nested;
+        }
+        t.busy = true;
+        t.mode = mode;
+        t.size = 0;
+        return t;
+    }
+
+    private void release() {
+        for (int i = 0; i < this.size; i++) {
+            this.images[i] = null;
+            if (this.others != null) {
+                this.others[i] = null;
+            }
+        }
+        this.size = 0;
+        if (this.images.length > RETAINED_CAPACITY) {
+            this.allocate(INITIAL_CAPACITY);
+        }
+        this.busy = false;
+    }
+
+    /** Make room for one more entry, returning its index */
+    private int add(WorldImage img, int flags) {
+        int i = this.size;
+        if (i == this.images.length) {
+            int capacity = 2 * i;
+            this.images = Arrays.copyOf(this.images, capacity);
+            if (this.others != null) {
+                this.others = Arrays.copyOf(this.others, capacity);
+            }
+            this.matrices = Arrays.copyOf(this.matrices, 6 * capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            this.parents = Arrays.copyOf(this.parents, capacity);
+        }
+        this.images[i] = img;
+        this.flags[i] = flags;
+        this.parents[i] = this.parent;
+        this.size = i + 1;
+        return i;
+    }
+
+    private void store(int i, AffineTransform t) {
+        int o = 6 * i;
+        this.matrices[o] = t.getScaleX();
+        this.matrices[o + 1] = t.getShearY();
+        this.matrices[o + 2] = t.getShearX();
+        this.matrices[o + 3] = t.getScaleY();
+        this.matrices[o + 4] = t.getTranslateX();
+        this.matrices[o + 5] = t.getTranslateY();
+    }
+
+    private void load(int i, AffineTransform t) {
+        int o = 6 * i;
+        t.setTransform(this.matrices[o], this.matrices[o + 1], this.matrices[o + 2],
+                this.matrices[o + 3], this.matrices[o + 4], this.matrices[o + 5]);
+    }
+
+    /**
+     * Push a part of the current image, placed where the image itself is
+     *
+     * @param img
+     *            -- the part
+     */
+    void push(WorldImage img) {
+        this.kid.setTransform(this.cur);
+        this.pushKid(img);
+    }
+
+    /**
+     * Push a part of the current image, moved by the given offsets
+     *
+     * @param img
+     *            -- the part
+     * @param dx
+     *            -- how far to move it right
+     * @param dy
+     *            -- how far to move it down
+     */
+    void push(WorldImage img, double dx, double dy) {
+        this.kid.setTransform(this.cur);
+        this.kid.translate(dx, dy);
+        this.pushKid(img);
+    }
+
+    /**
+     * Push a part of the current image, transformed by the given transform
+     *
+     * @param img
+     *            -- the part
+     * @param tx
+     *            -- the transform to apply to it
+     */
+    void push(WorldImage img, AffineTransform tx) {
+        this.kid.setTransform(this.cur);
+        this.kid.concatenate(tx);
+        this.pushKid(img);
+    }
+
+    private void pushKid(WorldImage img) {
+        if (this.mode == BOUNDS) {
+            int type = this.kid.getType();
+            if (type == AffineTransform.TYPE_IDENTITY || type == AffineTransform.TYPE_TRANSLATION) {
+                double dx = this.kid.getTranslateX();
+                double dy = this.kid.getTranslateY();
+                BoundingBox memo = img.bb;
+                if (memo != null) {
+                    this.addBounds(this.parent, memo.getTlx() + dx, memo.getTly() + dy,
+                            memo.getBrx() + dx, memo.getBry() + dy);
+                } else {
+                    int o = 6 * this.add(img, MEMOIZED);
+                    this.matrices[o + 4] = dx;
+                    this.matrices[o + 5] = dy;
+                }
+                return;
+            }
+        }
+        this.store(this.add(img, 0), this.kid);
+    }
+
+    /**
+     * When drawing, arrange for the given image's
+     * <code>drawOverKids</code> to be called, where the image is placed, after
+     * every part pushed after this has been drawn
+     *
+     * @param img
+     *            -- the image that draws over its parts
+     */
+    void pushOverdraw(WorldImage img) {
+        if (this.mode == DRAW) {
+            this.store(this.add(img, OVERDRAW), this.cur);
+        }
+    }
+
+    /**
+     * Push two images that must be equal for the images being compared to be
+     * equal
+     *
+     * @param one
+     *            -- a part of one image
+     * @param two
+     *            -- the corresponding part of the other
+     */
+    void pushPair(WorldImage one, WorldImage two) {
+        if (this.others == null) {
+            this.others = new WorldImage[this.images.length];
+        }
+        int i = this.add(one, 0);
+        this.others[i] = two;
+    }
+
+    /**
+     * Draw the given image tree, relative to the current transform of the
+     * given graphics context, which is restored afterwards
+     *
+     * @param root
+     *            -- the image to draw
+     * @param g
+     *            -- the graphics context to draw into
+     */
+    static void draw(WorldImage root, Graphics2D g) {
+        AffineTransform base = g.getTransform();
+        Traversal t = acquire(DRAW);
+        try {
+            t.parent = -1;
+            t.store(t.add(root, 0), base);
+            while (t.size > 0) {
+                int i = --t.size;
+                WorldImage img = t.images[i];
+                t.images[i] = null;
+                t.load(i, t.cur);
+                if ((t.flags[i] & OVERDRAW) != 0) {
+                    g.setTransform(t.cur);
+                    img.drawOverKids(g);
+                } else if (!img.pushDrawnKids(t)) {
+                    g.setTransform(t.cur);
+                    img.drawStackUnsafe(g);
+                }
+            }
+        } finally {
+            t.release();
+            g.setTransform(base);
+        }
+    }
+
+    /**
+     * Walk the given image tree as drawing it would, but instead of drawing
+     * the images that draw something, list them with their transforms
+     * relative to the root. The tree is walked twice, first to count them, so
+     * that the list is allocated at its exact size, and not at all if it is
+     * too large.
+     *
+     * @param root
+     *            -- the image to flatten
+     * @param maxSize
+     *            -- the most images the list may hold
+     * @return the display list of the tree, or null if it would hold more
+     *         than <code>maxSize</code> images
+     */
+    static DisplayList flatten(WorldImage root, int maxSize) {
+        int n = flattenInto(root, maxSize, null, null, null);
+        if (n < 0) {
+            return null;
+        }
+        WorldImage[] ops = new WorldImage[n];
+        boolean[] over = new boolean[n];
+        double[] matrices = new double[6 * n];
+        flattenInto(root, n, ops, over, matrices);
+        return new DisplayList(ops, over, matrices);
+    }
+
+    /**
+     * Walk the given image tree as drawing it would, storing the images that
+     * draw something into the given arrays, if they are not null
+     *
+     * @return how many images draw something, or -1 if more than maxSize do
+     */
+    private static int flattenInto(WorldImage root, int maxSize, WorldImage[] ops,
+            boolean[] over, double[] matrices) {
+        Traversal t = acquire(DRAW);
+        int n = 0;
+        try {
+            t.parent = -1;
+            t.cur.setToIdentity();
+            t.store(t.add(root, 0), t.cur);
+            while (t.size > 0) {
+                int i = --t.size;
+                WorldImage img = t.images[i];
+                t.images[i] = null;
+                boolean overdraw = (t.flags[i] & OVERDRAW) != 0;
+                if (!overdraw) {
+                    t.load(i, t.cur);
+                    if (img.pushDrawnKids(t)) {
+                        continue;
+                    }
+                }
+                if (n == maxSize) {
+                    return -1;
+                }
+                if (ops != null) {
+                    // a leaf pushed nothing, so its transform is still at i
+                    ops[n] = img;
+                    over[n] = overdraw;
+                    System.arraycopy(t.matrices, 6 * i, matrices, 6 * n, 6);
+                }
+                n++;
+            }
+            return n;
+        } finally {
+            t.release();
+        }
+    }
+
+    /**
+     * Compute the bounding box of the given image tree under the given
+     * transform; the boxes of its translated parts are memoized on the way
+     *
+     * @param root
+     *            -- the image to measure
+     * @param tx
+     *            -- the transform to apply to it
+     * @return its bounding box
+     */
+    static BoundingBox bounds(WorldImage root, AffineTransform tx) {
+        Traversal t = acquire(BOUNDS);
+        try {
+            t.tlx = t.tly = Double.POSITIVE_INFINITY;
+            t.brx = t.bry = Double.NEGATIVE_INFINITY;
+            t.parent = -1;
+            t.store(t.add(root, 0), tx);
+            while (t.size > 0) {
+                int i = t.size - 1;
+                int o = 6 * i;
+                int f = t.flags[i];
+                WorldImage img = t.images[i];
+                double[] m = t.matrices;
+                if ((f & EXITED) != 0) {
+                    t.size = i;
+                    t.images[i] = null;
+                    if ((f & MEMOIZED) != 0) {
+                        img.bb = new BoundingBox(m[o], m[o + 1], m[o + 2], m[o + 3]);
+                        t.addBounds(t.parents[i], m[o] + m[o + 4], m[o + 1] + m[o + 5],
+                                m[o + 2] + m[o + 4], m[o + 3] + m[o + 5]);
+                    } else {
+                        t.addBounds(t.parents[i], m[o], m[o + 1], m[o + 2], m[o + 3]);
+                    }
+                    continue;
+                }
+                // leave the image beneath its parts, to gather their boxes
+                if ((f & MEMOIZED) != 0) {
+                    t.cur.setToIdentity();
+                } else {
+                    t.load(i, t.cur);
+                    m[o + 4] = m[o + 5] = 0;
+                }
+                t.flags[i] = f | EXITED;
+                m[o] = m[o + 1] = Double.POSITIVE_INFINITY;
+                m[o + 2] = m[o + 3] = Double.NEGATIVE_INFINITY;
+                t.parent = i;
+                if (!img.pushBoundedKids(t)) {
+                    t.size = i;
+                    t.images[i] = null;
+                    BoundingBox leaf = img.getBBHelp(t.cur);
+                    double dx = t.matrices[o + 4];
+                    double dy = t.matrices[o + 5];
+                    if ((f & MEMOIZED) != 0) {
+                        img.bb = leaf;
+                    }
+                    t.addBounds(t.parents[i], leaf.getTlx() + dx, leaf.getTly() + dy,
+                            leaf.getBrx() + dx, leaf.getBry() + dy);
+                }
+            }
+            return new BoundingBox(t.tlx, t.tly, t.brx, t.bry);
+        } finally {
+            t.release();
+        }
+    }
+
+    /** Add the given box to the box gathered for the given entry */
+    private void addBounds(int i, double tlx, double tly, double brx, double bry) {
+        if (i < 0) {
+            this.tlx = Math.min(this.tlx, tlx);
+            this.tly = Math.min(this.tly, tly);
+            this.brx = Math.max(this.brx, brx);
+            this.bry = Math.max(this.bry, bry);
+        } else {
+            double[] m = this.matrices;
+            int o = 6 * i;
+            m[o] = Math.min(m[o], tlx);
+            m[o + 1] = Math.min(m[o + 1], tly);
+            m[o + 2] = Math.max(m[o + 2], brx);
+            m[o + 3] = Math.max(m[o + 3], bry);
+        }
+    }
+
+    /**
+     * Compare two image trees for extensional equality
+     *
+     * @param one
+     *            -- an image
+     * @param two
+     *            -- the image to compare it with
+     * @return whether the images are equal
+     */
+    static boolean equal(WorldImage one, WorldImage two) {
+        Traversal t = acquire(EQUALS);
+        try {
+            t.parent = -1;
+            t.pushPair(one, two);
+            while (t.size > 0) {
+                int i = --t.size;
+                WorldImage a = t.images[i];
+                WorldImage b = t.others[i];
+                t.images[i] = null;
+                t.others[i] = null;
+                if (a == b) continue; // fast success path
+                Object token = a.internToken();
+                if (token != null && token == b.internToken())
+                    return false; // fast failure path: distinct canonical images
+                if (!a.equalsStacksafe(b, t))
+                    return false;
+            }
+            return true;
+        } finally {
+            t.release();
+        }
+    }
+
+    /**
+     * Visit every leaf of the given image tree, in drawing order, with its
+     * transform concatenated onto the given one
+     *
+     * @param root
+     *            -- the image whose leaves to visit
+     * @param tx
+     *            -- the transform to place the image with
+     * @param visitor
+     *            -- the function to call on each leaf
+     * @return false if the visitor stopped the walk early
+     */
+    static boolean visitLeaves(WorldImage root, AffineTransform tx, LeafVisitor visitor) {
+        Traversal t = acquire(LEAVES);
+        try {
+            t.parent = -1;
+            t.store(t.add(root, 0), tx);
+            while (t.size > 0) {
+                int i = --t.size;
+                WorldImage img = t.images[i];
+                t.images[i] = null;
+                int kids = img.numKids();
+                if (kids == 0) {
+                    double[] m = t.matrices;
+                    int o = 6 * i;
+                    if (!visitor.visit(img, m[o], m[o + 1], m[o + 2], m[o + 3], m[o + 4], m[o + 5]))
+                        return false;
+                } else {
+                    t.load(i, t.cur);
+                    for (int k = kids - 1; k >= 0; k--) {
+                        t.kid.setTransform(t.cur);
+                        img.concatenateKidTransform(k, t.kid);
+                        t.store(t.add(img.getKid(k), 0), t.kid);
+                    }
+                }
+            }
+            return true;
+        } finally {
+            t.release();
+        }
+    }
+}
@@ -144,10 +144,6 @@ public final class TriangleImage extends WorldImage {
         // reset the original paint
         g.setPaint(oldPaint);
     }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        this.drawStackUnsafe(g);
-    }
 
     @Override
     public double getWidth() {
@@ -176,8 +172,7 @@ public final class TriangleImage extends WorldImage {
 
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof TriangleImage) {
             TriangleImage that = (TriangleImage)other;
             return this.fill == that.fill && this.p1.x == that.p1.x
@@ -16,6 +16,9 @@ import java.util.Stack;
 public final class VisiblePinholeImage extends WorldImage {
     WorldImage img;
     Color color;
+
+    /** the hashCode of the image, cached so that our own hashCode takes constant time */
+    private final int imgHashCode;
     static final LineImage line1 = new LineImage(new Posn(10, 0), Color.BLACK);
     static final LineImage line2 = new LineImage(new Posn(0, 10), Color.BLACK);
 
@@ -32,6 +35,7 @@ public final class VisiblePinholeImage extends WorldImage {
         super(img.pinhole, 1 + img.depth);
         this.img = img;
         this.color = c;
+        this.imgHashCode = img.hashCode();
     }
     @Override
     int numKids() {
@@ -51,10 +55,21 @@ public final class VisiblePinholeImage extends WorldImage {
         if (i == 2) { return AffineTransform.getTranslateInstance(this.img.pinhole.x, this.img.pinhole.y); }
         throw new IllegalArgumentException("No such kid " + i);
     }
+    @Override
+    void concatenateKidTransform(int i, AffineTransform t) {
+        if (i == 0) { return; }
+        if (i == 1 || i == 2) { t.translate(this.img.pinhole.x, this.img.pinhole.y); return; }
+        throw new IllegalArgumentException("No such kid " + i);
+    }
 
     @Override
     protected BoundingBox getBBHelp(AffineTransform t) {
-        return this.img.getBB(t);
+        return Traversal.bounds(this, t);
+    }
+    @Override
+    boolean pushBoundedKids(Traversal t) {
+        t.push(this.img);
+        return true;
     }
 
     @Override
@@ -64,26 +79,23 @@ public final class VisiblePinholeImage extends WorldImage {
 
     @Override
     protected void drawStackUnsafe(Graphics2D g) {
-        AffineTransform oldTransform = g.getTransform();
-        this.img.drawStackUnsafe(g);
+        this.drawTree(g);
+    }
+    @Override
+    boolean pushDrawnKids(Traversal t) {
+        // the pinhole is drawn over the image
+        t.pushOverdraw(this);
+        t.push(this.img);
+        return true;
+    }
+    @Override
+    void drawOverKids(Graphics2D g) {
         g.translate(this.img.pinhole.x, this.img.pinhole.y);
         Paint oldPaint = g.getPaint();
         g.setColor(this.color);
         g.drawLine(-5, 0, 5, 0);
         g.drawLine(0, -5, 0, 5);
         g.setPaint(oldPaint);
-        g.setTransform(oldTransform);
-    }
-    @Override
-    protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-        AffineTransform t = g.getTransform();
-        t.translate(this.img.pinhole.x, this.img.pinhole.y);
-        txs.push(t);
-        images.push(new LineImage(new Posn(10, 0), this.color));
-        txs.push(t);
-        images.push(new LineImage(new Posn(0, 10), this.color));
-        txs.push(g.getTransform());
-        images.push(this.img);
     }
 
     @Override
@@ -106,17 +118,22 @@ public final class VisiblePinholeImage extends WorldImage {
     }
 
     @Override
-    protected boolean equalsStacksafe(WorldImage other,
-                                      Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+    protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
         if (other instanceof VisiblePinholeImage) {
             VisiblePinholeImage that = (VisiblePinholeImage)other;
             if (this.img.pinhole.equals(that.img.pinhole)) {
-                worklistThis.push(this.img);
-                worklistThat.push(that.img);
+                worklist.pushPair(this.img, that.img);
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * The hashCode to match the equals method
+     */
+    @Override
+    public int hashCode() {
+        return this.img.pinhole.hashCode() + 31 * this.imgHashCode;
+    }
 }
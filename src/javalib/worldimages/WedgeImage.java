@@ -231,10 +231,6 @@ public final class WedgeImage extends EllipseImageBase {
     g.setPaint(oldPaint);
   }
 
-  @Override
-  protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs) {
-    this.drawStackUnsafe(g);
-  }
 
   @Override
   protected StringBuilder toIndentedStringHelp(StringBuilder sb, Stack<Object> stack) {
@@ -249,8 +245,7 @@ public final class WedgeImage extends EllipseImageBase {
   }
 
   @Override
-  protected boolean equalsStacksafe(WorldImage other,
-                                    Stack<WorldImage> worklistThis, Stack<WorldImage> worklistThat) {
+  protected boolean equalsStacksafe(WorldImage other, Traversal worklist) {
     if (this.getClass().equals(other.getClass())) {
       // Check for exact class matching, and then casting to the base class is safe
       WedgeImage that = (WedgeImage) other;
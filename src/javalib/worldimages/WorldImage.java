@@ -7,9 +7,9 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Spliterator;
 import java.util.Stack;
-import java.util.WeakHashMap;
-import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * <p>Copyright 2015 Ben Lerner</p>
@@ -36,11 +36,105 @@ public abstract class WorldImage {
      */
     public Posn pinhole;
     /**
-     * This can't be a field on the object itself, or else the presence or absence of a cached
-     * bounding box might affect the tester library deciding if two objects are the same or not
+     * The memoized bounding box of this image, computed on first request.  It is transient (and
+     * excluded from equals and hashCode), so that the presence or absence of a cached bounding box
+     * does not affect the tester library deciding if two objects are the same or not.  It is
+     * volatile so that images built on one thread can be measured safely on another; computing
+     * it twice in a race is harmless, since both threads produce equal boxes.
      */
-    static WeakHashMap<WorldImage, BoundingBox> bbCache;
+    transient volatile BoundingBox bb;
     
+    /**
+     * <p>
+     * What this image remembers about itself beyond its bounding box, kept in
+     * a side object so that the many images that never need it pay for a
+     * single field; see <code>memo()</code>.
+     * </p>
+     *
+     * <p>
+     * Everything in it is derived from the image, which is assumed not to
+     * change once it has been measured or drawn, so it is transient (and
+     * excluded from equals and hashCode), it is computed on first request,
+     * and computing it twice in a race is harmless: both threads compute the
+     * same thing, or one of them merely misses a shortcut. The memo itself is
+     * created at most once per image, so nothing stored in it is lost.
+     * </p>
+     */
+    static final class Memo {
+        /**
+         * If this image is canonical in some {@link ImageInterner}, the token of the interner
+         * generation that made it so.  Two distinct images with the same token are never equal.
+         */
+        volatile Object internToken;
+
+        /** The flattened form of this image, compiled the second time it is drawn */
+        volatile DisplayList displayList;
+
+        /** Has this image been drawn before? */
+        volatile boolean drawnOnce;
+
+        /**
+         * Does this image contain a <code>ComputedPixelImage</code>, whose pixels
+         * may change after it is drawn?
+         */
+        volatile Boolean mutableParts;
+
+        /** How many leaves this image has, or 0 if not yet counted */
+        volatile long leaves;
+
+        /**
+         * The rounded transform this image was last drawn with while the raster
+         * cache was enabled, and whether the cache has taken note of this image,
+         * so that images drawn only once never reach the cache.
+         */
+        volatile RasterCache.Key rasterPlacement;
+        volatile boolean rasterKnown;
+    }
+
+    /** This image's memo, or null until something needs to be remembered */
+    private transient volatile Memo memo;
+
+    private static final AtomicReferenceFieldUpdater<WorldImage, Memo> MEMO =
+            AtomicReferenceFieldUpdater.newUpdater(WorldImage.class, Memo.class, "memo");
+
+    /** @return this image's memo, created if need be */
+    final Memo memo() {
+        Memo m = this.memo;
+        if (m == null) {
+            MEMO.compareAndSet(this, null, new Memo());
+            m = this.memo;
+        }
+        return m;
+    }
+
+    /** @return the token of the interner generation this image is canonical in, or null */
+    final Object internToken() {
+        Memo m = this.memo;
+        return m == null ? null : m.internToken;
+    }
+
+    /** @return how many leaves this image is known to have, or 0 if not yet counted */
+    final long knownLeafCount() {
+        if (this.numKids() == 0) {
+            return 1;
+        }
+        Memo m = this.memo;
+        return m == null ? 0 : m.leaves;
+    }
+
+    /** The cache of rendered pictures of images that are drawn repeatedly */
+    private static final RasterCache rasterCache = new RasterCache(RasterCache.DEFAULT_MAX_BYTES);
+
+    /**
+     * The cache of rendered pictures of images that are drawn repeatedly,
+     * which is off until enabled, and can be inspected or resized
+     *
+     * @return the shared raster cache
+     */
+    public static RasterCache getRasterCache() {
+        return rasterCache;
+    }
+
     /** this describes how deeply nested the image object is constructed */
     int depth;
     
@@ -63,59 +157,107 @@ public abstract class WorldImage {
     protected WorldImage(Posn pinhole, int depth) {
         this.pinhole = pinhole;
         this.depth = depth;
-        if (WorldImage.bbCache == null)
-            WorldImage.bbCache = new WeakHashMap<WorldImage, BoundingBox>();
     }
 
     abstract int numKids();
     abstract WorldImage getKid(int i);
     abstract AffineTransform getTransform(int i);
+
+    /**
+     * Concatenate the transform of kid <code>i</code> onto the given
+     * transform, like <code>t.concatenate(this.getTransform(i))</code> but
+     * without allocating a new transform
+     */
+    void concatenateKidTransform(int i, AffineTransform t) {
+        t.concatenate(this.getTransform(i));
+    }
+
+    /** How many leaves does this image have, counting shared images once per use? */
+    final long leafCount() {
+        long count = this.knownLeafCount();
+        if (count == 0) {
+            count = LeafSpliterator.countLeaves(this);
+        }
+        return count;
+    }
+
+    /**
+     * Visit every leaf of this image, i.e. every image inside it that has no
+     * images inside it, in the order they are drawn.  Each leaf is given with
+     * the transform that the images above it place it with, relative to this
+     * image.  Visiting allocates nothing per image, however large the image.
+     * 
+     * @param visitor
+     *            -- the function to call on each leaf
+     * @return false if the visitor stopped the walk early
+     */
+    public final boolean visitLeaves(LeafVisitor visitor) {
+        return this.visitLeaves(new AffineTransform(), visitor);
+    }
+
+    /**
+     * Visit every leaf of this image, placed by the given transform
+     * 
+     * @param tx
+     *            -- the transform to place this image with
+     * @param visitor
+     *            -- the function to call on each leaf
+     * @return false if the visitor stopped the walk early
+     * @see #visitLeaves(LeafVisitor)
+     */
+    public final boolean visitLeaves(AffineTransform tx, LeafVisitor visitor) {
+        return Traversal.visitLeaves(this, tx, visitor);
+    }
+
+    /**
+     * A <code>Spliterator</code> over the leaves of this image, in the order
+     * they are drawn, for streaming them (e.g. with
+     * <code>StreamSupport.stream(img.leafSpliterator(), true)</code>) or
+     * analyzing them in parallel.  It is sized, and splits any image into
+     * halves with equally many leaves.
+     * 
+     * @return the leaves of this image, each with the transform that places it
+     */
+    public final Spliterator<ImageLeaf> leafSpliterator() {
+        return new LeafSpliterator(this, new AffineTransform());
+    }
     /**
      * Get the Bounding Box of the image
      * 
      * @return The tight bounding box of the image
      */
     public BoundingBox getBB() {
-        BoundingBox ret = WorldImage.bbCache.get(this);
+        BoundingBox ret = this.bb;
         if (ret == null) {
-            ret = this.getBB(new AffineTransform());
-            WorldImage.bbCache.put(this, ret);
+            ret = this.getBBUncached(new AffineTransform());
+            this.bb = ret;
         }
         return ret;
     }
     protected BoundingBox getBB(final AffineTransform tx) {
-        try {
-            if (tx.isIdentity() && WorldImage.bbCache.containsKey(this)) { 
-                return this.getBB(); 
-            }
-            else if (tx.getType() == AffineTransform.TYPE_TRANSLATION && WorldImage.bbCache.containsKey(this)) {
-                return this.getBB().translated(tx.getTranslateX(), tx.getTranslateY());
-            }
-            else { 
-                return this.getBBHelp(tx); 
-            }
-        } catch (StackOverflowError e) {
-            final WorldImage img = this;
-            return (new Callable<BoundingBox>() {
-                public BoundingBox call() {
-                    return img.getBB(tx);
-                }
-            }).call();
+        // Bounding boxes only need recomputing for transforms that can change their shape:
+        // pure translations just shift the memoized box of this image
+        int type = tx.getType();
+        if (type == AffineTransform.TYPE_IDENTITY) {
+            return this.getBB();
+        }
+        else if (type == AffineTransform.TYPE_TRANSLATION) {
+            return this.getBB().translated(tx.getTranslateX(), tx.getTranslateY());
+        }
+        else {
+            return this.getBBUncached(tx);
         }
-//        WorldImageLeavesIterator iter = new WorldImageLeavesIterator(this, tx);
-//        BoundingBox acc = null;
-//        while (iter.hasNext()) {
-//            iter.next();
-//            BoundingBox newBB = iter.curImg.getBBHelp(iter.curTx);
-//            if (acc == null) { acc = new BoundingBox(newBB); }
-//            else { acc.combineWith(newBB); }
-//        }
-//        return acc;
+    }
+    private BoundingBox getBBUncached(final AffineTransform tx) {
+        return Traversal.bounds(this, tx);
     }
 
     /**
      * Get the Bounding Box of the image, calculated by combining the operations
-     * done on the image (represented by the passed in AffineTransform)
+     * done on the image (represented by the passed in AffineTransform).
+     * Images whose box is the union of the boxes of their parts push those
+     * parts in <code>pushBoundedKids</code> instead, and are measured by a
+     * <code>{@link Traversal Traversal}</code>.
      * 
      * @param t
      *            -- Operations done to transform the image
@@ -123,6 +265,18 @@ public abstract class WorldImage {
      */
     protected abstract BoundingBox getBBHelp(AffineTransform t);
 
+    /**
+     * Push the images whose bounding boxes make up this image's onto the
+     * given traversal, each with its transform relative to this image
+     * 
+     * @param t
+     *            -- the traversal measuring this image
+     * @return false if this image measures itself with <code>getBBHelp</code>
+     */
+    boolean pushBoundedKids(Traversal t) {
+        return false;
+    }
+
     /**
      * Transform a Posn by the operations as given by the AffineTransform
      * 
@@ -207,28 +361,105 @@ public abstract class WorldImage {
      *            -- the provided <code>Graphics2D</code> context
      */
     abstract protected void drawStackUnsafe(Graphics2D g);
-    
-    abstract protected void drawStacksafe(Graphics2D g, Stack<WorldImage> images, Stack<AffineTransform> txs);
-    
+
+    /**
+     * Push the images that this image is drawn from onto the given traversal,
+     * the one to draw last first, each with its transform relative to this
+     * image. Images that draw more than their parts may also push themselves
+     * with <code>Traversal.pushOverdraw</code>, to finish drawing in
+     * <code>drawOverKids</code>.
+     * 
+     * @param t
+     *            -- the traversal drawing this image
+     * @return false if this image draws itself with <code>drawStackUnsafe</code>
+     */
+    boolean pushDrawnKids(Traversal t) {
+        return false;
+    }
+
+    /**
+     * Draw whatever this image draws on top of the parts it pushed in
+     * <code>pushDrawnKids</code>
+     * 
+     * @param g
+     *            -- the provided <code>Graphics2D</code> context
+     */
+    void drawOverKids(Graphics2D g) {
+    }
+
+    /**
+     * Draw this image in the provided <code>Graphics2D</code> context. The
+     * first time a combined image is drawn, its tree is walked as usual; if it
+     * is drawn again, it is flattened into a <code>{@link DisplayList
+     * DisplayList}</code> that is kept and replayed from then on, unless
+     * it draws too many images to be worth keeping. Once the
+     * <code>{@link RasterCache RasterCache}</code> is enabled, deeply nested
+     * images drawn repeatedly with the same transform are drawn from it
+     * instead.
+     * 
+     * @param g
+     *            -- the provided <code>Graphics2D</code> context
+     */
     public final void draw(Graphics2D g) {
-        if (this.depth < 1000) {
-            this.drawStackUnsafe(g);
+        if (this.depth >= RasterCache.MIN_DEPTH && rasterCache.draw(this, g)) {
+            return;
+        }
+        this.drawUncached(g);
+    }
+
+    /**
+     * Draw this image without consulting the raster cache
+     * 
+     * @param g
+     *            -- the provided <code>Graphics2D</code> context
+     */
+    final void drawUncached(Graphics2D g) {
+        if (!DisplayList.isFlattenable(this)) {
+            this.drawTree(g);
+            return;
+        }
+        Memo m = this.memo();
+        DisplayList list = m.displayList;
+        if (list == null && m.drawnOnce) {
+            list = DisplayList.compile(this);
+            m.displayList = list;
+        }
+        if (list != null && list != DisplayList.TOO_LARGE) {
+            list.draw(g);
         } else {
-            Stack<WorldImage> images = new Stack<WorldImage>();
-            Stack<AffineTransform> txs = new Stack<AffineTransform>();
-            AffineTransform initTx = g.getTransform();
-            images.push(this);
-            txs.push(initTx);
-            while (!images.isEmpty()) {
-                WorldImage nextI = images.pop();
-                AffineTransform nextT = txs.pop();
-                g.setTransform(nextT);
-                nextI.drawStacksafe(g, images, txs);
-            }
-            g.setTransform(initTx);
+            m.drawnOnce = true;
+            this.drawTree(g);
         }
     }
 
+    /** Does this image contain any images whose pixels may change? */
+    final boolean hasMutableParts() {
+        Memo m = this.memo();
+        Boolean mutable = m.mutableParts;
+        if (mutable == null) {
+            mutable = !this.visitLeaves(new LeafVisitor() {
+                public boolean visit(WorldImage leaf, double m00, double m10, double m01,
+                        double m11, double m02, double m12) {
+                    return !(leaf instanceof ComputedPixelImage);
+                }
+            });
+            m.mutableParts = mutable;
+        }
+        return mutable;
+    }
+
+    /**
+     * Draw this image by walking its tree with a
+     * <code>{@link Traversal Traversal}</code>, in constant stack space
+     * however deeply it is nested
+     * 
+     * @param g
+     *            -- the provided <code>Graphics2D</code> context
+     */
+    final void drawTree(Graphics2D g) {
+        Traversal.draw(this, g);
+    }
+
     /**
      * Saves the current scene to a PNG file of the specified name
      * @param filename -- where to save the image
@@ -252,43 +483,30 @@ public abstract class WorldImage {
     /**
      * A helper method for the equals method below, this method implements extensional equality
      * via a worklist algorithm.  It collaborates with the abstract method
-     * {@link WorldImage#equalsStacksafe(WorldImage, Stack, Stack)} below, which each image
+     * {@link WorldImage#equalsStacksafe(WorldImage, Traversal)} below, which each image
      * class must implement.
      *
      * @param that   The image to be compared
      * @return Whether the two images are extensionally equal
      */
     protected final boolean equalsStacksafe(WorldImage that) {
-        Stack<WorldImage> worklistThis = new Stack<WorldImage>();
-        Stack<WorldImage> worklistThat = new Stack<WorldImage>();
-        worklistThis.push(this);
-        worklistThat.push(that);
-        while (!worklistThis.empty()) {
-            WorldImage one = worklistThis.pop();
-            WorldImage two = worklistThat.pop();
-            if (one == two) continue; // fast success path
-            if (!(one.equalsStacksafe(two, worklistThis, worklistThat)))
-                return false;
-        }
-        return true;
+        return Traversal.equal(this, that);
     }
 
     /**
      * This helper method implements the recursive part of extensional equality checking.
-     * Each image class must check its local fields and push any contained images onto the worklists
-     * to be checked later.  The two stacks must be manipulated in lockstep: it is cheaper to have
-     * two stacks whose structures must be parallel than to have one stack where we allocate an
-     * "ImagePair" object to keep the items in tandem, since there may be many such allocations.
+     * Each image class must check its local fields and push any contained images onto the worklist
+     * to be checked later, pairing each child image of {@code this} with the corresponding
+     * child of {@code other} by {@link Traversal#pushPair(WorldImage, WorldImage)}.  The
+     * worklist keeps the pairs in parallel arrays, so no "ImagePair" objects are allocated.
      *
      * @param other The image to be compared
-     * @param worklistThis The worklist onto which child images of {@code this} are pushed for later comparison
-     * @param worklistThat The worklist onto which child images of {@code other} are pushed for later comparison
+     * @param worklist The worklist onto which pairs of child images are pushed for later comparison
      * @return If the image types do not match, or the local fields are not equal, returns false.
      *         Otherwise, returns true.  Any recursive checking of subimages will be done
      *         by the {@link WorldImage#equalsStacksafe(WorldImage)} method.
      */
-    protected abstract boolean equalsStacksafe(WorldImage other, Stack<WorldImage> worklistThis,
-                                               Stack<WorldImage> worklistThat);
+    protected abstract boolean equalsStacksafe(WorldImage other, Traversal worklist);
 
     /**
      * Provides extensional equality on WorldImages.  Each image subclass must override hashcode
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import javalib.worldimages.AboveImage;
+import javalib.worldimages.AlignModeX;
+import javalib.worldimages.AlignModeY;
+import javalib.worldimages.BesideImage;
+import javalib.worldimages.CircleImage;
+import javalib.worldimages.ComputedPixelImage;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.OverlayOffsetAlign;
+import javalib.worldimages.RectangleImage;
+import javalib.worldimages.RotateImage;
+import javalib.worldimages.WorldImage;
+
+import java.awt.Color;
+
+/**
+ * A simple timing harness for building large image trees: a 100x100 grid of
+ * <code>BesideImage</code> rows stacked with <code>AboveImage</code>, and a
+ * chain of 10,000 <code>OverlayOffsetAlign</code>s over same-sized pixel images.
+ * Both shapes query the bounding boxes of their children at every step of
+ * construction, so they measure the cost of <code>getBB()</code>.
+ *
+ * Run with <code>java -cp target/classes:target/test-classes benchmarks.SceneConstructionBenchmark
+ * [warmups runs]</code>
+ */
+public class SceneConstructionBenchmark {
+    static final int SIDE = 100;
+    static int WARMUP = 5;
+    static int RUNS = 10;
+
+    static WorldImage buildGrid() {
+        WorldImage[] rows = new WorldImage[SIDE];
+        for (int r = 0; r < SIDE; r++) {
+            WorldImage[] cells = new WorldImage[SIDE];
+            for (int c = 0; c < SIDE; c++) {
+                WorldImage cell;
+                if ((r + c) % 2 == 0) {
+                    cell = new CircleImage(5 + (c % 7), OutlineMode.SOLID, new Color(r, c, 128));
+                } else {
+                    cell = new RotateImage(new RectangleImage(10, 4 + (r % 5), OutlineMode.OUTLINE,
+                            new Color(c, r, 64)), 15 * (c % 6));
+                }
+                cells[c] = cell;
+            }
+            WorldImage[] rest = new WorldImage[SIDE - 1];
+            System.arraycopy(cells, 1, rest, 0, rest.length);
+            rows[r] = new BesideImage(cells[0], rest);
+        }
+        WorldImage[] rest = new WorldImage[SIDE - 1];
+        System.arraycopy(rows, 1, rest, 0, rest.length);
+        return new AboveImage(rows[0], rest);
+    }
+
+    static WorldImage buildPixelOverlays() {
+        WorldImage acc = new ComputedPixelImage(32, 32);
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            ComputedPixelImage px = new ComputedPixelImage(32, 32);
+            px.setPixel(i % 32, (i / 32) % 32, Color.RED);
+            acc = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.MIDDLE, px, 0, 0, acc);
+        }
+        return acc;
+    }
+
+    static double timeMillis(String what) {
+        long start = System.nanoTime();
+        WorldImage img = what.equals("grid") ? buildGrid() : buildPixelOverlays();
+        img.getWidth();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            WARMUP = Integer.parseInt(args[0]);
+            RUNS = Integer.parseInt(args[1]);
+        }
+        String[] cases = new String[] { "grid", "pixel overlays" };
+        for (String what : cases) {
+            for (int i = 0; i < WARMUP; i++) {
+                timeMillis(what);
+            }
+            double total = 0;
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                double t = timeMillis(what);
+                total += t;
+                best = Math.min(best, t);
+            }
+            System.out.println(String.format("%-16s mean %8.2f ms   best %8.2f ms", what, total / RUNS, best));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package funworldtests;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javalib.funworld.HeadlessRunner;
+import javalib.funworld.World;
+import javalib.funworld.WorldScene;
+import javalib.utils.EventLogReader;
+import javalib.utils.EventRecorder;
+import javalib.worldimages.CircleImage;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.Posn;
+import tester.Tester;
+
+/**
+ * Runs worlds through a <code>HeadlessRunner</code>, without opening a window
+ */
+public class ExamplesHeadless {
+
+    void testRunUntilEnd(Tester t) {
+        HeadlessRunner r = new HeadlessRunner(new WorldWithEnding(0, 0), 100, 100, 0.5);
+        t.checkExpect(r.hasEnded(), false);
+        t.checkExpect(r.run(1000), 21L, "the world ends when it reaches 20");
+        t.checkExpect(r.hasEnded(), true);
+        t.checkExpect(((WorldWithEnding) r.getWorld()).value, 20);
+        t.checkExpect(r.getTime(), 10.5);
+        t.checkExpect(r.tick(), false, "ended worlds do not tick");
+        t.checkExpect(r.getTickCount(), 21L);
+    }
+
+    void testEvents(Tester t) {
+        HeadlessRunner r = new HeadlessRunner(
+                new BlobWorldFun(new Blob(new Posn(50, 50), 20, Color.RED)), 200, 300, 0.1);
+        r.keyEvent("right");
+        t.checkExpect(((BlobWorldFun) r.getWorld()).blob.center, new Posn(55, 50));
+        r.mouseClicked(new Posn(10, 20), "LeftButton");
+        t.checkExpect(((BlobWorldFun) r.getWorld()).blob.center, new Posn(10, 20));
+        r.keyEvent("x");
+        t.checkExpect(r.hasEnded(), true, "x ends the world");
+    }
+
+    void testRender(Tester t) {
+        HeadlessRunner r = new HeadlessRunner(
+                new BlobWorldFun(new Blob(new Posn(50, 50), 20, Color.RED)), 200, 300, 0.1);
+        BufferedImage img = r.render();
+        t.checkExpect(img.getWidth(), 200);
+        t.checkExpect(img.getHeight(), 300);
+        t.checkExpect(img.getRGB(100, 150), Color.BLACK.getRGB(), "the black hole");
+    }
+
+    void testRecordAndReplay(Tester t) throws IOException {
+        Path log = Files.createTempFile("walker", ".events");
+        try {
+            Walker original = new Walker(new Posn(50, 50), 1, 0);
+            HeadlessRunner r = new HeadlessRunner(original, 200, 200, 0.5);
+            EventRecorder rec = new EventRecorder(log);
+            original.recordEvents(rec);
+            r.tick();
+            t.checkExpect(r.getWorld() != original, true, "every handler returns a new world");
+            r.keyEvent("down");
+            r.mouseClicked(new Posn(120, 40), "LeftButton");
+            r.mouseMoved(new Posn(-3, 7), "UnknownButton");
+            r.run(3);
+            rec.close();
+            t.checkExpect(rec.getRecordCount(), 7L, "the new worlds keep recording");
+            t.checkExpect(((Walker) r.getWorld()).pos, new Posn(120, 43));
+
+            HeadlessRunner replay = new HeadlessRunner(new Walker(new Posn(50, 50), 1, 0),
+                    200, 200, 0.5);
+            EventLogReader reader = new EventLogReader(log);
+            t.checkExpect(replay.replay(reader, false), 7L);
+            reader.close();
+            t.checkExpect(replay.getTickCount(), 4L);
+            t.checkExpect(((Walker) replay.getWorld()).pos, new Posn(120, 43));
+            t.checkExpect(((Walker) replay.getWorld()).moves, 1, "mouse moves are replayed");
+            t.checkExpect(replay.getScene(), r.getScene(), "the replayed world matches");
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+    void testExceptionsReachCaller(Tester t) {
+        HeadlessRunner r = new HeadlessRunner(new World() {
+            public WorldScene makeScene() {
+                return this.getEmptyScene();
+            }
+
+            public World onTick() {
+                throw new IllegalStateException("broken tick");
+            }
+
+            public World onKeyEvent(String key) {
+                throw new IllegalStateException("broken key " + key);
+            }
+        }, 100, 100, 0.5);
+        try {
+            r.run(10);
+            t.checkExpect(false, true, "the tick should have thrown");
+        } catch (IllegalStateException e) {
+            t.checkExpect(e.getMessage(), "broken tick", "passed on rather than halting");
+        }
+        t.checkExpect(r.getTickCount(), 0L);
+        try {
+            r.keyEvent("a");
+            t.checkExpect(false, true, "the key event should have thrown");
+        } catch (IllegalStateException e) {
+            t.checkExpect(e.getMessage(), "broken key a");
+        }
+    }
+
+    public static void main(String[] argv) {
+        ExamplesHeadless e = new ExamplesHeadless();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
+
+/**
+ * A dot that walks one step per tick, turns on the arrow keys, jumps to mouse
+ * clicks and counts mouse moves; every handler produces a new world
+ */
+class Walker extends World {
+    Posn pos;
+    int dx;
+    int dy;
+    int moves;
+
+    Walker(Posn pos, int dx, int dy) {
+        this(pos, dx, dy, 0);
+    }
+
+    Walker(Posn pos, int dx, int dy, int moves) {
+        this.pos = pos;
+        this.dx = dx;
+        this.dy = dy;
+        this.moves = moves;
+    }
+
+    public World onTick() {
+        return new Walker(new Posn(this.pos.x + this.dx, this.pos.y + this.dy),
+                this.dx, this.dy, this.moves);
+    }
+
+    public World onKeyEvent(String key) {
+        if (key.equals("down")) {
+            return new Walker(this.pos, 0, 1, this.moves);
+        } else if (key.equals("right")) {
+            return new Walker(this.pos, 1, 0, this.moves);
+        } else {
+            return this;
+        }
+    }
+
+    public World onMouseClicked(Posn loc) {
+        return new Walker(loc, this.dx, this.dy, this.moves);
+    }
+
+    public World onMouseMoved(Posn loc) {
+        return new Walker(this.pos, this.dx, this.dy, this.moves + 1);
+    }
+
+    public WorldScene makeScene() {
+        return this.getEmptyScene().placeImageXY(
+                new CircleImage(3, OutlineMode.SOLID, Color.BLUE), this.pos.x, this.pos.y);
+    }
+}
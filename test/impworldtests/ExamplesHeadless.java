@@ -0,0 +1,100 @@
+package impworldtests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javalib.impworld.HeadlessRunner;
+import javalib.impworld.World;
+import javalib.impworld.WorldScene;
+import javalib.utils.EventLogReader;
+import javalib.utils.EventRecorder;
+import javalib.worldimages.Posn;
+import tester.Tester;
+
+/**
+ * Runs worlds through a <code>HeadlessRunner</code>, without opening a window
+ */
+public class ExamplesHeadless {
+
+    WormWorld worm() {
+        return new WormWorld(new Worm(new Segment(50, 60, "up"), new MtSegment()),
+                new Food(20, 20), new Box(200, 200));
+    }
+
+    void testRunUntilEnd(Tester t) {
+        WormWorld w = this.worm();
+        HeadlessRunner r = new HeadlessRunner(w, 200, 200, 0.5);
+        t.checkExpect(r.getWorld() == w, true, "imperative worlds are updated in place");
+        t.checkExpect(r.run(100000), 8L, "the worm runs into the top wall");
+        t.checkExpect(r.hasEnded(), true);
+        t.checkExpect(r.getTime(), 4.0);
+        t.checkExpect(r.render().getWidth(), 200);
+    }
+
+    void testEvents(Tester t) {
+        HeadlessRunner r = new HeadlessRunner(this.worm(), 200, 200, 0.5);
+        r.keyEvent("left");
+        t.checkExpect(r.run(100000) < 8L, true, "the left wall is closer");
+    }
+
+    void testRecordAndReplay(Tester t) throws IOException {
+        Path log = Files.createTempFile("worm", ".events");
+        try {
+            WormWorld original = this.worm();
+            HeadlessRunner r = new HeadlessRunner(original, 200, 200, 0.5);
+            EventRecorder rec = new EventRecorder(log);
+            original.recordEvents(rec);
+            r.tick();
+            r.keyEvent("right");
+            r.mouseClicked(new Posn(120, 40), "LeftButton");
+            r.mouseMoved(new Posn(-3, 7), "UnknownButton");
+            r.run(3);
+            rec.close();
+            t.checkExpect(rec.getRecordCount(), 7L);
+
+            HeadlessRunner replay = new HeadlessRunner(this.worm(), 200, 200, 0.5);
+            EventLogReader reader = new EventLogReader(log);
+            t.checkExpect(replay.replay(reader, false), 7L);
+            reader.close();
+            t.checkExpect(replay.getTickCount(), 4L);
+            t.checkExpect(replay.getScene(), r.getScene(), "the replayed world matches");
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+    void testExceptionsReachCaller(Tester t) {
+        HeadlessRunner r = new HeadlessRunner(new World() {
+            public WorldScene makeScene() {
+                return this.getEmptyScene();
+            }
+
+            public void onTick() {
+                throw new IllegalStateException("broken tick");
+            }
+
+            public void onKeyEvent(String key) {
+                throw new IllegalStateException("broken key " + key);
+            }
+        }, 100, 100, 0.5);
+        try {
+            r.run(10);
+            t.checkExpect(false, true, "the tick should have thrown");
+        } catch (IllegalStateException e) {
+            t.checkExpect(e.getMessage(), "broken tick", "passed on rather than halting");
+        }
+        t.checkExpect(r.getTickCount(), 0L);
+        try {
+            r.keyEvent("a");
+            t.checkExpect(false, true, "the key event should have thrown");
+        } catch (IllegalStateException e) {
+            t.checkExpect(e.getMessage(), "broken key a");
+        }
+    }
+
+    public static void main(String[] argv) {
+        ExamplesHeadless e = new ExamplesHeadless();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
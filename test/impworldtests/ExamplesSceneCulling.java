@@ -0,0 +1,66 @@
+package impworldtests;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javalib.impworld.WorldScene;
+import javalib.worldimages.CircleImage;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.RectangleImage;
+import tester.Tester;
+
+/**
+ * Large scenes skip the placements that cannot be seen, without changing what
+ * is drawn
+ */
+public class ExamplesSceneCulling {
+
+    /** a 10x10 grid of circles, spaced so only the top-left 2x2 are visible */
+    WorldScene grid() {
+        WorldScene s = new WorldScene(100, 100);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                s.placeImageXY(new CircleImage(10, OutlineMode.SOLID, Color.RED),
+                        25 + 50 * i, 25 + 50 * j);
+            }
+        }
+        return s;
+    }
+
+    int[] pixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+
+    void testCulling(Tester t) {
+        WorldScene s = this.grid();
+        BufferedImage img = s.renderImage();
+        // the frame of the scene and 4 circles
+        t.checkExpect(s.getLastDrawnCount(), 5);
+        t.checkExpect(s.getLastCulledCount(), 96);
+
+        // a wide image placed far off to the side still reaches into view
+        s.placeImageXY(new RectangleImage(1000, 10, OutlineMode.SOLID, Color.BLUE), 550, 50);
+        img = s.renderImage();
+        t.checkExpect(s.getLastDrawnCount(), 6);
+        t.checkExpect(img.getRGB(50, 50), Color.BLUE.getRGB());
+    }
+
+    void testSamePixels(Tester t) {
+        WorldScene small = new WorldScene(100, 100);
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                small.placeImageXY(new CircleImage(10, OutlineMode.SOLID, Color.RED),
+                        25 + 50 * i, 25 + 50 * j);
+            }
+        }
+        t.checkExpect(Arrays.equals(this.pixels(this.grid().renderImage()),
+                this.pixels(small.renderImage())), true);
+        t.checkExpect(small.getLastCulledCount(), 0, "small scenes are not culled");
+    }
+
+    public static void main(String[] argv) {
+        ExamplesSceneCulling e = new ExamplesSceneCulling();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
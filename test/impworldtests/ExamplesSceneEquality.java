@@ -0,0 +1,55 @@
+package impworldtests;
+
+import java.awt.Color;
+
+import javalib.impworld.WorldScene;
+import javalib.worldcanvas.WorldSceneBase;
+import javalib.worldimages.BesideImage;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.RectangleImage;
+import tester.Tester;
+
+/**
+ * Scenes are equal if they place the same images in the same places, or
+ * (unless turned off) if they draw the same pixels
+ */
+public class ExamplesSceneEquality {
+
+    WorldScene squares(int n) {
+        WorldScene s = new WorldScene(100, 100);
+        for (int i = 0; i < n; i++) {
+            s.placeImageXY(new RectangleImage(10, 10, OutlineMode.SOLID, Color.RED), 5 + 10 * i, 50);
+        }
+        return s;
+    }
+
+    void testStructural(Tester t) {
+        t.checkExpect(this.squares(5).equals(this.squares(5)), true);
+        t.checkExpect(this.squares(5).hashCode(), this.squares(5).hashCode());
+        t.checkExpect(this.squares(5).equals(this.squares(4)), false);
+        t.checkExpect(new WorldScene(100, 100).equals(new WorldScene(100, 90)), false);
+    }
+
+    void testPixels(Tester t) {
+        // two squares side by side look just like one wide rectangle
+        WorldScene wide = new WorldScene(100, 100);
+        wide.placeImageXY(new RectangleImage(20, 10, OutlineMode.SOLID, Color.RED), 10, 50);
+        WorldScene pair = new WorldScene(100, 100);
+        pair.placeImageXY(new BesideImage(new RectangleImage(10, 10, OutlineMode.SOLID, Color.RED),
+                new RectangleImage(10, 10, OutlineMode.SOLID, Color.RED)), 10, 50);
+        t.checkExpect(wide.equals(pair), true);
+        t.checkExpect(wide.hashCode(), pair.hashCode());
+        try {
+            WorldSceneBase.setPixelComparison(false);
+            t.checkExpect(wide.equals(pair), false);
+            t.checkExpect(wide.equals(this.squares(0)), false);
+        } finally {
+            WorldSceneBase.setPixelComparison(true);
+        }
+    }
+
+    public static void main(String[] argv) {
+        ExamplesSceneEquality e = new ExamplesSceneEquality();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
@@ -0,0 +1,250 @@
+package worldcanvastests;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+import javalib.funworld.WorldScene;
+import javalib.worldcanvas.CanvasPanel;
+import javalib.worldimages.CircleImage;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.RectangleImage;
+import javalib.worldimages.WorldImage;
+import tester.Tester;
+
+/**
+ * Draws scenes into a <code>CanvasPanel</code> without showing it, and checks
+ * its buffer: repainting only what changed must give the same pixels as
+ * redrawing everything, whether scenes are drawn right away or on the render
+ * thread
+ */
+public class ExamplesCanvasPanel {
+    static final int WIDTH = 120;
+    static final int HEIGHT = 80;
+
+    /** a pixel far from every placement below, to see what was left alone */
+    static final int MARK_X = 115;
+    static final int MARK_Y = 75;
+    static final int MARK = 0xFFFF00FF;
+
+    WorldImage red = new RectangleImage(20, 10, OutlineMode.SOLID, Color.RED);
+    WorldImage blue = new RectangleImage(20, 10, OutlineMode.SOLID, Color.BLUE);
+    WorldImage green = new CircleImage(8, OutlineMode.SOLID, Color.GREEN);
+
+    WorldScene base() {
+        return new WorldScene(WIDTH, HEIGHT)
+                .placeImageXY(this.red, 20, 20)
+                .placeImageXY(this.green, 30, 25)
+                .placeImageXY(this.blue, 70, 40);
+    }
+
+    int[] pixels(BufferedImage img) {
+        return img.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+    }
+
+    /** The pixels of the given scene, redrawn from scratch */
+    int[] full(WorldScene scene) {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.redrawScene(scene);
+        return this.pixels(panel.getBuffer());
+    }
+
+    /**
+     * Redraw the first scene, then the second, incrementally, and check that
+     * the result matches a full redraw of the second scene, and that the
+     * marked pixel, far from every change, was left alone
+     */
+    void checkIncremental(Tester t, WorldScene before, WorldScene after, String what) {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.setIncrementalRepaint(true);
+        panel.redrawScene(before);
+        panel.getBuffer().setRGB(MARK_X, MARK_Y, MARK);
+        panel.redrawScene(after);
+        int[] inc = this.pixels(panel.getBuffer());
+        t.checkExpect(inc[MARK_Y * WIDTH + MARK_X], MARK, what + ": only the changes are redrawn");
+        int[] full = this.full(after);
+        inc[MARK_Y * WIDTH + MARK_X] = full[MARK_Y * WIDTH + MARK_X];
+        t.checkExpect(Arrays.equals(inc, full), true, what + ": same as a full redraw");
+    }
+
+    void testAdded(Tester t) {
+        this.checkIncremental(t, this.base(),
+                this.base().placeImageXY(this.red, 90, 60), "added");
+    }
+
+    void testRemoved(Tester t) {
+        this.checkIncremental(t, this.base().placeImageXY(this.red, 90, 60),
+                this.base(), "removed");
+    }
+
+    void testMoved(Tester t) {
+        WorldScene before = this.base().placeImageXY(this.green, 50, 50);
+        WorldScene after = this.base().placeImageXY(this.green, 56, 53);
+        this.checkIncremental(t, before, after, "moved");
+    }
+
+    void testChangedInPlace(Tester t) {
+        WorldScene before = this.base().placeImageXY(this.red, 50, 60);
+        WorldScene after = this.base().placeImageXY(this.blue, 50, 60);
+        this.checkIncremental(t, before, after, "changed");
+    }
+
+    void testReordered(Tester t) {
+        WorldScene before = new WorldScene(WIDTH, HEIGHT)
+                .placeImageXY(this.red, 40, 40)
+                .placeImageXY(this.blue, 45, 43);
+        WorldScene after = new WorldScene(WIDTH, HEIGHT)
+                .placeImageXY(this.blue, 45, 43)
+                .placeImageXY(this.red, 40, 40);
+        this.checkIncremental(t, before, after, "reordered");
+    }
+
+    void testUnchanged(Tester t) {
+        this.checkIncremental(t, this.base(), this.base(), "unchanged");
+    }
+
+    void testFirstFrame(Tester t) {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.setIncrementalRepaint(true);
+        panel.getBuffer().setRGB(MARK_X, MARK_Y, MARK);
+        panel.redrawScene(this.base());
+        t.checkExpect(Arrays.equals(this.pixels(panel.getBuffer()), this.full(this.base())), true,
+                "nothing shown yet: everything is drawn");
+    }
+
+    /**
+     * Stands in for the screen: copies the parts of the panel's front buffer
+     * that Swing is asked to repaint, as painting the panel would
+     */
+    static class Screen extends RepaintManager {
+        final CanvasPanel panel;
+        final BufferedImage shown = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int repaints = 0;
+
+        Screen(CanvasPanel panel) {
+            this.panel = panel;
+            Graphics2D g = this.shown.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+            g.dispose();
+        }
+
+        @Override
+        public synchronized void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            Rectangle region;
+            if (c == this.panel) {
+                region = new Rectangle(0, 0, WIDTH, HEIGHT);
+            } else if (SwingUtilities.isDescendingFrom(c, this.panel)) {
+                Insets in = c.getInsets();
+                region = new Rectangle(x - in.left, y - in.top, w, h)
+                        .intersection(new Rectangle(0, 0, WIDTH, HEIGHT));
+            } else {
+                return;
+            }
+            Graphics2D g = this.shown.createGraphics();
+            g.clip(region);
+            g.drawImage(this.panel.getBuffer(), 0, 0, null);
+            g.dispose();
+            this.repaints++;
+            this.notifyAll();
+        }
+
+        /** Wait (for a while) until the panel has asked for the given number of repaints */
+        synchronized void awaitRepaints(int n) throws InterruptedException {
+            long end = System.currentTimeMillis() + 2000;
+            long left;
+            while (this.repaints < n && (left = end - System.currentTimeMillis()) > 0) {
+                this.wait(left);
+            }
+        }
+    }
+
+    void testBackgroundRendering(Tester t) throws InterruptedException {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.setIncrementalRepaint(true);
+        Screen screen = new Screen(panel);
+        RepaintManager before = RepaintManager.currentManager(panel);
+        RepaintManager.setCurrentManager(screen);
+        panel.setBackgroundRendering(true);
+        try {
+            // the circle moves away and back again
+            WorldScene a = this.base().placeImageXY(this.green, 50, 50);
+            WorldScene b = this.base().placeImageXY(this.green, 90, 60);
+            BufferedImage front = panel.getBuffer();
+            panel.redrawScene(a);
+            screen.awaitRepaints(1);
+            t.checkExpect(panel.getBuffer() != front, true, "the buffers are swapped");
+            panel.redrawScene(b);
+            screen.awaitRepaints(2);
+            t.checkExpect(Arrays.equals(this.pixels(screen.shown), this.full(b)), true);
+            panel.redrawScene(a);
+            screen.awaitRepaints(3);
+            t.checkExpect(Arrays.equals(this.pixels(panel.getBuffer()), this.full(a)), true,
+                    "the front buffer shows the last scene");
+            t.checkExpect(Arrays.equals(this.pixels(screen.shown), this.full(a)), true,
+                    "and so does the screen, with no circle left behind");
+        } finally {
+            panel.setBackgroundRendering(false);
+            RepaintManager.setCurrentManager(before);
+        }
+    }
+
+    /** A scene whose drawing waits until it is told to go on */
+    static class GatedScene extends WorldScene {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch go = new CountDownLatch(1);
+
+        GatedScene(int width, int height) {
+            super(width, height);
+        }
+
+        @Override
+        protected void draw(Graphics2D g) {
+            this.started.countDown();
+            try {
+                this.go.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.draw(g);
+        }
+    }
+
+    void testResizeWhileRendering(Tester t) throws InterruptedException {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.redrawScene(this.base());
+        BufferedImage resized;
+        panel.setBackgroundRendering(true);
+        try {
+            GatedScene gated = new GatedScene(WIDTH, HEIGHT);
+            panel.redrawScene(gated);
+            gated.started.await();
+            panel.setBufferSize(WIDTH + 20, HEIGHT + 10);
+            resized = panel.getBuffer();
+            gated.go.countDown();
+        } finally {
+            // waits for the render thread to finish the gated frame
+            panel.setBackgroundRendering(false);
+        }
+        t.checkExpect(panel.getBuffer() == resized, true, "the frame drawn at the old size is dropped");
+        t.checkExpect(panel.getBufferWidth(), WIDTH + 20);
+        t.checkExpect(Arrays.equals(this.pixels(panel.getBuffer()), this.full(this.base())), true,
+                "the resized buffer keeps what was shown");
+        panel.redrawScene(this.base().placeImageXY(this.red, 130, 85));
+        t.checkExpect(panel.getBuffer().getRGB(WIDTH + 5, HEIGHT + 3), Color.RED.getRGB(),
+                "and later frames fill it");
+    }
+
+    public static void main(String[] argv) {
+        ExamplesCanvasPanel e = new ExamplesCanvasPanel();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
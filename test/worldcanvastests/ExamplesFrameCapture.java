@@ -0,0 +1,233 @@
+package worldcanvastests;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import javalib.funworld.WorldScene;
+import javalib.worldcanvas.CanvasPanel;
+import javalib.worldcanvas.FrameCapture;
+import javalib.worldimages.OutlineMode;
+import javalib.worldimages.RectangleImage;
+import tester.Tester;
+
+/**
+ * Captures the frames a <code>CanvasPanel</code> presents, as PNG files, as an
+ * animated GIF, and through a sink that is slow or broken, and checks what
+ * ends up on disk and what the capture reports
+ */
+public class ExamplesFrameCapture {
+    static final int WIDTH = 40;
+    static final int HEIGHT = 30;
+
+    /** A red square at a different place in each frame */
+    WorldScene frame(int i) {
+        return new WorldScene(WIDTH, HEIGHT).placeImageXY(
+                new RectangleImage(10, 10, OutlineMode.SOLID, Color.RED), 5 + 10 * i, 15);
+    }
+
+    int[] pixels(BufferedImage img) {
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+
+    /** The pixels of the i-th frame, as presented by a panel */
+    int[] expected(int i) {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.redrawScene(this.frame(i));
+        return this.pixels(panel.getBuffer());
+    }
+
+    /** Present n frames to a panel that is captured by the given capture */
+    void present(FrameCapture capture, int n) {
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.setCapture(capture);
+        for (int i = 0; i < n; i++) {
+            panel.redrawScene(this.frame(i));
+        }
+        panel.setCapture(null);
+    }
+
+    void deleteAll(Path dir) throws IOException {
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File f : files) {
+                Files.delete(f.toPath());
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    void testPngSequence(Tester t) throws IOException {
+        Path dir = Files.createTempDirectory("capture");
+        try {
+            FrameCapture capture = FrameCapture.pngSequence(dir.resolve("frames"), "f", 2, 4);
+            this.present(capture, 3);
+            capture.close();
+            t.checkExpect(capture.getCapturedFrameCount(), 3L);
+            t.checkExpect(capture.getDroppedFrameCount(), 0L);
+            t.checkExpect(capture.getEncodedFrameCount(), 3L);
+            String[] names = dir.resolve("frames").toFile().list();
+            Arrays.sort(names);
+            t.checkExpect(Arrays.asList(names),
+                    Arrays.asList("f00000.png", "f00001.png", "f00002.png"));
+            for (int i = 0; i < 3; i++) {
+                BufferedImage img = ImageIO.read(
+                        dir.resolve("frames").resolve(names[i]).toFile());
+                t.checkExpect(img.getWidth(), WIDTH);
+                t.checkExpect(img.getHeight(), HEIGHT);
+                t.checkExpect(Arrays.equals(this.pixels(img), this.expected(i)), true,
+                        "frame " + i + " is stored exactly");
+            }
+            this.deleteAll(dir.resolve("frames"));
+        } finally {
+            this.deleteAll(dir);
+        }
+    }
+
+    void testAnimatedGif(Tester t) throws IOException {
+        Path file = Files.createTempFile("capture", ".gif");
+        try {
+            FrameCapture capture = FrameCapture.animatedGif(file, 100, 4);
+            this.present(capture, 3);
+            capture.close();
+            t.checkExpect(capture.getEncodedFrameCount(), 3L);
+
+            ImageInputStream in = ImageIO.createImageInputStream(file.toFile());
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            ImageReader reader = readers.next();
+            reader.setInput(in);
+            try {
+                t.checkExpect(reader.getFormatName().toLowerCase(), "gif");
+                t.checkExpect(reader.getNumImages(true), 3, "one image per frame");
+                for (int i = 0; i < 3; i++) {
+                    BufferedImage img = reader.read(i);
+                    t.checkExpect(img.getWidth(), WIDTH);
+                    int[] expected = this.expected(i);
+                    t.checkExpect(img.getRGB(5 + 10 * i, 15), expected[15 * WIDTH + 5 + 10 * i],
+                            "the square of frame " + i);
+                    t.checkExpect(img.getRGB(WIDTH - 1, 0), expected[WIDTH - 1],
+                            "the background of frame " + i);
+                }
+            } finally {
+                reader.dispose();
+                in.close();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** A sink that waits for the test to let it write each frame */
+    static class GatedSink implements FrameCapture.Sink {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch open = new CountDownLatch(1);
+        final List<Long> written = new ArrayList<Long>();
+        boolean finished = false;
+
+        public void write(BufferedImage frame, long index) throws IOException {
+            this.entered.countDown();
+            try {
+                this.open.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (this) {
+                this.written.add(index);
+            }
+        }
+
+        public synchronized void finish() {
+            this.finished = true;
+        }
+    }
+
+    void testSlowSink(Tester t) throws Exception {
+        final GatedSink sink = new GatedSink();
+        final FrameCapture capture = FrameCapture.toSink(sink, 1, 1);
+        CanvasPanel panel = new CanvasPanel(WIDTH, HEIGHT);
+        panel.setCapture(capture);
+        panel.redrawScene(this.frame(0));
+        sink.entered.await();
+        // the only buffer is held by the frame being written
+        panel.redrawScene(this.frame(1));
+        panel.redrawScene(this.frame(2));
+        t.checkExpect(capture.getCapturedFrameCount(), 1L);
+        t.checkExpect(capture.getDroppedFrameCount(), 2L, "no buffer, no copy");
+
+        final IOException[] closeError = new IOException[1];
+        Thread closer = new Thread() {
+            public void run() {
+                try {
+                    capture.close();
+                } catch (IOException e) {
+                    closeError[0] = e;
+                }
+            }
+        };
+        closer.start();
+        closer.join(200);
+        t.checkExpect(closer.isAlive(), true, "close waits for the queued frame");
+        t.checkExpect(sink.finished, false);
+        sink.open.countDown();
+        closer.join(5000);
+        t.checkExpect(closer.isAlive(), false);
+        t.checkExpect(closeError[0], null);
+        t.checkExpect(sink.written, Arrays.asList(0L));
+        t.checkExpect(sink.finished, true, "finished after the last frame");
+        t.checkExpect(capture.getEncodedFrameCount(), 1L);
+
+        panel.redrawScene(this.frame(3));
+        t.checkExpect(capture.getCapturedFrameCount(), 1L, "closed captures ignore frames");
+    }
+
+    void testSinkErrors(Tester t) {
+        final IOException broken = new IOException("disk full");
+        FrameCapture capture = FrameCapture.toSink(new FrameCapture.Sink() {
+            public void write(BufferedImage frame, long index) throws IOException {
+                throw broken;
+            }
+
+            public void finish() {
+            }
+        }, 1, 2);
+        this.present(capture, 1);
+        try {
+            capture.close();
+            t.checkExpect(false, true, "close should have thrown");
+        } catch (IOException e) {
+            t.checkExpect(e == broken, true, "close reports the sink's error");
+        }
+        t.checkExpect(capture.getError() == broken, true);
+        t.checkExpect(capture.getEncodedFrameCount(), 0L);
+
+        final IOException unfinished = new IOException("cannot finish");
+        capture = FrameCapture.toSink(new FrameCapture.Sink() {
+            public void write(BufferedImage frame, long index) {
+            }
+
+            public void finish() throws IOException {
+                throw unfinished;
+            }
+        }, 1, 2);
+        this.present(capture, 2);
+        try {
+            capture.close();
+            t.checkExpect(false, true, "close should have thrown");
+        } catch (IOException e) {
+            t.checkExpect(e == unfinished, true, "close reports a failure to finish");
+        }
+        t.checkExpect(capture.getEncodedFrameCount(), 2L);
+    }
+}
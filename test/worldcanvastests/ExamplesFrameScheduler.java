@@ -0,0 +1,175 @@
+package worldcanvastests;
+
+import javalib.worldcanvas.FrameScheduler;
+import tester.Tester;
+
+/**
+ * Sends bursts of redraw requests to a <code>FrameScheduler</code>, and checks
+ * that they are coalesced into as few frames as the cap allows, that every
+ * request is counted as either drawn or skipped, and that a cap of zero draws
+ * on every request, as worlds did before frames were scheduled
+ */
+public class ExamplesFrameScheduler {
+
+    /** Counts the frames it is asked to draw, and on which thread */
+    static class Frames implements Runnable {
+        int drawn = 0;
+        Thread lastThread;
+
+        public synchronized void run() {
+            this.drawn++;
+            this.lastThread = Thread.currentThread();
+            this.notifyAll();
+        }
+
+        synchronized int drawn() {
+            return this.drawn;
+        }
+
+        synchronized void awaitFrames(int n) throws InterruptedException {
+            long end = System.currentTimeMillis() + 5000;
+            long left;
+            while (this.drawn < n && (left = end - System.currentTimeMillis()) > 0) {
+                this.wait(left);
+            }
+        }
+    }
+
+    /** An impworld world that can tell which cap it asks for */
+    static class ImpWorld extends javalib.impworld.World {
+        public javalib.impworld.WorldScene makeScene() {
+            return new javalib.impworld.WorldScene(10, 10);
+        }
+
+        int cap() {
+            return this.getMaxFramesPerSecond();
+        }
+    }
+
+    /** An impworld world that asks to be drawn after every event */
+    static class ImmediateImpWorld extends ImpWorld {
+        protected int getMaxFramesPerSecond() {
+            return 0;
+        }
+    }
+
+    /** A funworld world that can tell which cap it asks for */
+    static class FunWorld extends javalib.funworld.World {
+        public javalib.funworld.WorldScene makeScene() {
+            return new javalib.funworld.WorldScene(10, 10);
+        }
+
+        int cap() {
+            return this.getMaxFramesPerSecond();
+        }
+    }
+
+    /** A funworld world that asks to be drawn after every event */
+    static class ImmediateFunWorld extends FunWorld {
+        protected int getMaxFramesPerSecond() {
+            return 0;
+        }
+    }
+
+    /** Request n frames in a row, as fast as possible */
+    void burst(FrameScheduler frames, int n) {
+        for (int i = 0; i < n; i++) {
+            frames.requestFrame();
+        }
+    }
+
+    void checkCounts(Tester t, FrameScheduler frames, String what) {
+        t.checkExpect(frames.getRenderedFrameCount() + frames.getSkippedFrameCount(),
+                frames.getRequestedFrameCount(), what + ": every request is drawn or skipped");
+    }
+
+    void testBurst(Tester t) throws InterruptedException {
+        Frames drawn = new Frames();
+        // one frame per second: the whole burst fits in a single interval
+        FrameScheduler frames = new FrameScheduler(1, drawn);
+        this.burst(frames, 10);
+        t.checkExpect(drawn.drawn(), 1, "the first request draws right away");
+        t.checkExpect(drawn.lastThread, Thread.currentThread());
+        t.checkExpect(frames.getRequestedFrameCount(), 10L);
+        t.checkExpect(frames.getRenderedFrameCount(), 1L);
+        t.checkExpect(frames.getSkippedFrameCount(), 8L,
+                "one request is scheduled, the rest are absorbed by it");
+        drawn.awaitFrames(2);
+        t.checkExpect(drawn.drawn(), 2, "the rest of the burst is drawn once");
+        t.checkExpect(frames.getRenderedFrameCount(), 2L);
+        this.checkCounts(t, frames, "after the scheduled frame");
+        Thread.sleep(1200);
+        t.checkExpect(drawn.drawn(), 2, "nothing else is drawn later");
+    }
+
+    void testRenderNowAbsorbsScheduled(Tester t) throws InterruptedException {
+        Frames drawn = new Frames();
+        FrameScheduler frames = new FrameScheduler(1, drawn);
+        this.burst(frames, 3);
+        frames.renderNow();
+        t.checkExpect(drawn.drawn(), 2);
+        t.checkExpect(frames.getRequestedFrameCount(), 4L);
+        this.checkCounts(t, frames, "after renderNow");
+        Thread.sleep(1200);
+        t.checkExpect(drawn.drawn(), 2, "the scheduled frame was absorbed");
+    }
+
+    void testCancel(Tester t) throws InterruptedException {
+        Frames drawn = new Frames();
+        FrameScheduler frames = new FrameScheduler(1, drawn);
+        this.burst(frames, 5);
+        frames.cancel();
+        this.checkCounts(t, frames, "after cancel");
+        Thread.sleep(1200);
+        t.checkExpect(drawn.drawn(), 1, "the cancelled frame is never drawn");
+    }
+
+    void testUncapped(Tester t) {
+        Frames drawn = new Frames();
+        FrameScheduler frames = new FrameScheduler(0, drawn);
+        t.checkExpect(frames.getMaxFramesPerSecond(), 0);
+        this.burst(frames, 10);
+        t.checkExpect(drawn.drawn(), 10, "every request draws synchronously");
+        t.checkExpect(drawn.lastThread, Thread.currentThread());
+        t.checkExpect(frames.getRenderedFrameCount(), 10L);
+        t.checkExpect(frames.getSkippedFrameCount(), 0L);
+        this.checkCounts(t, frames, "uncapped");
+    }
+
+    void testChangeCap(Tester t) {
+        Frames drawn = new Frames();
+        FrameScheduler frames = new FrameScheduler(1, drawn);
+        t.checkExpect(frames.getMaxFramesPerSecond(), 1);
+        frames.setMaxFramesPerSecond(-5);
+        t.checkExpect(frames.getMaxFramesPerSecond(), 0, "a negative cap means no cap");
+        this.burst(frames, 4);
+        t.checkExpect(drawn.drawn(), 4);
+    }
+
+    /**
+     * Worlds are capped at 60 frames per second unless they override the
+     * hook, and overriding it to return 0 draws after every event again
+     */
+    void testWorldSettings(Tester t) throws InterruptedException {
+        t.checkExpect(new ImpWorld().cap(), 60);
+        t.checkExpect(new FunWorld().cap(), 60);
+        t.checkExpect(new ImmediateImpWorld().cap(), 0);
+        t.checkExpect(new ImmediateFunWorld().cap(), 0);
+
+        Frames capped = new Frames();
+        FrameScheduler frames = new FrameScheduler(new ImpWorld().cap(), capped);
+        this.burst(frames, 20);
+        // a frame lasts 1/60 s, so a slow machine may let one pass mid-burst
+        t.checkExpect(capped.drawn() <= 2, true, "capped: a burst of events is coalesced");
+        int now = capped.drawn();
+        capped.awaitFrames(now + 1);
+        this.checkCounts(t, frames, "capped world");
+        t.checkExpect(frames.getSkippedFrameCount() >= 18, true);
+
+        Frames immediate = new Frames();
+        frames = new FrameScheduler(new ImmediateFunWorld().cap(), immediate);
+        this.burst(frames, 20);
+        t.checkExpect(immediate.drawn(), 20, "uncapped: one frame per event");
+        this.checkCounts(t, frames, "uncapped world");
+    }
+}
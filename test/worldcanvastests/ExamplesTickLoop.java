@@ -0,0 +1,173 @@
+package worldcanvastests;
+
+import javalib.worldcanvas.TickLoop;
+import tester.Tester;
+
+/**
+ * Drives a <code>TickLoop</code> on a clock that only moves when told to, and
+ * checks how many ticks and frames it runs: overdue ticks are caught up on up
+ * to a limit and the rest are dropped, <code>getAlpha</code> stays in [0, 1),
+ * and a stopped loop starts again without making up for the time it was
+ * stopped
+ */
+public class ExamplesTickLoop {
+    /** 10 ms per tick */
+    static final long STEP = 10000000L;
+
+    /** A clock that only moves when the test says so */
+    static class ManualClock implements TickLoop.Clock {
+        long now = 0;
+
+        public synchronized long nanoTime() {
+            return this.now;
+        }
+
+        synchronized void advance(long nanos) {
+            this.now += nanos;
+        }
+    }
+
+    /** Counts how often it is run */
+    static class Counter implements Runnable {
+        int count = 0;
+
+        public synchronized void run() {
+            this.count++;
+            this.notifyAll();
+        }
+
+        synchronized int count() {
+            return this.count;
+        }
+
+        synchronized void await(int n) throws InterruptedException {
+            long end = System.currentTimeMillis() + 5000;
+            long left;
+            while (this.count < n && (left = end - System.currentTimeMillis()) > 0) {
+                this.wait(left);
+            }
+        }
+    }
+
+    ManualClock clock;
+    Counter ticks;
+    Counter frames;
+
+    /** A loop of 10 ms ticks that catches up on at most 3 at a time */
+    TickLoop loop(int framesPerSecond) {
+        this.clock = new ManualClock();
+        this.ticks = new Counter();
+        this.frames = new Counter();
+        return new TickLoop(0.01, 3, framesPerSecond, this.ticks, this.frames, this.clock);
+    }
+
+    void testOnSchedule(Tester t) {
+        TickLoop loop = this.loop(0);
+        t.checkExpect(loop.poll(), STEP, "the first tick is due one step from now");
+        t.checkExpect(this.ticks.count(), 0);
+        this.clock.advance(STEP - 1);
+        loop.poll();
+        t.checkExpect(this.ticks.count(), 0, "not due yet");
+        this.clock.advance(1);
+        t.checkExpect(loop.poll(), 2 * STEP);
+        t.checkExpect(this.ticks.count(), 1);
+        t.checkExpect(loop.getTickCount(), 1L);
+        t.checkExpect(loop.getDroppedTickCount(), 0L);
+    }
+
+    void testCatchUp(Tester t) {
+        TickLoop loop = this.loop(0);
+        // a stall of two steps: both overdue ticks run back to back
+        this.clock.advance(2 * STEP);
+        loop.poll();
+        t.checkExpect(this.ticks.count(), 2);
+        t.checkExpect(loop.getDroppedTickCount(), 0L);
+        // a stall of ten steps: three run, the other seven are dropped
+        this.clock.advance(10 * STEP + STEP / 2);
+        t.checkExpect(loop.poll(), 13 * STEP, "the schedule skips the dropped ticks");
+        t.checkExpect(this.ticks.count(), 5);
+        t.checkExpect(loop.getTickCount(), 5L);
+        t.checkExpect(loop.getDroppedTickCount(), 7L);
+        t.checkInexact(loop.getAlpha(), 0.5, 0.0001);
+        // ... and the loop is back on schedule afterward
+        this.clock.advance(STEP / 2);
+        loop.poll();
+        t.checkExpect(this.ticks.count(), 6);
+        t.checkExpect(loop.getDroppedTickCount(), 7L);
+    }
+
+    void testAlpha(Tester t) {
+        TickLoop loop = this.loop(0);
+        t.checkExpect(loop.getAlpha(), 0.0);
+        this.clock.advance(STEP / 4);
+        t.checkInexact(loop.getAlpha(), 0.25, 0.0001);
+        this.clock.advance(STEP / 2);
+        t.checkInexact(loop.getAlpha(), 0.75, 0.0001);
+        // due, but not run yet: still short of the next tick
+        this.clock.advance(STEP);
+        double alpha = loop.getAlpha();
+        t.checkExpect(alpha < 1.0 && alpha > 0.99, true, "alpha stays below 1");
+        loop.poll();
+        t.checkInexact(loop.getAlpha(), 0.75, 0.0001);
+        for (int i = 0; i < 25; i++) {
+            this.clock.advance(STEP * i / 7);
+            loop.poll();
+            alpha = loop.getAlpha();
+            t.checkExpect(alpha >= 0.0 && alpha < 1.0, true, "alpha in [0, 1) at " + i);
+        }
+    }
+
+    void testFrames(Tester t) {
+        // 50 frames per second: one every other tick
+        TickLoop loop = this.loop(50);
+        t.checkExpect(loop.poll(), STEP);
+        t.checkExpect(this.frames.count(), 1, "the first frame is drawn right away");
+        this.clock.advance(STEP);
+        t.checkExpect(loop.poll(), 2 * STEP, "the next frame is due with the next tick");
+        t.checkExpect(this.frames.count(), 1);
+        this.clock.advance(STEP);
+        loop.poll();
+        t.checkExpect(this.frames.count(), 2);
+        // frames missed during a stall are not caught up on
+        this.clock.advance(10 * STEP);
+        loop.poll();
+        t.checkExpect(this.frames.count(), 3);
+        this.clock.advance(STEP);
+        loop.poll();
+        t.checkExpect(this.frames.count(), 3);
+    }
+
+    void testStopStart(Tester t) throws InterruptedException {
+        TickLoop loop = this.loop(0);
+        t.checkExpect(loop.isRunning(), false);
+        loop.start();
+        t.checkExpect(loop.isRunning(), true);
+        this.clock.advance(2 * STEP);
+        this.ticks.await(2);
+        t.checkExpect(this.ticks.count(), 2, "the running loop follows the clock");
+        loop.stop();
+        t.checkExpect(loop.isRunning(), false);
+        // a long pause while stopped is neither caught up on nor dropped
+        this.clock.advance(100 * STEP);
+        Thread.sleep(50);
+        t.checkExpect(this.ticks.count(), 2, "a stopped loop does not tick");
+        loop.start();
+        loop.start();
+        Thread.sleep(50);
+        t.checkExpect(this.ticks.count(), 2, "the first tick after a restart is a step away");
+        t.checkExpect(loop.getDroppedTickCount(), 0L);
+        this.clock.advance(STEP);
+        this.ticks.await(3);
+        Thread.sleep(50);
+        t.checkExpect(this.ticks.count(), 3, "starting twice runs one loop");
+        t.checkExpect(loop.getTickCount(), 3L);
+        t.checkExpect(loop.getDroppedTickCount(), 0L);
+        loop.stop();
+    }
+
+    void testBadRate(Tester t) {
+        t.checkConstructorException(
+                new IllegalArgumentException("The tick rate must be positive"),
+                "javalib.worldcanvas.TickLoop", 0.0, 3, 0, new Counter(), new Counter());
+    }
+}
@@ -0,0 +1,235 @@
+package worldcanvastests;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import javalib.impworld.HeadlessRunner;
+import javalib.impworld.World;
+import javalib.impworld.WorldScene;
+import javalib.worldcanvas.Histogram;
+import javalib.worldcanvas.WorldMetrics;
+import javalib.worldimages.Posn;
+import tester.Tester;
+
+/**
+ * Records values in a <code>Histogram</code> at the edges of its range, and
+ * checks what a <code>WorldMetrics</code> reports for a headless world,
+ * through its methods, its CSV dump and JMX
+ */
+public class ExamplesWorldMetrics {
+
+    /** A world that counts to 100, one tick at a time, timing its phases */
+    static class Counting extends World {
+        int n = 0;
+
+        protected boolean useMetrics() {
+            return true;
+        }
+
+        public void onTick() {
+            this.n++;
+        }
+
+        public void onKeyEvent(String key) {
+            this.n = 0;
+        }
+
+        public void onMouseClicked(Posn pos) {
+            this.n = pos.x;
+        }
+
+        public boolean shouldWorldEnd() {
+            return this.n >= 100;
+        }
+
+        public WorldScene makeScene() {
+            return this.getEmptyScene();
+        }
+    }
+
+    /** Is the given value the given exact value, to the histogram's precision? */
+    boolean near(long value, long exact) {
+        return value >= exact && value <= exact + exact / 32;
+    }
+
+    void testEmptyHistogram(Tester t) {
+        Histogram h = new Histogram();
+        t.checkExpect(h.getCount(), 0L);
+        t.checkExpect(h.getMax(), 0L);
+        t.checkExpect(h.getMean(), 0.0);
+        t.checkExpect(h.getValueAtPercentile(0.0), 0L);
+        t.checkExpect(h.getValueAtPercentile(50.0), 0L);
+        t.checkExpect(h.getValueAtPercentile(100.0), 0L);
+    }
+
+    void testZeroAndNegative(Tester t) {
+        Histogram h = new Histogram();
+        h.record(0);
+        h.record(-5);
+        h.record(Long.MIN_VALUE);
+        t.checkExpect(h.getCount(), 3L, "negative values are counted");
+        t.checkExpect(h.getMax(), 0L, "... as 0");
+        t.checkExpect(h.getMean(), 0.0);
+        t.checkExpect(h.getValueAtPercentile(0.0), 0L);
+        t.checkExpect(h.getValueAtPercentile(100.0), 0L);
+    }
+
+    void testSmallValuesAreExact(Tester t) {
+        Histogram h = new Histogram();
+        for (long v = 0; v < 32; v++) {
+            h.record(v);
+        }
+        t.checkExpect(h.getValueAtPercentile(0.0), 0L, "the smallest value");
+        t.checkExpect(h.getValueAtPercentile(50.0), 15L);
+        t.checkExpect(h.getValueAtPercentile(100.0), 31L);
+        t.checkExpect(h.getMax(), 31L);
+        t.checkInexact(h.getMean(), 15.5, 0.0001);
+    }
+
+    void testPrecision(Tester t) {
+        Histogram h = new Histogram();
+        h.record(1000);
+        h.record(2000);
+        h.record(1000000007L);
+        t.checkExpect(this.near(h.getValueAtPercentile(10.0), 1000), true);
+        t.checkExpect(this.near(h.getValueAtPercentile(33.0), 1000), true);
+        t.checkExpect(this.near(h.getValueAtPercentile(50.0), 2000), true);
+        t.checkExpect(this.near(h.getValueAtPercentile(66.0), 2000), true);
+        t.checkExpect(this.near(h.getValueAtPercentile(67.0), 1000000007L), true);
+        t.checkExpect(h.getValueAtPercentile(100.0), 1000000007L, "never above the max");
+        t.checkExpect(h.getValueAtPercentile(250.0), 1000000007L, "percentiles above 100");
+        t.checkExpect(this.near(h.getValueAtPercentile(-3.0), 1000), true,
+                "percentiles below 0");
+        t.checkExpect(h.getMax(), 1000000007L);
+    }
+
+    void testLargestValues(Tester t) {
+        Histogram h = new Histogram();
+        h.record(Long.MAX_VALUE);
+        t.checkExpect(h.getMax(), Long.MAX_VALUE);
+        t.checkExpect(h.getValueAtPercentile(50.0), Long.MAX_VALUE);
+        h.record(Long.MAX_VALUE);
+        h.record(Long.MAX_VALUE - 1);
+        t.checkExpect(h.getCount(), 3L);
+        t.checkExpect(h.getMean() > 9.2e18, true, "the sum does not overflow");
+        t.checkExpect(h.getValueAtPercentile(0.0), Long.MAX_VALUE,
+                "the top bucket ends at the largest long");
+        h.record(1);
+        t.checkExpect(h.getValueAtPercentile(0.0), 1L);
+        t.checkExpect(h.getMax(), Long.MAX_VALUE);
+        h.reset();
+        t.checkExpect(h.getCount(), 0L);
+        t.checkExpect(h.getMax(), 0L);
+        t.checkExpect(h.getMean(), 0.0);
+    }
+
+    void testHeadlessPhases(Tester t) {
+        Counting w = new Counting();
+        HeadlessRunner r = new HeadlessRunner(w, 100, 100, 0.1);
+        WorldMetrics m = w.getMetrics();
+        t.checkExpect(m.isEnabled(), true, "useMetrics turns them on from the start");
+        r.run(10);
+        r.keyEvent("r");
+        r.mouseClicked(new Posn(50, 5), "LeftButton");
+        r.getScene();
+        r.getScene();
+        t.checkExpect(m.getTickCount(), 10L);
+        t.checkExpect(m.getEventCount(), 2L);
+        t.checkExpect(m.getFrameCount(), 2L, "every scene asked for is a frame");
+        t.checkExpect(m.getHistogram(WorldMetrics.Phase.TICK).getCount(), 10L);
+        t.checkExpect(m.getHistogram(WorldMetrics.Phase.DRAW).getCount(), 0L,
+                "nothing is drawn on a canvas");
+        t.checkExpect(m.getMeanNanos().keySet().toString(),
+                "[TICK, EVENT, MAKE_SCENE, DRAW, BLIT]");
+        t.checkExpect(m.getMaxNanos().get("TICK") > 0, true);
+        t.checkExpect(m.getMaxNanos().get("TICK") >= m.getMedianNanos().get("TICK"), true);
+        t.checkExpect(m.getP99Nanos().get("DRAW"), 0L);
+
+        m.setEnabled(false);
+        r.run(5);
+        t.checkExpect(m.getTickCount(), 10L, "disabled metrics record nothing");
+        m.setEnabled(true);
+        r.run(5);
+        t.checkExpect(m.getTickCount(), 15L, "... and keep what they had");
+        m.reset();
+        t.checkExpect(m.getTickCount(), 0L);
+        t.checkExpect(m.getFrameCount(), 0L);
+    }
+
+    void testCsvDump(Tester t) throws IOException {
+        Path file = Files.createTempFile("metrics", ".csv");
+        try {
+            Counting w = new Counting();
+            HeadlessRunner r = new HeadlessRunner(w, 100, 100, 0.1);
+            WorldMetrics m = w.getMetrics();
+            // a long period: only the snapshot written when the dump stops
+            m.startCsvDump(file, 3600000);
+            r.run(4);
+            r.getScene();
+            m.stopCsvDump();
+            m.stopCsvDump();
+            List<String> lines = Files.readAllLines(file, Charset.forName("UTF-8"));
+            t.checkExpect(lines.size(), 7, "a header, a row per phase, and the allocations");
+            t.checkExpect(lines.get(0), "time_ms,phase,count,mean,p50,p90,p99,max");
+            String[] phases = { "TICK", "EVENT", "MAKE_SCENE", "DRAW", "BLIT",
+                "ALLOCATED_BYTES" };
+            long[] counts = { 4, 0, 1, 0, 0, 0 };
+            long time = -1;
+            for (int i = 0; i < phases.length; i++) {
+                String[] cols = lines.get(i + 1).split(",");
+                t.checkExpect(cols.length, 8, lines.get(i + 1));
+                if (time < 0) {
+                    time = Long.parseLong(cols[0]);
+                }
+                t.checkExpect(Long.parseLong(cols[0]), time, "one time per snapshot");
+                t.checkExpect(cols[1], phases[i]);
+                t.checkExpect(Long.parseLong(cols[2]), counts[i]);
+                t.checkExpect(cols[3].matches("[0-9]+\\.[0-9]"), true, "one decimal: " + cols[3]);
+                long p50 = Long.parseLong(cols[4]);
+                long p90 = Long.parseLong(cols[5]);
+                long p99 = Long.parseLong(cols[6]);
+                long max = Long.parseLong(cols[7]);
+                t.checkExpect(p50 <= p90 && p90 <= p99 && p99 <= max, true,
+                        "percentiles in order: " + lines.get(i + 1));
+            }
+            t.checkExpect(Math.abs(System.currentTimeMillis() - time) < 60000, true);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    void testMBean(Tester t) throws JMException {
+        Counting w = new Counting();
+        HeadlessRunner r = new HeadlessRunner(w, 100, 100, 0.1);
+        WorldMetrics m = w.getMetrics();
+        ObjectName name = m.registerMBean("ExamplesWorldMetrics");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            t.checkExpect(name.toString(),
+                    "javalib:type=WorldMetrics,name=\"ExamplesWorldMetrics\"");
+            r.run(3);
+            t.checkExpect(server.getAttribute(name, "TickCount"), 3L);
+            t.checkExpect(server.getAttribute(name, "Enabled"), true);
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            t.checkExpect(m.getTickCount(), 0L, "JMX clients can reset the metrics");
+            try {
+                m.registerMBean("ExamplesWorldMetrics");
+                t.checkExpect(false, true, "the name is taken");
+            } catch (JMException e) {
+                t.checkExpect(Arrays.asList(server.queryNames(name, null).toArray()),
+                        Arrays.asList((Object) name));
+            }
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package worldimagestests;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import javalib.worldimages.*;
+import tester.Tester;
+
+/**
+ * Drawing, measuring and comparing images walk them with a worklist, so
+ * images nested arbitrarily deeply need no more than a small stack
+ */
+public class ExamplesDeepImages {
+
+    WorldImage deep(int depth) {
+        WorldImage img = new CircleImage(2, OutlineMode.SOLID, Color.RED);
+        for (int i = 0; i < depth; i++) {
+            img = new OverlayImage(new RectangleImage(4, 4, OutlineMode.SOLID, Color.BLUE), img);
+        }
+        return img;
+    }
+
+    void testMillionNodes(Tester t) throws InterruptedException {
+        final WorldImage one = this.deep(1000000);
+        final WorldImage two = this.deep(1000000);
+        final Object[] results = new Object[4];
+        // a stack this small would overflow long before a recursive walk finished
+        Thread walker = new Thread(null, new Runnable() {
+            public void run() {
+                try {
+                    BoundingBox rotated = new RotateImage(one, 90).getBB();
+                    results[0] = Math.round(rotated.getWidth());
+                    results[1] = one.equals(two);
+                    results[2] = one.equals(new OverlayImage(one, two));
+                    BufferedImage buf = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+                    Graphics2D g = buf.createGraphics();
+                    g.translate(10, 10);
+                    one.draw(g);
+                    g.dispose();
+                    results[3] = buf.getRGB(11, 11);
+                } catch (Throwable e) {
+                    results[0] = e;
+                }
+            }
+        }, "walker", 256 * 1024);
+        walker.start();
+        walker.join();
+        t.checkExpect(results[0], 4L, "measured");
+        t.checkExpect(results[1], true, "compared");
+        t.checkExpect(results[2], false, "compared");
+        t.checkExpect(results[3], Color.BLUE.getRGB(), "drawn");
+    }
+
+    public static void main(String[] argv) {
+        ExamplesDeepImages e = new ExamplesDeepImages();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
@@ -0,0 +1,126 @@
+package worldimagestests;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javalib.worldimages.*;
+import tester.Tester;
+
+/**
+ * Images drawn more than once are replayed from a flattened display list,
+ * which must draw exactly what walking the tree draws
+ */
+public class ExamplesDisplayList {
+
+    int[] render(WorldImage img) {
+        BufferedImage buf = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = buf.createGraphics();
+        g.translate(100, 100);
+        g.rotate(0.2);
+        img.draw(g);
+        g.dispose();
+        return buf.getRGB(0, 0, 200, 200, null, 0, 200);
+    }
+
+    WorldImage mixed() {
+        WorldImage row = new RotateImage(new BesideImage(
+                new CircleImage(15, OutlineMode.SOLID, Color.RED),
+                new FrameImage(new StarImage(15, OutlineMode.OUTLINE, Color.ORANGE)),
+                new PhantomImage(new RectangleImage(20, 20, OutlineMode.SOLID, Color.CYAN), 5, 5)),
+                30);
+        return new OverlayImage(new ScaleImageXY(new AboveImage(row,
+                new CropImage(5, 5, 20, 20, row),
+                new VisiblePinholeImage(new EllipseImage(30, 15, OutlineMode.SOLID, Color.PINK))),
+                0.8, 0.6), new RectangleImage(150, 150, OutlineMode.OUTLINE, Color.BLACK));
+    }
+
+    WorldImage deep(int depth) {
+        WorldImage img = new CircleImage(3, OutlineMode.SOLID, Color.RED);
+        for (int i = 0; i < depth; i++) {
+            img = new OverlayOffsetImage(new RectangleImage(2, 2, OutlineMode.SOLID, Color.BLUE),
+                    0.01, 0.02, img);
+        }
+        return img;
+    }
+
+    void testReplaySamePixels(Tester t) {
+        WorldImage[] images = { this.mixed(), this.deep(500), this.deep(2000) };
+        for (WorldImage img : images) {
+            int[] walked = this.render(img);
+            this.render(img);
+            t.checkExpect(Arrays.equals(walked, this.render(img)), true);
+        }
+    }
+
+    void testReplayOverdraw(Tester t) {
+        // frames and pinholes draw over their parts, after them
+        WorldImage star = new StarImage(30, OutlineMode.SOLID, Color.ORANGE);
+        WorldImage[] images = { new FrameImage(new OverlayImage(star, this.deep(20)), Color.RED),
+            new VisiblePinholeImage(new FrameImage(star), Color.BLUE),
+            new FrameImage(new FrameImage(new RotateImage(star, 10))) };
+        for (WorldImage img : images) {
+            int[] walked = this.render(img);
+            this.render(img);
+            t.checkExpect(Arrays.equals(walked, this.render(img)), true);
+        }
+    }
+
+    /** A tree of the given number of empty images, which draw nothing */
+    WorldImage empties(int n) {
+        WorldImage img = new EmptyImage();
+        for (int i = 1; i < n; i++) {
+            img = new OverlayOffsetImage(img, 0.01, 0.02, new EmptyImage());
+        }
+        return img;
+    }
+
+    /** How many bytes does drawing the image allocate on this thread? */
+    long allocated(WorldImage img, Graphics2D g) {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(id);
+        img.draw(g);
+        return bean.getThreadAllocatedBytes(id) - before;
+    }
+
+    void testAllocations(Tester t) {
+        BufferedImage buf = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = buf.createGraphics();
+        g.translate(10, 10);
+        g.rotate(0.2);
+        int n = 10000;
+        WorldImage img = this.empties(n);
+        // warm up the code paths first, on an image of its own
+        WorldImage warm = this.empties(n);
+        for (int i = 0; i < 3; i++) {
+            warm.draw(g);
+        }
+        this.allocated(img, g);
+        long compiled = this.allocated(img, g);
+        // six doubles, one reference and one flag per image
+        t.checkExpect(compiled < 64L * n, true,
+                "compiling keeps only the list: " + compiled + " bytes");
+        this.allocated(img, g);
+        long replayed = this.allocated(img, g);
+        t.checkExpect(replayed < 4096, true,
+                "replaying allocates nothing per image: " + replayed + " bytes");
+
+        // trees too large to keep are not compiled, and are walked instead
+        WorldImage huge = this.empties(4 * n);
+        this.allocated(huge, g);
+        long refused = this.allocated(huge, g);
+        long walked = this.allocated(huge, g);
+        t.checkExpect(refused < 4096, true, "nothing is kept: " + refused + " bytes");
+        t.checkExpect(walked < 4096, true, "walking allocates nothing per image");
+        g.dispose();
+    }
+
+    public static void main(String[] argv) {
+        ExamplesDisplayList e = new ExamplesDisplayList();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
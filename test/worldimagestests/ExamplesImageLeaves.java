@@ -0,0 +1,110 @@
+package worldimagestests;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import javalib.worldimages.*;
+import tester.Tester;
+
+/**
+ * The leaves of an image can be visited one at a time, or streamed (in
+ * parallel) from a spliterator, each with the transform that places it
+ */
+public class ExamplesImageLeaves {
+    WorldImage circle = new CircleImage(5, OutlineMode.SOLID, Color.RED);
+    WorldImage rect = new RectangleImage(12, 8, OutlineMode.OUTLINE, Color.BLUE);
+    WorldImage ellipse = new EllipseImage(10, 4, OutlineMode.SOLID, Color.GREEN);
+    WorldImage text = new TextImage("leaves", 12, Color.BLACK);
+
+    WorldImage mixed = new BesideImage(this.circle,
+            new RotateImage(new AboveImage(this.rect, this.ellipse), 30), this.text);
+
+    WorldImage chain(int length) {
+        WorldImage img = this.circle;
+        for (int i = 0; i < length; i++) {
+            img = new OverlayOffsetImage(img, 1, 0, this.rect);
+        }
+        return img;
+    }
+
+    void testVisitInDrawingOrder(Tester t) {
+        final List<WorldImage> visited = new ArrayList<WorldImage>();
+        final List<AffineTransform> placed = new ArrayList<AffineTransform>();
+        boolean finished = this.mixed.visitLeaves(new LeafVisitor() {
+            public boolean visit(WorldImage leaf, double m00, double m10, double m01,
+                    double m11, double m02, double m12) {
+                visited.add(leaf);
+                placed.add(new AffineTransform(m00, m10, m01, m11, m02, m12));
+                return true;
+            }
+        });
+        t.checkExpect(finished, true);
+        t.checkExpect(visited.size(), 4);
+        // the image beside (or below) another is drawn first
+        t.checkExpect(visited.get(0) instanceof TextImage, true);
+        t.checkExpect(visited.get(1) instanceof EllipseImage, true);
+        t.checkExpect(visited.get(2) instanceof RectangleImage, true);
+        t.checkExpect(visited.get(3) instanceof CircleImage, true);
+        t.checkExpect(placed.get(1).getShearY() != 0, true, "rotated");
+        t.checkExpect(placed.get(3).getType(), AffineTransform.TYPE_TRANSLATION, "moved");
+    }
+
+    void testLeavesMakeUpBB(Tester t) {
+        final double[] union = { Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        this.mixed.leafSpliterator().forEachRemaining(leaf -> {
+            BoundingBox bb = leaf.getBB();
+            union[0] = Math.min(union[0], bb.getTlx());
+            union[1] = Math.min(union[1], bb.getTly());
+            union[2] = Math.max(union[2], bb.getBrx());
+            union[3] = Math.max(union[3], bb.getBry());
+        });
+        BoundingBox whole = this.mixed.getBB();
+        t.checkExpect(Math.abs(union[0] - whole.getTlx()) < 1e-9, true);
+        t.checkExpect(Math.abs(union[1] - whole.getTly()) < 1e-9, true);
+        t.checkExpect(Math.abs(union[2] - whole.getBrx()) < 1e-9, true);
+        t.checkExpect(Math.abs(union[3] - whole.getBry()) < 1e-9, true);
+    }
+
+    void testVisitStopsEarly(Tester t) {
+        final int[] count = { 0 };
+        boolean finished = this.chain(10).visitLeaves(new LeafVisitor() {
+            public boolean visit(WorldImage leaf, double m00, double m10, double m01,
+                    double m11, double m02, double m12) {
+                count[0]++;
+                return count[0] < 3;
+            }
+        });
+        t.checkExpect(finished, false);
+        t.checkExpect(count[0], 3);
+    }
+
+    void testSpliterator(Tester t) {
+        WorldImage img = this.chain(100000);
+        Spliterator<ImageLeaf> leaves = img.leafSpliterator();
+        t.checkExpect(leaves.getExactSizeIfKnown(), 100001L);
+        Spliterator<ImageLeaf> prefix = leaves.trySplit();
+        t.checkExpect(prefix.estimateSize(), 50000L, "split into halves");
+        t.checkExpect(leaves.estimateSize(), 50001L, "split into halves");
+        ImageLeaf[] last = new ImageLeaf[1];
+        leaves.forEachRemaining(leaf -> last[0] = leaf);
+        t.checkExpect(last[0].image, this.circle, "in drawing order");
+
+        t.checkExpect(StreamSupport.stream(img.leafSpliterator(), true).count(), 100001L);
+        t.checkExpect(StreamSupport.stream(img.leafSpliterator(), true)
+                .filter(leaf -> leaf.image == this.rect).count(), 100000L);
+        long sequential = StreamSupport.stream(img.leafSpliterator(), false)
+                .mapToLong(leaf -> Math.round(leaf.m02)).sum();
+        long parallel = StreamSupport.stream(img.leafSpliterator(), true)
+                .mapToLong(leaf -> Math.round(leaf.m02)).sum();
+        t.checkExpect(parallel, sequential);
+    }
+
+    public static void main(String[] argv) {
+        ExamplesImageLeaves e = new ExamplesImageLeaves();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
@@ -4,6 +4,13 @@ import javalib.worldimages.*;
 import tester.*;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.imageio.ImageIO;
 
 /**
  * Copyright 2012 Viera K. Proulx
@@ -376,6 +383,177 @@ public class ExamplesImageMethods implements IExamples {
 
         t.checkInexact(this.fromFile1.getWidth(), 134.0, 0.001);
         t.checkInexact(this.fromFile1.getHeight(), 134.0, 0.001);
+
+        ImageCache cache = FromFileImage.getImageCache();
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        new FromFileImage("rubberduck.jpg");
+        t.checkExpect(cache.getHitCount(), hits + 1, "decoded files are shared");
+        t.checkExpect(cache.getMissCount(), misses);
+        t.checkExpect(cache.getCurrentBytes() > 0, true);
+
+        t.checkConstructorException(
+                new IllegalArgumentException("Could not open the image file no-such-duck.jpg"),
+                "javalib.worldimages.FromFileImage", "no-such-duck.jpg");
+    }
+
+    /** Replace the given file, all at once, by a blank square of the given size */
+    void writeSquare(File file, int size) throws IOException {
+        File tmp = new File(file.getParentFile(), "writing.png");
+        ImageIO.write(new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB), "png", tmp);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Tests for answering loads from memory while watching files for changes
+    void testImageCacheWatching(Tester t) {
+        ImageCache cache = FromFileImage.getImageCache();
+        boolean wasWatching = cache.isWatching();
+        File dir = null;
+        File file = null;
+        try {
+            dir = Files.createTempDirectory("javalib-watch").toFile();
+            file = new File(dir, "square.png");
+            this.writeSquare(file, 10);
+            cache.setWatching(true);
+
+            new FromFileImage(file.getPath());
+            long hits = cache.getHitCount();
+            long misses = cache.getMissCount();
+            FromFileImage again = new FromFileImage(file.getPath());
+            t.checkExpect(cache.getHitCount(), hits + 1, "answered from memory");
+            t.checkExpect(cache.getMissCount(), misses);
+            t.checkInexact(again.getWidth(), 10.0, 0.001);
+
+            // the watching thread notices the change, and evicts the file
+            this.writeSquare(file, 20);
+            FromFileImage changed = new FromFileImage(file.getPath());
+            for (int i = 0; i < 500 && changed.getWidth() != 20; i++) {
+                Thread.sleep(10);
+                changed = new FromFileImage(file.getPath());
+            }
+            t.checkInexact(changed.getWidth(), 20.0, 0.001, "decoded again once changed");
+            t.checkExpect(cache.getMissCount() > misses, true);
+            t.checkExpect(changed.equals(again), false);
+        } catch (IOException e) {
+            t.checkExpect(e, null, "could not write the watched file");
+        } catch (InterruptedException e) {
+            t.checkExpect(e, null, "interrupted while waiting for the change");
+        } finally {
+            try {
+                cache.setWatching(wasWatching);
+            } catch (IOException e) {
+                t.checkExpect(e, null, "could not restore watching");
+            }
+            if (file != null) {
+                file.delete();
+            }
+            if (dir != null) {
+                dir.delete();
+            }
+        }
+    }
+
+    // ------------ SpriteSheetImage class
+    // ----------------------------------------//
+
+    SpriteSheetImage sheet = new SpriteSheetImage("rubberduck.jpg", 67, 67);
+
+    // Tests for the SpriteSheetImage and SpriteImage classes
+    void testSpriteSheetImage(Tester t) {
+        t.checkExpect(this.sheet.getFrameCount(), 4);
+        t.checkExpect(this.sheet.getFrame(3) == this.sheet.getFrame(1, 1), true,
+                "frames are only made once");
+        t.checkExpect(this.sheet.getFrame(1), this.sheet.getRegion(67, 0, 67, 67));
+        t.checkExpect(this.sheet.getFrame(1).equals(this.sheet.getFrame(2)), false);
+        t.checkExpect(this.sheet.getFrame(1).toString(),
+                "new SpriteImage(this.fileName = \"rubberduck.jpg\", "
+                + "this.x = 67, this.y = 0, this.width = 67, this.height = 67)");
+        t.checkInexact(this.sheet.getFrame(0).getWidth(), 67.0, 0.001);
+        t.checkInexact(new SpriteSheetImage("rubberduck.jpg").getWidth(), 134.0, 0.001);
+        t.checkExpect(new SpriteSheetImage("rubberduck.jpg").getFrameCount(), 1);
+
+        FromFileImage whole = (FromFileImage) this.fromFile1;
+        t.checkExpect(this.sheet.getFrame(3).getColorAt(10, 20), whole.getColorAt(77, 87));
+        t.checkExpect(this.sheet.getFrame(3).getSubimage().getRGB(10, 20),
+                whole.getColorAt(77, 87).getRGB());
+        t.checkException(new IndexOutOfBoundsException(
+                "Specified frame (4) is not in range [0, 4)"), this.sheet, "getFrame", 4);
+    }
+
+    // ------------ ImageInterner class
+    // ----------------------------------------//
+
+    ImageInterner interner = new ImageInterner();
+
+    // Tests for the ImageInterner class
+    void testImageInterner(Tester t) {
+        WorldImage c1 = this.interner.circle(4, OutlineMode.SOLID, Color.RED);
+        WorldImage c2 = this.interner.intern(new CircleImage(4, OutlineMode.SOLID, Color.RED));
+        t.checkExpect(c1 == c2, true, "equal leaves are shared");
+        t.checkExpect(c1, this.circle1);
+
+        WorldImage row1 = this.interner.beside(this.circle1, this.text1, this.line1);
+        WorldImage row2 = this.interner.beside(this.circle5, this.text2, this.line2);
+        t.checkExpect(row1 == row2, true, "equal combinations are shared");
+        t.checkExpect(row1, new BesideImage(this.circle1, this.text1, this.line1));
+        t.checkExpect(row1.hashCode(),
+                new BesideImage(this.circle1, this.text1, this.line1).hashCode());
+        t.checkExpect(this.interner.rotate(row1, 30).equals(this.interner.rotate(row2, 45)), false,
+                "distinct canonical images");
+
+        ImageInterner again = new ImageInterner();
+        WorldImage old = again.intern(new BesideImage(this.circle1, this.text1));
+        again.clear();
+        t.checkExpect(again.size(), 0);
+        WorldImage reinterned = again.intern(old);
+        t.checkExpect(reinterned == old, true, "canonical again after clearing");
+        t.checkExpect(again.intern(new BesideImage(this.circle1, this.text1)) == old, true);
+        WorldImage other = again.intern(
+                new BesideImage(this.circle1, new TextImage("bye", 6, Color.BLACK)));
+        t.checkExpect(again.size(), 2);
+        t.checkExpect(old.equals(other), false);
+        t.checkExpect(again.beside(this.circle5, this.text2) == old, true,
+                "built images are shared with it, too");
+    }
+
+    // ------------ ComputedPixelImage class
+    // ----------------------------------------//
+
+    // Tests for the packed-ARGB methods of ComputedPixelImage
+    void testComputedPixelImage(Tester t) {
+        ComputedPixelImage img = new ComputedPixelImage(4, 3);
+        img.setPixels(0, 0, 4, 3, Color.BLACK);
+        img.setRGB(1, 2, Color.RED.getRGB());
+        t.checkExpect(img.getPixel(1, 2), Color.RED);
+        t.checkExpect(img.getRGB(0, 0), Color.BLACK.getRGB());
+
+        int[] row = new int[] { 1, 2, 3, 4 };
+        img.setRow(1, row, 0);
+        int[] out = new int[8];
+        img.getRGB(1, 1, 2, 2, out, 0, 4);
+        t.checkExpect(out[0], 2);
+        t.checkExpect(out[4], Color.RED.getRGB());
+
+        ComputedPixelImage copy = new ComputedPixelImage(4, 3);
+        int[] all = new int[12];
+        img.getRGB(0, 0, 4, 3, all, 0, 4);
+        copy.getPixelBuffer().put(all);
+        t.checkExpect(copy, img);
+        copy.getPixelBuffer().put(11, 0);
+        t.checkExpect(copy.equals(img), false);
+
+        PixelShader gradient = new PixelShader() {
+            public int shade(int x, int y) {
+                return 0xFF000000 | (x << 8) | y;
+            }
+        };
+        ComputedPixelImage shaded = new ComputedPixelImage(300, 200);
+        shaded.shade(gradient);
+        t.checkExpect(shaded.getRGB(299, 199), 0xFF000000 | (299 << 8) | 199);
+        ComputedPixelImage tiled = new ComputedPixelImage(300, 200);
+        tiled.shade(gradient, 64, 48);
+        t.checkExpect(tiled, shaded, "tiling does not change the result");
     }
 
     // Run all tests - comment out those you want to skip
@@ -392,6 +570,10 @@ public class ExamplesImageMethods implements IExamples {
         testOverlayImage(t);
         testOverlayOffsetImage(t);
         testFromFileImage(t);
+        testImageCacheWatching(t);
+        testSpriteSheetImage(t);
+        testImageInterner(t);
+        testComputedPixelImage(t);
     }
 
     public static void main(String[] argv) {
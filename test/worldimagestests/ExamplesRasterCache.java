@@ -0,0 +1,211 @@
+package worldimagestests;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import javalib.funworld.WorldScene;
+import javalib.worldimages.*;
+import tester.Tester;
+
+/**
+ * Once the raster cache is enabled, deeply nested images drawn repeatedly are
+ * copied from a rendered picture, which must look exactly like drawing the
+ * image itself on a transparent background. Rendering and comparing scenes
+ * never uses the cache.
+ */
+public class ExamplesRasterCache {
+
+    int[] render(WorldImage img, double x, double angle, double scale) {
+        BufferedImage buf = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = buf.createGraphics();
+        g.translate(x, 100);
+        g.rotate(angle);
+        g.scale(scale, scale);
+        img.draw(g);
+        g.dispose();
+        return buf.getRGB(0, 0, 200, 200, null, 0, 200);
+    }
+
+    WorldImage decoration(WorldImage inner) {
+        WorldImage img = inner;
+        for (int i = 0; i < 8; i++) {
+            img = new BesideImage(img, new OverlayImage(
+                    new RectangleImage(6, 9, OutlineMode.OUTLINE, Color.BLUE),
+                    new EllipseImage(8, 4, OutlineMode.SOLID, new Color(0, 128, 0, 128))));
+        }
+        return new AboveImage(img, new TextImage("decoration", 14, Color.BLACK));
+    }
+
+    void testCachedSamePixels(Tester t) {
+        RasterCache cache = WorldImage.getRasterCache();
+        WorldImage img = this.decoration(new CircleImage(5, OutlineMode.SOLID, Color.RED));
+        double[][] placements = { { 100, 0, 1 }, { 100.5, 0, 1 }, { 100, 0.4, 1.3 } };
+        for (double[] p : placements) {
+            cache.setEnabled(false);
+            int[] walked = this.render(img, p[0], p[1], p[2]);
+            cache.setEnabled(true);
+            this.render(img, p[0], p[1], p[2]);
+            long misses = cache.getMissCount();
+            t.checkExpect(Arrays.equals(walked, this.render(img, p[0], p[1], p[2])), true);
+            t.checkExpect(cache.getMissCount(), misses + 1, "rendered on the second draw");
+            long hits = cache.getHitCount();
+            t.checkExpect(Arrays.equals(walked, this.render(img, p[0], p[1], p[2])), true);
+            t.checkExpect(cache.getHitCount(), hits + 1, "drawn from the picture");
+        }
+        cache.setEnabled(false);
+    }
+
+    void testMutableNotCached(Tester t) {
+        ComputedPixelImage pixels = new ComputedPixelImage(10, 10);
+        pixels.setPixels(0, 0, 10, 10, Color.RED);
+        WorldImage img = this.decoration(pixels);
+        WorldImage.getRasterCache().setEnabled(true);
+        this.render(img, 100, 0, 1);
+        this.render(img, 100, 0, 1);
+        pixels.setPixels(0, 0, 10, 10, Color.BLUE);
+        int[] drawn = this.render(img, 100, 0, 1);
+        WorldImage.getRasterCache().setEnabled(false);
+        t.checkExpect(Arrays.equals(drawn, this.render(img, 100, 0, 1)), true,
+                "changed pixels are drawn");
+    }
+
+    /** Ten translucent layers, deep enough to be cached */
+    WorldImage layers() {
+        WorldImage img = new RectangleImage(60, 40, OutlineMode.SOLID, new Color(0, 0, 200, 90));
+        for (int i = 0; i < 10; i++) {
+            img = new OverlayImage(
+                    new CircleImage(5 + 3 * i, OutlineMode.SOLID, new Color(200, 20 * i, 0, 70)), img);
+        }
+        return img;
+    }
+
+    /** Draw the image, antialiased, over a white background */
+    int[] renderOpaque(WorldImage img, boolean caching) {
+        BufferedImage buf = new BufferedImage(120, 120, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = buf.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (!caching) {
+            g.setRenderingHint(RasterCache.KEY_CACHING, Boolean.FALSE);
+        }
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 120, 120);
+        g.translate(60, 60);
+        img.draw(g);
+        g.dispose();
+        return buf.getRGB(0, 0, 120, 120, null, 0, 120);
+    }
+
+    void testOffByDefault(Tester t) {
+        RasterCache cache = WorldImage.getRasterCache();
+        t.checkExpect(cache.isEnabled(), false);
+        WorldImage img = this.layers();
+        long misses = cache.getMissCount();
+        this.renderOpaque(img, true);
+        this.renderOpaque(img, true);
+        this.renderOpaque(img, true);
+        t.checkExpect(cache.getMissCount(), misses, "nothing is rendered until enabled");
+    }
+
+    void testOpaqueBackground(Tester t) {
+        RasterCache cache = WorldImage.getRasterCache();
+        WorldImage img = this.layers();
+        int[] walked = this.renderOpaque(img, true);
+        cache.setEnabled(true);
+        try {
+            this.renderOpaque(img, true);
+            this.renderOpaque(img, true);
+            long hits = cache.getHitCount();
+            t.checkExpect(Arrays.equals(walked, this.renderOpaque(img, false)), true,
+                    "drawn exactly when caching is turned off for the graphics");
+            t.checkExpect(cache.getHitCount(), hits);
+
+            // the picture may blend a few color levels differently
+            int[] copied = this.renderOpaque(img, true);
+            t.checkExpect(cache.getHitCount(), hits + 1);
+            int worst = 0;
+            for (int i = 0; i < walked.length; i++) {
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int diff = ((walked[i] >> shift) & 0xFF) - ((copied[i] >> shift) & 0xFF);
+                    worst = Math.max(worst, Math.abs(diff));
+                }
+            }
+            t.checkExpect(worst <= 4, true, "close to drawing the image itself");
+
+            // scenes rendered or compared pixel by pixel are always exact
+            WorldImage fresh = this.layers();
+            WorldScene scene = new WorldScene(120, 120)
+                    .placeImageXY(new RectangleImage(120, 120, OutlineMode.SOLID, Color.GRAY), 60, 60)
+                    .placeImageXY(fresh, 60, 60);
+            cache.setEnabled(false);
+            int[] exact = scene.renderImage().getRGB(0, 0, 120, 120, null, 0, 120);
+            cache.setEnabled(true);
+            for (int i = 0; i < 3; i++) {
+                t.checkExpect(Arrays.equals(exact,
+                        scene.renderImage().getRGB(0, 0, 120, 120, null, 0, 120)), true,
+                        "rendered exactly every time");
+                // built from new images, so never drawn before, and with an unseen circle
+                WorldScene same = new WorldScene(120, 120)
+                        .placeImageXY(new RectangleImage(120, 120, OutlineMode.SOLID, Color.GRAY), 60, 60)
+                        .placeImageXY(this.layers(), 60, 60)
+                        .placeImageXY(new CircleImage(5, OutlineMode.SOLID, Color.RED), -100, -100);
+                t.checkExpect(scene.equals(same), true, "the same answer every time");
+            }
+        } finally {
+            cache.setEnabled(false);
+        }
+    }
+
+    void testDrawnOnceNotKept(Tester t) {
+        RasterCache cache = WorldImage.getRasterCache();
+        cache.setEnabled(true);
+        try {
+            int size = cache.getSize();
+            for (int i = 0; i < 20; i++) {
+                this.renderOpaque(this.layers(), true);
+            }
+            t.checkExpect(cache.getSize(), size, "images built for every frame stay out");
+        } finally {
+            cache.setEnabled(false);
+        }
+    }
+
+    /** Draw a new image until it is cached, and forget it */
+    WeakReference<WorldImage> cachedAndDropped() {
+        WorldImage img = this.layers();
+        for (int i = 0; i < 3; i++) {
+            this.renderOpaque(img, true);
+        }
+        return new WeakReference<WorldImage>(img);
+    }
+
+    void testImagesNotKeptAlive(Tester t) {
+        RasterCache cache = WorldImage.getRasterCache();
+        cache.setEnabled(true);
+        try {
+            long hits = cache.getHitCount();
+            WeakReference<WorldImage> ref = this.cachedAndDropped();
+            t.checkExpect(cache.getHitCount(), hits + 1);
+            t.checkExpect(cache.getCurrentBytes() > 0, true);
+            for (int i = 0; i < 100 && ref.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            t.checkExpect(ref.get() == null, true, "the cache does not keep images alive");
+            t.checkExpect(cache.getCurrentBytes(), 0L, "and drops their pictures");
+            t.checkExpect(cache.getSize(), 0);
+        } catch (InterruptedException e) {
+            t.checkExpect(e, null, "interrupted while waiting for the collector");
+        } finally {
+            cache.setEnabled(false);
+        }
+    }
+
+    public static void main(String[] argv) {
+        ExamplesRasterCache e = new ExamplesRasterCache();
+        Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);
+    }
+}
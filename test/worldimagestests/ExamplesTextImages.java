@@ -4,6 +4,15 @@ import javalib.worldimages.*;
 import javalib.funworld.WorldScene;
 import javalib.worldcanvas.*;
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import tester.Tester;
 
 class ExamplesTextImages {
@@ -29,6 +38,77 @@ class ExamplesTextImages {
 
   }
 
+  // text may be measured from several threads at once
+  void testParallelMeasuring(Tester t) throws Exception {
+    final double width = new TextImage("Score: 42", 17, FontStyle.BOLD, Color.BLACK).getWidth();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+    for (int i = 0; i < 8; i++) {
+      results.add(pool.submit(new Callable<Boolean>() {
+        public Boolean call() {
+          boolean same = true;
+          for (int j = 0; j < 100; j++) {
+            new RotateImage(new TextImage("Score: " + j, 17, FontStyle.BOLD, Color.BLACK), j).getBB();
+            same &= new TextImage("Score: 42", 17, FontStyle.BOLD, Color.BLACK).getWidth() == width;
+          }
+          return same;
+        }
+      }));
+    }
+    for (Future<Boolean> result : results) {
+      t.checkExpect(result.get(), true);
+    }
+    pool.shutdown();
+  }
+
+  // a font that counts how often a size and style is derived from it
+  static class CountingFont extends Font {
+    int derived = 0;
+
+    CountingFont() {
+      super(Font.DIALOG, Font.PLAIN, 12);
+    }
+
+    public Font deriveFont(int style, float size) {
+      this.derived++;
+      return super.deriveFont(style, size);
+    }
+  }
+
+  // text drawn again in the same size and style reuses the font it derived
+  void testDerivedFontReuse(Tester t) {
+    BufferedImage buf = new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = buf.createGraphics();
+    CountingFont base = new CountingFont();
+    g.setFont(base);
+    TextImage text = new TextImage("Score: 42", 17, FontStyle.BOLD, Color.BLACK);
+    WorldImage rotated = new RotateImage(text, 30);
+    text.draw(g);
+    text.draw(g);
+    rotated.draw(g);
+    rotated.draw(g);
+    t.checkExpect(base.derived, 1, "one font for every draw");
+    t.checkExpect(g.getFont() == base, true, "the font of the graphics is restored");
+
+    text.size = 20;
+    text.draw(g);
+    t.checkExpect(base.derived, 2, "a new size derives a new font");
+    text.draw(g);
+    t.checkExpect(base.derived, 2);
+    text.style = FontStyle.ITALIC;
+    text.draw(g);
+    t.checkExpect(base.derived, 3, "a new style derives a new font");
+    text.draw(g);
+    t.checkExpect(base.derived, 3);
+
+    CountingFont other = new CountingFont();
+    g.setFont(other);
+    text.draw(g);
+    t.checkExpect(other.derived, 1, "a new base font derives a new font");
+    t.checkExpect(base.derived, 3);
+    g.dispose();
+  }
+
   public static void main(String[] argv) {
     ExamplesTextImages e = new ExamplesTextImages();
     Tester.runReport(e, false, true, new tester.DefaultReporter(), 80);